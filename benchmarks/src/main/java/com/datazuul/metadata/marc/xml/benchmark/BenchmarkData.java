@@ -0,0 +1,76 @@
+package com.datazuul.metadata.marc.xml.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import org.marc4j.MarcXmlWriter;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+
+/**
+ * MARC-XML documents used by the benchmarks: the example records of the
+ * library tests and synthetic large records.
+ */
+public class BenchmarkData {
+
+  public static final String SANDBURG = "sandburg";
+  public static final String BV020998142 = "BV020998142";
+  public static final String LARGE = "large";
+
+  public static byte[] document(String name) {
+    switch (name) {
+    case SANDBURG:
+      return resource("marc21-sandburg.xml");
+    case BV020998142:
+      return resource("marc21-BV020998142.xml");
+    case LARGE:
+      return toXml(largeRecord(500));
+    default:
+      throw new IllegalArgumentException("Unknown document: " + name);
+    }
+  }
+
+  private static byte[] resource(String name) {
+    try (InputStream is = BenchmarkData.class.getClassLoader().getResourceAsStream(name)) {
+      return is.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Record with title, creators, publisher, dates and <code>fields</code>
+   * further data fields spread over the notes (5xx), subjects (6xx) and added
+   * entries (7xx).
+   */
+  public static Record largeRecord(int fields) {
+    MarcFactory factory = MarcFactory.newInstance();
+    Record record = factory.newRecord("00000cam a2200000 a 4500");
+    record.addVariableField(factory.newControlField("001", "bench-0001"));
+    record.addVariableField(factory.newControlField("008", "920219s1993    caua   j      000 0 eng  "));
+    record.addVariableField(factory.newDataField("020", ' ', ' ', "a", "0152038655"));
+    record.addVariableField(factory.newDataField("100", '1', ' ', "a", "Sandburg, Carl,", "d", "1878-1967."));
+    record.addVariableField(factory.newDataField("245", '1', '0', "a", "Arithmetic /", "c", "Carl Sandburg."));
+    record.addVariableField(
+        factory.newDataField("260", ' ', ' ', "a", "San Diego :", "b", "Harcourt Brace,", "c", "c1993."));
+    int[] tags = { 500, 504, 520, 546, 590, 650, 651, 655, 700, 710 };
+    for (int i = 0; i < fields; i++) {
+      String tag = String.valueOf(tags[i % tags.length]);
+      DataField dataField = factory.newDataField(tag, ' ', '0', "a", "Value " + i + " of field " + tag, "x",
+          "Subdivision " + i, "z", "Place " + i);
+      record.addVariableField(dataField);
+    }
+    return record;
+  }
+
+  public static byte[] toXml(Record record) {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    MarcXmlWriter writer = new MarcXmlWriter(os, "UTF-8");
+    writer.write(record);
+    writer.close();
+    return os.toByteArray();
+  }
+}
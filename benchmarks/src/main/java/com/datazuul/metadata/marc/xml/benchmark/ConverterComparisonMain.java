@@ -0,0 +1,38 @@
+package com.datazuul.metadata.marc.xml.benchmark;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.converter.ConverterComparison;
+import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
+import com.datazuul.metadata.marc.xml.converter.XsltMarcXml2DublinCore;
+
+/**
+ * Lists the differences between {@link MarcXml2DublinCore} and
+ * {@link XsltMarcXml2DublinCore} on the records of the given MARC-XML files:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.datazuul.metadata.marc.xml.benchmark.ConverterComparisonMain dump1.xml [dump2.xml ...]
+ * </pre>
+ */
+public class ConverterComparisonMain {
+
+  public static void main(String[] args) throws IOException {
+    List<Record> corpus = new ArrayList<>();
+    for (String file : args) {
+      try (InputStream is = new FileInputStream(file); Stream<Record> records = MarcXmlRecord.stream(is)) {
+        records.forEach(corpus::add);
+      }
+    }
+    ConverterComparison comparison = new ConverterComparison("java", new MarcXml2DublinCore(), "xslt",
+        new XsltMarcXml2DublinCore());
+    System.out.println(comparison.compare(corpus));
+  }
+}
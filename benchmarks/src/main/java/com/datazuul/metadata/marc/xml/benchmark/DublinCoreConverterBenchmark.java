@@ -0,0 +1,60 @@
+package com.datazuul.metadata.marc.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.marc4j.marc.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
+import com.datazuul.metadata.marc.xml.converter.XsltMarcXml2DublinCore;
+
+/**
+ * Dublin Core conversion of an already parsed record: the Java converter
+ * against the bundled XSL-Transformation. The differences of their output are
+ * listed by {@link ConverterComparisonMain}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DublinCoreConverterBenchmark {
+
+  @Param({ BenchmarkData.SANDBURG, BenchmarkData.BV020998142, BenchmarkData.LARGE })
+  public String document;
+
+  private Record record;
+  private MarcXml2DublinCore java;
+  private XsltMarcXml2DublinCore xslt;
+
+  @Setup
+  public void setup() {
+    record = MarcXmlRecord.from(new ByteArrayInputStream(BenchmarkData.document(document)));
+    java = new MarcXml2DublinCore();
+    xslt = new XsltMarcXml2DublinCore();
+  }
+
+  @Benchmark
+  public DublinCore java() {
+    return java.convert(record);
+  }
+
+  @Benchmark
+  public DublinCore xslt() {
+    return xslt.convert(record);
+  }
+}
@@ -0,0 +1,56 @@
+package com.datazuul.metadata.marc.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.converter.DublinCoreEventBuilder;
+
+/**
+ * Parsing plus Dublin Core conversion of a single record document: through the
+ * marc4j object model and directly from StAX events.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DublinCoreParseBenchmark {
+
+  @Param({ BenchmarkData.SANDBURG, BenchmarkData.BV020998142, BenchmarkData.LARGE })
+  public String document;
+
+  private byte[] xml;
+
+  @Setup
+  public void setup() {
+    xml = BenchmarkData.document(document);
+  }
+
+  @Benchmark
+  public DublinCore objectModel() {
+    return new MarcXml(MarcXmlRecord.from(new ByteArrayInputStream(xml))).toDublinCore();
+  }
+
+  @Benchmark
+  public void events(Blackhole blackhole) throws IOException {
+    DublinCoreEventBuilder.convert(new ByteArrayInputStream(xml), blackhole::consume);
+  }
+}
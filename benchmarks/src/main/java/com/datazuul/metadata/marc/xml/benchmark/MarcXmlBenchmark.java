@@ -0,0 +1,66 @@
+package com.datazuul.metadata.marc.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.marc4j.marc.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+
+/**
+ * Accessors of {@link MarcXml} and the Dublin Core conversion of an already
+ * parsed record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MarcXmlBenchmark {
+
+  @Param({ BenchmarkData.SANDBURG, BenchmarkData.BV020998142, BenchmarkData.LARGE })
+  public String document;
+
+  private Record record;
+  private MarcXml marcXml;
+
+  @Setup
+  public void setup() {
+    record = MarcXmlRecord.from(new ByteArrayInputStream(BenchmarkData.document(document)));
+    marcXml = new MarcXml(record);
+  }
+
+  @Benchmark
+  public List<String> getSubfieldsByTagAndCodes() {
+    return marcXml.getSubfieldsByTagAndCodes("245", "abfghk");
+  }
+
+  @Benchmark
+  public char getLeader() {
+    return marcXml.getLeader(7);
+  }
+
+  /**
+   * Conversion including the creation of the {@link MarcXml} (and its tag
+   * index), as done once per record in a batch.
+   */
+  @Benchmark
+  public DublinCore toDublinCore() {
+    return new MarcXml(record).toDublinCore();
+  }
+}
@@ -0,0 +1,46 @@
+package com.datazuul.metadata.marc.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.marc4j.marc.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+
+/**
+ * Parsing of a single record document with {@link MarcXmlRecord#from(java.io.InputStream)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+  @Param({ BenchmarkData.SANDBURG, BenchmarkData.BV020998142, BenchmarkData.LARGE })
+  public String document;
+
+  private byte[] xml;
+
+  @Setup
+  public void setup() {
+    xml = BenchmarkData.document(document);
+  }
+
+  @Benchmark
+  public Record parse() {
+    return MarcXmlRecord.from(new ByteArrayInputStream(xml));
+  }
+}
@@ -0,0 +1,74 @@
+package com.datazuul.metadata.marc.xml.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.marc4j.marc.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.datazuul.metadata.dublincore.DcElement;
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
+
+/**
+ * Dublin Core conversion of a parsed record computing all elements or common
+ * projections.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+  @Param({ BenchmarkData.SANDBURG, BenchmarkData.BV020998142, BenchmarkData.LARGE })
+  public String document;
+
+  /**
+   * all: all elements, search: title, creator and identifier, title: title only
+   */
+  @Param({ "all", "search", "title" })
+  public String projection;
+
+  private final MarcXml2DublinCore converter = new MarcXml2DublinCore();
+  private Record record;
+  private Set<DcElement> elements;
+
+  @Setup
+  public void setup() {
+    record = MarcXmlRecord.from(new ByteArrayInputStream(BenchmarkData.document(document)));
+    switch (projection) {
+    case "all":
+      elements = EnumSet.allOf(DcElement.class);
+      break;
+    case "search":
+      elements = EnumSet.of(DcElement.TITLE, DcElement.CREATOR, DcElement.IDENTIFIER);
+      break;
+    case "title":
+      elements = EnumSet.of(DcElement.TITLE);
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown projection " + projection);
+    }
+  }
+
+  @Benchmark
+  public DublinCore convert() {
+    return converter.convert(new MarcXml(record), elements);
+  }
+}
@@ -0,0 +1,25 @@
+package com.datazuul.metadata.dublincore;
+
+/**
+ * The Dublin Core elements of {@link DublinCore}, e.g. to select the elements
+ * a conversion should compute.
+ */
+public enum DcElement {
+
+  CREATOR("creator"), DATE("date"), DESCRIPTION("description"), IDENTIFIER("identifier"), LANGUAGE("language"),
+  PUBLISHER("publisher"), SUBJECT("subject"), TITLE("title"), TYPE("type");
+
+  private final String name;
+
+  DcElement(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return local name of the element, e.g. "creator" for
+   *         http://purl.org/dc/elements/1.1/creator
+   */
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,119 @@
+package com.datazuul.metadata.dublincore;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * <p>
+ * Writes Dublin Core records one by one as JSON Lines (one JSON object per
+ * line, see <a href="https://jsonlines.org/">https://jsonlines.org/</a>).
+ *
+ * <p>
+ * Keys are the Dublin Core element names in the order of
+ * {@link DublinCoreXmlWriter}. Repeatable elements are arrays, "language" and
+ * "type" are strings, missing elements are omitted:
+ *
+ * <pre>
+ * {"title":["Arithmetic /"],"creator":["Sandburg, Carl, 1878-1967."],"type":"text","language":"eng"}
+ * </pre>
+ */
+public class DublinCoreJsonLinesWriter implements Closeable {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Writer writer;
+  // reused for all records
+  private final StringBuilder line = new StringBuilder(1024);
+  private boolean firstMember;
+
+  public DublinCoreJsonLinesWriter(OutputStream os) {
+    writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16);
+  }
+
+  public void write(DublinCore dc) throws IOException {
+    line.setLength(0);
+    line.append('{');
+    firstMember = true;
+    appendArray("title", dc.getTitles());
+    appendArray("creator", dc.getCreators());
+    appendString("type", dc.getType());
+    appendArray("publisher", dc.getPublishers());
+    appendArray("date", dc.getDates());
+    appendString("language", dc.getLanguage());
+    appendArray("description", dc.getDescriptions());
+    appendArray("subject", dc.getSubjects());
+    appendArray("identifier", dc.getIdentifiers());
+    line.append("}\n");
+    writer.append(line);
+  }
+
+  private void appendName(String name) {
+    if (!firstMember) {
+      line.append(',');
+    }
+    firstMember = false;
+    line.append('"').append(name).append("\":");
+  }
+
+  private void appendString(String name, String value) {
+    if (value != null) {
+      appendName(name);
+      appendValue(value);
+    }
+  }
+
+  private void appendArray(String name, List<String> values) {
+    if (values != null) {
+      appendName(name);
+      line.append('[');
+      for (int i = 0; i < values.size(); i++) {
+        if (i > 0) {
+          line.append(',');
+        }
+        appendValue(values.get(i));
+      }
+      line.append(']');
+    }
+  }
+
+  private void appendValue(String value) {
+    if (value == null) {
+      line.append("null");
+      return;
+    }
+    line.append('"');
+    for (int i = 0, length = value.length(); i < length; i++) {
+      char c = value.charAt(i);
+      switch (c) {
+      case '"' -> line.append("\\\"");
+      case '\\' -> line.append("\\\\");
+      case '\n' -> line.append("\\n");
+      case '\r' -> line.append("\\r");
+      case '\t' -> line.append("\\t");
+      default -> {
+        if (c < 0x20) {
+          line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+        } else {
+          line.append(c);
+        }
+      }
+      }
+    }
+    line.append('"');
+  }
+
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
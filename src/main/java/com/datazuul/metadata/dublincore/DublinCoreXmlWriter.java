@@ -0,0 +1,127 @@
+package com.datazuul.metadata.dublincore;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * <p>
+ * Writes Dublin Core records one by one as OAI Dublin Core (oai_dc) XML: an
+ * <code>oai_dc:dcCollection</code> containing one <code>oai_dc:dc</code>
+ * element per record, elements in the order of the XSL-Transformation
+ * MARC21slim2OAIDC.xsl (see <code>marc21-sandburg.dc.xml</code>).
+ *
+ * <p>
+ * Records are streamed to the output, the collection is completed by
+ * {@link #close()}.
+ *
+ * @see <a href="http://www.openarchives.org/OAI/2.0/oai_dc.xsd">http://www.openarchives.org/OAI/2.0/oai_dc.xsd</a>
+ */
+public class DublinCoreXmlWriter implements Closeable {
+
+  public static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+  public static final String OAI_DC_NAMESPACE = "http://www.openarchives.org/OAI/2.0/oai_dc/";
+  public static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+  private static final String SCHEMA_LOCATION = OAI_DC_NAMESPACE + " http://www.openarchives.org/OAI/2.0/oai_dc.xsd";
+
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private final Writer writer;
+  private final XMLStreamWriter xml;
+
+  public DublinCoreXmlWriter(OutputStream os) throws IOException {
+    writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 16);
+    try {
+      xml = OUTPUT_FACTORY.createXMLStreamWriter(writer);
+      xml.writeStartDocument("UTF-8", "1.0");
+      newLine(0);
+      xml.writeStartElement("oai_dc", "dcCollection", OAI_DC_NAMESPACE);
+      xml.writeNamespace("oai_dc", OAI_DC_NAMESPACE);
+      xml.writeNamespace("dc", DC_NAMESPACE);
+      xml.writeNamespace("xsi", XSI_NAMESPACE);
+      xml.writeAttribute("xsi", XSI_NAMESPACE, "schemaLocation", SCHEMA_LOCATION);
+    } catch (XMLStreamException e) {
+      throw new IOException("Can not start oai_dc document", e);
+    }
+  }
+
+  public void write(DublinCore dc) throws IOException {
+    try {
+      newLine(1);
+      xml.writeStartElement("oai_dc", "dc", OAI_DC_NAMESPACE);
+      writeElements("title", dc.getTitles());
+      writeElements("creator", dc.getCreators());
+      writeElement("type", dc.getType());
+      writeElements("publisher", dc.getPublishers());
+      writeElements("date", dc.getDates());
+      writeElement("language", dc.getLanguage());
+      writeElements("description", dc.getDescriptions());
+      writeElements("subject", dc.getSubjects());
+      writeElements("identifier", dc.getIdentifiers());
+      newLine(1);
+      xml.writeEndElement();
+    } catch (XMLStreamException e) {
+      throw new IOException("Can not write oai_dc record", e);
+    }
+  }
+
+  private void writeElements(String name, List<String> values) throws XMLStreamException {
+    if (values != null) {
+      for (String value : values) {
+        writeElement(name, value);
+      }
+    }
+  }
+
+  private void writeElement(String name, String value) throws XMLStreamException {
+    if (value != null) {
+      newLine(2);
+      xml.writeStartElement("dc", name, DC_NAMESPACE);
+      xml.writeCharacters(value);
+      xml.writeEndElement();
+    }
+  }
+
+  private void newLine(int depth) throws XMLStreamException {
+    xml.writeCharacters("\n");
+    for (int i = 0; i < depth; i++) {
+      xml.writeCharacters("  ");
+    }
+  }
+
+  public void flush() throws IOException {
+    try {
+      xml.flush();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+    writer.flush();
+  }
+
+  /**
+   * Complete the collection and close the output stream.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      newLine(0);
+      xml.writeEndElement();
+      xml.writeEndDocument();
+      xml.writeCharacters("\n");
+      xml.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Can not end oai_dc document", e);
+    } finally {
+      writer.close();
+    }
+  }
+}
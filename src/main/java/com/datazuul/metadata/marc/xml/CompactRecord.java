@@ -0,0 +1,599 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Leader;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.Subfield;
+import org.marc4j.marc.VariableField;
+
+import com.datazuul.metadata.dublincore.DcElement;
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
+
+/**
+ * <p>
+ * Immutable, compact copy of a MARC record for keeping many records in memory
+ * (e.g. in a lookup service): instead of an object per field, subfield, tag
+ * and value, the record consists of a few arrays. All character data (leader,
+ * control field data, subfield data) is packed into one array, a byte per
+ * character if all characters are Latin-1 (the usual case), otherwise a char
+ * per character. Fields and subfields are int offsets into it.
+ *
+ * <p>
+ * Offers the read API of {@link MarcXml} (leader, control fields, subfields by
+ * tag and codes) and field level access by index, in record order. Tags must
+ * consist of three Latin-1 characters. Missing (null) data is kept as empty
+ * data.
+ *
+ * <p>
+ * Instances are thread safe.
+ */
+public final class CompactRecord {
+
+  private static final MarcFactory FACTORY = MarcFactory.newInstance();
+  private static final MarcXml2DublinCore DUBLIN_CORE_CONVERTER = new MarcXml2DublinCore();
+
+  // flag of control fields in the packed tag
+  private static final int CONTROL_FIELD = 1 << 24;
+  private static final int TAG_MASK = CONTROL_FIELD - 1;
+
+  private static final byte FORMAT_LATIN1 = 1;
+  private static final byte FORMAT_UTF16 = 2;
+
+  /**
+   * @return compact copy of the record
+   */
+  public static CompactRecord from(Record record) {
+    Leader leader = record.getLeader();
+    String leaderData = leader == null ? "" : leader.marshal();
+    List<VariableField> variableFields = record.getVariableFields();
+
+    // sizes and character range
+    int length = leaderData.length();
+    int subfieldCount = 0;
+    boolean latin1 = isLatin1(leaderData);
+    for (VariableField field : variableFields) {
+      if (field instanceof ControlField) {
+        String data = data(((ControlField) field).getData());
+        length += data.length();
+        latin1 &= isLatin1(data);
+        subfieldCount++;
+      } else {
+        for (Subfield subfield : ((DataField) field).getSubfields()) {
+          String data = data(subfield.getData());
+          length += data.length();
+          latin1 &= isLatin1(data);
+          subfieldCount++;
+        }
+      }
+    }
+
+    char[] chars = new char[length];
+    int[] fields = new int[variableFields.size() * 3];
+    char[] codes = new char[subfieldCount];
+    int[] starts = new int[subfieldCount + 1];
+    leaderData.getChars(0, leaderData.length(), chars, 0);
+    int position = leaderData.length();
+    int subfield = 0;
+    int field = 0;
+    for (VariableField variableField : variableFields) {
+      int tag = packTag(variableField.getTag());
+      fields[field + 2] = subfield;
+      if (variableField instanceof ControlField) {
+        fields[field] = tag | CONTROL_FIELD;
+        position = append(data(((ControlField) variableField).getData()), chars, position, starts, subfield++);
+      } else {
+        DataField dataField = (DataField) variableField;
+        fields[field] = tag;
+        fields[field + 1] = dataField.getIndicator1() << 16 | dataField.getIndicator2();
+        for (Subfield sf : dataField.getSubfields()) {
+          codes[subfield] = sf.getCode();
+          position = append(data(sf.getData()), chars, position, starts, subfield++);
+        }
+      }
+      field += 3;
+    }
+    starts[subfieldCount] = position;
+    return new CompactRecord(latin1 ? toLatin1(chars) : null, latin1 ? null : chars, leaderData.length(), fields,
+        codes, starts);
+  }
+
+  /**
+   * Read a record written by {@link #toBytes()} from the position of the
+   * buffer. The position is advanced to the end of the record.
+   *
+   * @throws IllegalArgumentException if the data is not a valid record
+   */
+  public static CompactRecord fromBytes(ByteBuffer buffer) {
+    byte format = buffer.get();
+    if (format != FORMAT_LATIN1 && format != FORMAT_UTF16) {
+      throw new IllegalArgumentException("Unknown compact record format: " + format);
+    }
+    int leaderLength = buffer.getInt();
+    int fieldCount = buffer.getInt();
+    int subfieldCount = buffer.getInt();
+    int dataLength = buffer.getInt();
+    if (leaderLength < 0 || fieldCount < 0 || subfieldCount < 0 || dataLength < leaderLength
+        || (long) fieldCount * 12 + subfieldCount * 6L + dataLength > buffer.remaining()) {
+      throw new IllegalArgumentException("Corrupt compact record");
+    }
+    int[] fields = new int[fieldCount * 3];
+    buffer.asIntBuffer().get(fields);
+    buffer.position(buffer.position() + fields.length * Integer.BYTES);
+    char[] codes = new char[subfieldCount];
+    buffer.asCharBuffer().get(codes);
+    buffer.position(buffer.position() + codes.length * Character.BYTES);
+    int[] starts = new int[subfieldCount + 1];
+    buffer.asIntBuffer().get(starts);
+    buffer.position(buffer.position() + starts.length * Integer.BYTES);
+    // subfields of field i: from its first subfield to the first of field i + 1,
+    // exactly one for a control field
+    for (int i = 0; i < fieldCount; i++) {
+      int first = fields[i * 3 + 2];
+      int end = i + 1 < fieldCount ? fields[i * 3 + 5] : subfieldCount;
+      if (first < 0 || first > end || end > subfieldCount
+          || (fields[i * 3] & CONTROL_FIELD) != 0 && end != first + 1) {
+        throw new IllegalArgumentException("Corrupt compact record: field " + i + " has subfields " + first + " to "
+            + end + " of " + subfieldCount);
+      }
+    }
+    for (int i = 0; i <= subfieldCount; i++) {
+      if (starts[i] < leaderLength || starts[i] > dataLength || i > 0 && starts[i] < starts[i - 1]) {
+        throw new IllegalArgumentException("Corrupt compact record");
+      }
+    }
+    if (format == FORMAT_LATIN1) {
+      byte[] latin1 = new byte[dataLength];
+      buffer.get(latin1);
+      return new CompactRecord(latin1, null, leaderLength, fields, codes, starts);
+    }
+    char[] chars = new char[dataLength];
+    buffer.asCharBuffer().get(chars);
+    buffer.position(buffer.position() + chars.length * Character.BYTES);
+    return new CompactRecord(null, chars, leaderLength, fields, codes, starts);
+  }
+
+  private static String data(String data) {
+    return data == null ? "" : data;
+  }
+
+  private static boolean isLatin1(String data) {
+    for (int i = 0, length = data.length(); i < length; i++) {
+      if (data.charAt(i) > 0xFF) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] toLatin1(char[] chars) {
+    byte[] bytes = new byte[chars.length];
+    for (int i = 0; i < chars.length; i++) {
+      bytes[i] = (byte) chars[i];
+    }
+    return bytes;
+  }
+
+  private static int append(String data, char[] chars, int position, int[] starts, int subfield) {
+    starts[subfield] = position;
+    data.getChars(0, data.length(), chars, position);
+    return position + data.length();
+  }
+
+  private static int packTag(String tag) {
+    if (tag == null || tag.length() != 3 || tag.charAt(0) > 0xFF || tag.charAt(1) > 0xFF || tag.charAt(2) > 0xFF) {
+      throw new IllegalArgumentException("Unsupported tag: " + tag);
+    }
+    return tag.charAt(0) << 16 | tag.charAt(1) << 8 | tag.charAt(2);
+  }
+
+  private static int tagValue(int packedTag) {
+    int c0 = (packedTag >>> 16 & 0xFF) - '0';
+    int c1 = (packedTag >>> 8 & 0xFF) - '0';
+    int c2 = (packedTag & 0xFF) - '0';
+    if (c0 < 0 || c0 > 9 || c1 < 0 || c1 > 9 || c2 < 0 || c2 > 9) {
+      return -1;
+    }
+    return c0 * 100 + c1 * 10 + c2;
+  }
+
+  private static boolean isExcluded(int tag, int[] excludedTags) {
+    for (int excludedTag : excludedTags) {
+      if (excludedTag == tag) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // character data, one of both is null
+  private final byte[] latin1;
+  private final char[] chars;
+  private final int leaderLength;
+  // per field: packed tag (and control field flag), packed indicators, first
+  // subfield
+  private final int[] fields;
+  // per subfield (one per control field for its data): code and start of the
+  // data, plus the end of the data of the last subfield
+  private final char[] codes;
+  private final int[] starts;
+  // field indexes sorted by tag value, null if the fields are sorted
+  private final int[] order;
+
+  private CompactRecord(byte[] latin1, char[] chars, int leaderLength, int[] fields, char[] codes, int[] starts) {
+    this.latin1 = latin1;
+    this.chars = chars;
+    this.leaderLength = leaderLength;
+    this.fields = fields;
+    this.codes = codes;
+    this.starts = starts;
+    this.order = sortByTag(fields);
+  }
+
+  private static int[] sortByTag(int[] fields) {
+    int fieldCount = fields.length / 3;
+    boolean sorted = true;
+    for (int i = 1; i < fieldCount && sorted; i++) {
+      sorted = tagValue(fields[(i - 1) * 3] & TAG_MASK) <= tagValue(fields[i * 3] & TAG_MASK);
+    }
+    if (sorted) {
+      return null;
+    }
+    int[] order = new int[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      // insertion sort: stable
+      int tag = tagValue(fields[i * 3] & TAG_MASK);
+      int j = i;
+      while (j > 0 && tagValue(fields[order[j - 1] * 3] & TAG_MASK) > tag) {
+        order[j] = order[j - 1];
+        j--;
+      }
+      order[j] = i;
+    }
+    return order;
+  }
+
+  private char charAt(int index) {
+    return latin1 != null ? (char) (latin1[index] & 0xFF) : chars[index];
+  }
+
+  private String string(int start, int end) {
+    if (latin1 != null) {
+      return new String(latin1, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+    return new String(chars, start, end - start);
+  }
+
+  private boolean isBlank(int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!Character.isWhitespace(charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return copy of the record as marc4j record
+   */
+  public Record toRecord() {
+    Record record = leaderLength == 0 ? FACTORY.newRecord() : FACTORY.newRecord(getLeader());
+    for (int field = 0, fieldCount = getFieldCount(); field < fieldCount; field++) {
+      if (isControlField(field)) {
+        record.addVariableField(FACTORY.newControlField(getTag(field), getData(field)));
+      } else {
+        DataField dataField = FACTORY.newDataField(getTag(field), getIndicator1(field), getIndicator2(field));
+        for (int i = 0, count = getSubfieldCount(field); i < count; i++) {
+          dataField.addSubfield(FACTORY.newSubfield(getSubfieldCode(field, i), getSubfieldData(field, i)));
+        }
+        record.addVariableField(dataField);
+      }
+    }
+    return record;
+  }
+
+  /**
+   * @return serialized form of the record (its arrays as they are), see
+   *         {@link #fromBytes(ByteBuffer)}
+   */
+  public byte[] toBytes() {
+    int dataLength = getDataLength();
+    int size = 1 + 4 * Integer.BYTES + fields.length * Integer.BYTES + codes.length * Character.BYTES
+        + starts.length * Integer.BYTES + dataLength * (latin1 != null ? 1 : Character.BYTES);
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.put(latin1 != null ? FORMAT_LATIN1 : FORMAT_UTF16);
+    buffer.putInt(leaderLength).putInt(fields.length / 3).putInt(codes.length).putInt(dataLength);
+    buffer.asIntBuffer().put(fields);
+    buffer.position(buffer.position() + fields.length * Integer.BYTES);
+    buffer.asCharBuffer().put(codes);
+    buffer.position(buffer.position() + codes.length * Character.BYTES);
+    buffer.asIntBuffer().put(starts);
+    buffer.position(buffer.position() + starts.length * Integer.BYTES);
+    if (latin1 != null) {
+      buffer.put(latin1);
+    } else {
+      buffer.asCharBuffer().put(chars);
+    }
+    return buffer.array();
+  }
+
+  /**
+   * @return leader, null if the record has none
+   */
+  public String getLeader() {
+    return leaderLength == 0 ? null : string(0, leaderLength);
+  }
+
+  /**
+   * Get character in leader element on given position. (Index starts at 0).
+   * 
+   * @return blank if the leader is shorter
+   */
+  public char getLeader(int pos) {
+    return pos >= 0 && pos < leaderLength ? charAt(pos) : ' ';
+  }
+
+  /**
+   * leader6: type of record, see {@link MarcXml#getTypeOfRecord()}.
+   */
+  public char getTypeOfRecord() {
+    return getLeader(6);
+  }
+
+  /**
+   * @return number of control and data fields
+   */
+  public int getFieldCount() {
+    return fields.length / 3;
+  }
+
+  public String getTag(int field) {
+    int tag = fields[field * 3] & TAG_MASK;
+    int tagValue = tagValue(tag);
+    if (tagValue >= 0) {
+      return TagIndex.tagString(tagValue);
+    }
+    return new String(new char[] { (char) (tag >>> 16), (char) (tag >>> 8 & 0xFF), (char) (tag & 0xFF) });
+  }
+
+  /**
+   * @return numeric value of the tag (e.g. 245), -1 for non-numeric tags
+   */
+  public int getTagValue(int field) {
+    return tagValue(fields[field * 3] & TAG_MASK);
+  }
+
+  public boolean isControlField(int field) {
+    return (fields[field * 3] & CONTROL_FIELD) != 0;
+  }
+
+  /**
+   * @return first indicator of a data field
+   */
+  public char getIndicator1(int field) {
+    return (char) (fields[field * 3 + 1] >>> 16);
+  }
+
+  /**
+   * @return second indicator of a data field
+   */
+  public char getIndicator2(int field) {
+    return (char) fields[field * 3 + 1];
+  }
+
+  /**
+   * @return data of a control field
+   */
+  public String getData(int field) {
+    if (!isControlField(field)) {
+      throw new IllegalArgumentException("Not a control field: " + field);
+    }
+    int subfield = fields[field * 3 + 2];
+    return string(starts[subfield], starts[subfield + 1]);
+  }
+
+  private int firstSubfield(int field) {
+    return fields[field * 3 + 2];
+  }
+
+  private int endSubfield(int field) {
+    return field + 1 < getFieldCount() ? fields[(field + 1) * 3 + 2] : codes.length;
+  }
+
+  /**
+   * @return number of subfields of a data field, 0 for control fields
+   */
+  public int getSubfieldCount(int field) {
+    return isControlField(field) ? 0 : endSubfield(field) - firstSubfield(field);
+  }
+
+  public char getSubfieldCode(int field, int index) {
+    return codes[subfield(field, index)];
+  }
+
+  public String getSubfieldData(int field, int index) {
+    int subfield = subfield(field, index);
+    return string(starts[subfield], starts[subfield + 1]);
+  }
+
+  private int subfield(int field, int index) {
+    if (index < 0 || index >= getSubfieldCount(field)) {
+      throw new IndexOutOfBoundsException("No subfield " + index + " in field " + field);
+    }
+    return firstSubfield(field) + index;
+  }
+
+  /**
+   * Same as {@link SubfieldSelector#concatenate(DataField, StringBuilder, StringPool)}
+   * for a data field of this record.
+   */
+  public String concatenate(int field, SubfieldSelector selector, StringBuilder buffer, StringPool pool) {
+    buffer.setLength(0);
+    boolean appended = false;
+    for (int subfield = firstSubfield(field), end = endSubfield(field); subfield < end; subfield++) {
+      if (selector.matches(codes[subfield])) {
+        int start = starts[subfield];
+        int dataEnd = starts[subfield + 1];
+        if (!isBlank(start, dataEnd)) {
+          for (int i = start; i < dataEnd; i++) {
+            buffer.append(charAt(i));
+          }
+          buffer.append(' ');
+          appended = true;
+        }
+      }
+    }
+    return appended ? MarcXml.trimmedString(buffer, pool) : "";
+  }
+
+  /**
+   * @return data of first control field with given tag, null if no such field
+   */
+  public String getControlFieldByTag(String tag) {
+    int packedTag = packTag(tag);
+    for (int field = 0, fieldCount = getFieldCount(); field < fieldCount; field++) {
+      if (fields[field * 3] == (packedTag | CONTROL_FIELD)) {
+        return getData(field);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return control number (001), null if none
+   */
+  public String getControlNumber() {
+    return getControlFieldByTag("001");
+  }
+
+  /**
+   * Same as {@link MarcXml#getSubfieldsByTagAndCodes(String, String)}.
+   */
+  public List<String> getSubfieldsByTagAndCodes(String tag, String codes) {
+    int tagValue = MarcXml.tagValue(tag);
+    if (tagValue >= 0) {
+      return getSubfieldsByTagRangeAndCodes(tagValue, tagValue, codes);
+    }
+    int packedTag = packTag(tag);
+    SubfieldSelector selector = SubfieldSelector.of(codes);
+    StringBuilder buffer = new StringBuilder();
+    List<String> result = null;
+    for (int field = 0, fieldCount = getFieldCount(); field < fieldCount; field++) {
+      if (fields[field * 3] == packedTag) {
+        if (result == null) {
+          result = new ArrayList<>();
+        }
+        result.add(concatenate(field, selector, buffer, null));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Same as
+   * {@link MarcXml#getSubfieldsByTagRangeAndCodes(int, int, String, int...)}:
+   * values of the data fields with a tag in the given range, ordered by tag,
+   * null if there is no such field.
+   */
+  public List<String> getSubfieldsByTagRangeAndCodes(int fromTag, int toTag, String codes, int... excludedTags) {
+    SubfieldSelector selector = SubfieldSelector.of(codes);
+    StringBuilder buffer = new StringBuilder();
+    List<String> result = null;
+    int fieldCount = getFieldCount();
+    for (int i = firstWithTagValue(fromTag); i < fieldCount; i++) {
+      int field = order == null ? i : order[i];
+      int tag = getTagValue(field);
+      if (tag > toTag) {
+        break;
+      }
+      if (!isControlField(field) && !isExcluded(tag, excludedTags)) {
+        if (result == null) {
+          result = new ArrayList<>();
+        }
+        result.add(concatenate(field, selector, buffer, null));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return position of the first field with a tag value &gt;= the given one in
+   *         tag order
+   */
+  private int firstWithTagValue(int tagValue) {
+    int low = 0;
+    int high = getFieldCount();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int field = order == null ? middle : order[middle];
+      if (getTagValue(field) < tagValue) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Same as {@link MarcXml#getIdentifiers()}.
+   */
+  public Set<String> getIdentifiers() {
+    Set<String> identifiers = new HashSet<>();
+    int fieldCount = getFieldCount();
+    for (int i = firstWithTagValue(35); i < fieldCount; i++) {
+      int field = order == null ? i : order[i];
+      if (getTagValue(field) != 35) {
+        break;
+      }
+      if (isControlField(field)) {
+        continue;
+      }
+      String identifier = firstSubfieldData(field, 'a');
+      if (identifier == null) {
+        identifier = firstSubfieldData(field, '9');
+      }
+      if (identifier != null) {
+        identifiers.add(identifier);
+      }
+    }
+    return identifiers;
+  }
+
+  private String firstSubfieldData(int field, char code) {
+    for (int subfield = firstSubfield(field), end = endSubfield(field); subfield < end; subfield++) {
+      if (codes[subfield] == code) {
+        return string(starts[subfield], starts[subfield + 1]);
+      }
+    }
+    return null;
+  }
+
+  public DublinCore toDublinCore() {
+    return DUBLIN_CORE_CONVERTER.convert(this);
+  }
+
+  /**
+   * @param elements elements to compute, all other elements are null
+   */
+  public DublinCore toDublinCore(Set<DcElement> elements) {
+    return DUBLIN_CORE_CONVERTER.convert(this, elements);
+  }
+
+  /**
+   * @return number of characters of all data (leader, control fields,
+   *         subfields)
+   */
+  public int getDataLength() {
+    return latin1 != null ? latin1.length : chars.length;
+  }
+}
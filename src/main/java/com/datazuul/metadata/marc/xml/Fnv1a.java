@@ -0,0 +1,53 @@
+package com.datazuul.metadata.marc.xml;
+
+/**
+ * <p>
+ * 64 bit FNV-1a hash of characters, used for record fingerprints and
+ * identifier keys:
+ *
+ * <pre>
+ * long hash = Fnv1a.hash(Fnv1a.OFFSET_BASIS, value, 0, value.length());
+ * </pre>
+ *
+ * <p>
+ * {@link #mix(long)} (the finalizer of MurmurHash3) spreads the bits of a hash
+ * used as a hash table key, whose low bits select the slot.
+ */
+public final class Fnv1a {
+
+  public static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  public static final long PRIME = 0x100000001b3L;
+
+  private Fnv1a() {
+  }
+
+  /**
+   * @return hash of the value, mixed for use as a hash table key
+   */
+  public static long hash(CharSequence value) {
+    return mix(hash(OFFSET_BASIS, value, 0, value.length()));
+  }
+
+  public static long hash(long hash, char c) {
+    return (hash ^ c) * PRIME;
+  }
+
+  /**
+   * @return hash continued with the characters in [start, end)
+   */
+  public static long hash(long hash, CharSequence chars, int start, int end) {
+    for (int i = start; i < end; i++) {
+      hash = (hash ^ chars.charAt(i)) * PRIME;
+    }
+    return hash;
+  }
+
+  public static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
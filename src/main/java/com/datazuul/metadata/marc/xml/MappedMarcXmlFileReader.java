@@ -0,0 +1,439 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.marc4j.MarcException;
+import org.marc4j.marc.Record;
+
+/**
+ * <p>
+ * Reads a (large) MARC-XML collection file in parallel: the memory mapped file
+ * is cut at <code>&lt;record&gt;</code> (or <code>&lt;prefix:record&gt;</code>)
+ * start tags into chunks of about <code>chunkSize</code> bytes, which are
+ * parsed concurrently, each by its own {@link org.marc4j.MarcXmlReader}. Each
+ * chunk is parsed as a document of its own, made of the original header (XML
+ * declaration and collection start tag with the namespace declarations), the
+ * records of the chunk and the collection end tag.
+ *
+ * <p>
+ * Records are streamed in file order. At most <code>parallelism</code> chunks
+ * are parsed ahead of the consumer, each with a bounded number of parsed
+ * records waiting for the consumer, so memory usage depends neither on the
+ * chunk size nor on the file size. Chunks are mapped piecewise while they are
+ * parsed, so single records (or single record documents) may exceed 2 GB.
+ *
+ * <p>
+ * Record start tags are searched byte-wise, so the file must be in an ASCII
+ * compatible encoding (e.g. UTF-8) and must not contain record start tags in
+ * comments or CDATA sections.
+ */
+public class MappedMarcXmlFileReader {
+
+  public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+  private static final int SEARCH_WINDOW = 1024 * 1024;
+  // longest start tag name to be recognized, windows overlap by this
+  private static final int MAX_NAME_LENGTH = 128;
+  // largest part of a chunk mapped at a time
+  private static final int MAP_WINDOW = 64 * 1024 * 1024;
+  // parsed records of a chunk waiting for the consumer
+  private static final int QUEUE_CAPACITY = 256;
+  // queued after the last record of a chunk
+  private static final Object END = new Object();
+
+  private final Path file;
+  private final int chunkSize;
+  private final int parallelism;
+
+  public MappedMarcXmlFileReader(Path file) {
+    this(file, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+  }
+
+  public MappedMarcXmlFileReader(Path file, int chunkSize, int parallelism) {
+    if (chunkSize < 1 || parallelism < 1) {
+      throw new IllegalArgumentException("chunkSize and parallelism must be positive");
+    }
+    this.file = file;
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Stream of all records of the file in file order. Close the stream to stop
+   * parsing before the end.
+   */
+  public Stream<Record> stream() throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      ChunkedRecordIterator iterator = new ChunkedRecordIterator(channel, split(channel));
+      return StreamSupport
+          .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+          .onClose(iterator::close);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Cut the file into chunks of whole records.
+   */
+  List<Chunk> split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, SEARCH_WINDOW));
+    String rootName = rootElementName(head);
+    if (rootName == null) {
+      return Collections.emptyList();
+    }
+    if (isRecordName(rootName)) {
+      // single record document
+      return List.of(new Chunk(0, size, new byte[0], new byte[0]));
+    }
+    long firstRecord = findRecordStart(channel, 0, size);
+    if (firstRecord < 0) {
+      return Collections.emptyList();
+    }
+    if (firstRecord > Integer.MAX_VALUE - 8) {
+      throw new MarcException("Header of " + file + " too large: " + firstRecord + " bytes");
+    }
+    byte[] header = new byte[(int) firstRecord];
+    readFully(channel, ByteBuffer.wrap(header), 0);
+    byte[] footer = ("</" + rootName + ">").getBytes(StandardCharsets.UTF_8);
+    long end = findLast(channel, size, footer, firstRecord);
+    if (end < 0) {
+      throw new MarcException("Missing end tag </" + rootName + "> in " + file);
+    }
+
+    List<Chunk> chunks = new ArrayList<>();
+    long start = firstRecord;
+    while (start < end) {
+      long next = start + chunkSize < end ? findRecordStart(channel, start + chunkSize, end) : -1;
+      if (next < 0) {
+        next = end;
+      }
+      chunks.add(new Chunk(start, next, header, footer));
+      start = next;
+    }
+    return chunks;
+  }
+
+  /**
+   * @return qualified name of the first element of the document, null if none
+   */
+  private static String rootElementName(ByteBuffer buffer) {
+    for (int i = 0; i < buffer.limit() - 1; i++) {
+      if (buffer.get(i) == '<' && isNameStart(buffer.get(i + 1))) {
+        return name(buffer, i + 1, buffer.limit());
+      }
+    }
+    return null;
+  }
+
+  private static boolean isRecordName(String name) {
+    return name.equals("record") || name.endsWith(":record");
+  }
+
+  private static boolean isNameStart(byte b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+  }
+
+  private static boolean isNameChar(byte b) {
+    return isNameStart(b) || (b >= '0' && b <= '9') || b == '-' || b == '.' || b == ':';
+  }
+
+  /**
+   * @return name starting at given position, null if not terminated within the
+   *         limit
+   */
+  private static String name(ByteBuffer buffer, int from, int limit) {
+    int i = from;
+    while (i < limit && isNameChar(buffer.get(i))) {
+      i++;
+    }
+    if (i >= limit) {
+      return null;
+    }
+    byte[] name = new byte[i - from];
+    buffer.get(from, name);
+    return new String(name, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * @return position of the first record start tag in [from, to), -1 if none
+   */
+  private static long findRecordStart(FileChannel channel, long from, long to) throws IOException {
+    long windowStart = from;
+    while (windowStart < to) {
+      int windowSize = (int) Math.min(SEARCH_WINDOW + MAX_NAME_LENGTH, channel.size() - windowStart);
+      MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+      int searchLimit = (int) Math.min(Math.min(SEARCH_WINDOW, windowSize), to - windowStart);
+      for (int i = 0; i < searchLimit; i++) {
+        if (window.get(i) == '<' && i + 1 < windowSize && isNameStart(window.get(i + 1))) {
+          String name = name(window, i + 1, Math.min(windowSize, i + 1 + MAX_NAME_LENGTH));
+          if (name != null && isRecordName(name)) {
+            return windowStart + i;
+          }
+        }
+      }
+      windowStart += SEARCH_WINDOW;
+    }
+    return -1;
+  }
+
+  /**
+   * @return position of the last occurrence of given bytes after
+   *         <code>from</code>, -1 if none
+   */
+  private static long findLast(FileChannel channel, long size, byte[] bytes, long from) throws IOException {
+    long windowEnd = size;
+    while (windowEnd > from) {
+      long windowStart = Math.max(from, windowEnd - SEARCH_WINDOW);
+      int windowSize = (int) Math.min(windowEnd - windowStart + bytes.length, size - windowStart);
+      MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+      for (int i = windowSize - bytes.length; i >= 0; i--) {
+        if (matches(window, i, bytes)) {
+          return windowStart + i;
+        }
+      }
+      windowEnd = windowStart;
+    }
+    return -1;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, position);
+      if (n < 0) {
+        throw new EOFException("Unexpected end of file at " + position);
+      }
+      position += n;
+    }
+  }
+
+  private static boolean matches(ByteBuffer buffer, int pos, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (buffer.get(pos + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Byte range [start, end) of the file containing whole records, parsed with
+   * the given header and footer.
+   */
+  static final class Chunk {
+
+    final long start;
+    final long end;
+    private final byte[] header;
+    private final byte[] footer;
+
+    Chunk(long start, long end, byte[] header, byte[] footer) {
+      this.start = start;
+      this.end = end;
+      this.header = header;
+      this.footer = footer;
+    }
+
+    /**
+     * Put the records of the chunk into the queue, followed by {@link #END} or
+     * the failure. Blocks while the queue is full.
+     */
+    void parse(FileChannel channel, BlockingQueue<Object> records) throws InterruptedException {
+      InputStream is = new SequenceInputStream(Collections.enumeration(List.of(new ByteArrayInputStream(header),
+          new MappedRangeInputStream(channel, start, end), new ByteArrayInputStream(footer))));
+      try (MarcXmlRecordIterator iterator = new MarcXmlRecordIterator(is)) {
+        while (iterator.hasNext()) {
+          records.put(iterator.next());
+        }
+      } catch (RuntimeException | Error e) {
+        records.put(e);
+        return;
+      }
+      records.put(END);
+    }
+  }
+
+  /**
+   * Iterates the records of all chunks in order, parsing up to
+   * <code>parallelism</code> chunks ahead.
+   */
+  private final class ChunkedRecordIterator implements Iterator<Record> {
+
+    private final FileChannel channel;
+    private final Iterator<Chunk> chunks;
+    private final ExecutorService executor;
+    // parsed records of the chunks being parsed, in file order
+    private final Deque<BlockingQueue<Object>> parsing = new ArrayDeque<>();
+    private final List<Future<?>> tasks = new ArrayList<>();
+    private Record next;
+
+    ChunkedRecordIterator(FileChannel channel, List<Chunk> chunks) {
+      this.channel = channel;
+      this.chunks = chunks.iterator();
+      this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+        Thread thread = new Thread(runnable, "marc-xml-chunk-parser");
+        thread.setDaemon(true);
+        return thread;
+      });
+      submit();
+    }
+
+    private void submit() {
+      while (parsing.size() < parallelism && chunks.hasNext()) {
+        Chunk chunk = chunks.next();
+        BlockingQueue<Object> records = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        tasks.removeIf(Future::isDone);
+        tasks.add(executor.submit(() -> {
+          chunk.parse(channel, records);
+          return null;
+        }));
+        parsing.add(records);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next != null) {
+        return true;
+      }
+      while (!parsing.isEmpty()) {
+        Object item = take(parsing.peek());
+        if (item == END) {
+          parsing.poll();
+          submit();
+        } else if (item instanceof Record) {
+          next = (Record) item;
+          return true;
+        } else {
+          close();
+          if (item instanceof Error) {
+            throw (Error) item;
+          }
+          throw (RuntimeException) item;
+        }
+      }
+      close();
+      return false;
+    }
+
+    @Override
+    public Record next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Record record = next;
+      next = null;
+      return record;
+    }
+
+    private Object take(BlockingQueue<Object> records) {
+      try {
+        return records.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new MarcException("Interrupted while parsing " + file, e);
+      }
+    }
+
+    void close() {
+      tasks.forEach(task -> task.cancel(true));
+      tasks.clear();
+      parsing.clear();
+      executor.shutdownNow();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Reads the byte range [start, end) of a file, mapping at most
+   * {@link #MAP_WINDOW} bytes at a time.
+   */
+  private static final class MappedRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    // start of the next window
+    private long position;
+    private ByteBuffer window = ByteBuffer.allocate(0);
+
+    MappedRangeInputStream(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.position = start;
+      this.end = end;
+    }
+
+    /**
+     * @return false at the end of the range
+     */
+    private boolean fill() throws IOException {
+      if (window.hasRemaining()) {
+        return true;
+      }
+      if (position >= end) {
+        return false;
+      }
+      int size = (int) Math.min(MAP_WINDOW, end - position);
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      position += size;
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return fill() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int n = Math.min(len, window.remaining());
+      window.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, window.remaining() + end - position);
+    }
+  }
+}
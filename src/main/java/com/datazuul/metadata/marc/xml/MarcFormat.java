@@ -0,0 +1,59 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Serialization formats of MARC records accepted by the readers of this
+ * library.
+ */
+public enum MarcFormat {
+
+  /**
+   * MARC 21 XML (MARCXML), a single <code>&lt;record&gt;</code> or a
+   * <code>&lt;collection&gt;</code>.
+   */
+  MARC_XML,
+
+  /**
+   * Binary MARC (ISO 2709, "MARC transmission format"): records starting with
+   * their five digit length.
+   */
+  ISO_2709;
+
+  /**
+   * <p>
+   * Detect the format of the given source from its first bytes: ISO 2709 if
+   * it starts with five digits (the record length), otherwise MARC-XML (also
+   * for unknown content, so that the XML parser reports the error).
+   *
+   * <p>
+   * The stream must support {@link InputStream#mark(int)}, it is reset to its
+   * current position.
+   */
+  public static MarcFormat detect(InputStream is) throws IOException {
+    if (!is.markSupported()) {
+      throw new IllegalArgumentException("Stream does not support mark/reset");
+    }
+    byte[] probe = new byte[5];
+    is.mark(probe.length);
+    int length = 0;
+    try {
+      int n;
+      while (length < probe.length && (n = is.read(probe, length, probe.length - length)) >= 0) {
+        length += n;
+      }
+    } finally {
+      is.reset();
+    }
+    if (length < probe.length) {
+      return MARC_XML;
+    }
+    for (byte b : probe) {
+      if (b < '0' || b > '9') {
+        return MARC_XML;
+      }
+    }
+    return ISO_2709;
+  }
+}
@@ -1,17 +1,28 @@
 package com.datazuul.metadata.marc.xml;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.marc4j.marc.ControlField;
 import org.marc4j.marc.DataField;
 import org.marc4j.marc.Record;
 import org.marc4j.marc.Subfield;
+import org.marc4j.marc.VariableField;
 
+import com.datazuul.metadata.dublincore.DcElement;
 import com.datazuul.metadata.dublincore.DublinCore;
 import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
+import com.datazuul.metadata.marc.xml.fixed.Field006View;
+import com.datazuul.metadata.marc.xml.fixed.Field007View;
+import com.datazuul.metadata.marc.xml.fixed.Field008View;
+import com.datazuul.metadata.marc.xml.fixed.LeaderView;
+import com.datazuul.metadata.marc.xml.metrics.Metrics;
+import com.datazuul.metadata.marc.xml.metrics.MetricsListener;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
 
 /**
  * MARC standards: https://www.loc.gov/marc/<br>
@@ -26,6 +37,8 @@ import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
  */
 public class MarcXml {
 
+  private static final MarcXml2DublinCore DUBLIN_CORE_CONVERTER = new MarcXml2DublinCore();
+
   public static String concatenate(List<Subfield> subfields, String delimiter) {
     StringBuilder sb = new StringBuilder();
     for (Subfield subfield : subfields) {
@@ -34,42 +47,284 @@ public class MarcXml {
         sb.append(data).append(delimiter);
       }
     }
-    String result = sb.toString().trim();
-    return result;
+    return trimmedString(sb);
+  }
+
+  /**
+   * Same as <code>sb.toString().trim()</code>, without the intermediate String.
+   */
+  public static String trimmedString(CharSequence sb) {
+    return trimmedString(sb, null);
+  }
+
+  /**
+   * Same as {@link #trimmedString(CharSequence)}, returning the pooled instance
+   * of the value if a pool is given.
+   */
+  public static String trimmedString(CharSequence sb, StringPool pool) {
+    int start = 0;
+    int end = sb.length();
+    while (start < end && sb.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && sb.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return pool == null ? sb.subSequence(start, end).toString() : pool.intern(sb, start, end);
+  }
+
+  /**
+   * @return numeric value of a three digit tag (e.g. 245 for "245"), -1 for all
+   *         other tags
+   */
+  public static int tagValue(String tag) {
+    return TagIndex.tagValue(tag);
+  }
+
+  /**
+   * @return shared instance of the three digit tag with the given value
+   *         (0-999), e.g. "245" for 245
+   */
+  public static String tagString(int tagValue) {
+    return TagIndex.tagString(tagValue);
   }
 
   private final Record record;
 
+  /**
+   * Index of fields by tag, created on first access. Changes made to the record
+   * afterwards are not reflected by the tag based accessors.
+   */
+  private volatile TagIndex tagIndex;
+
+  /**
+   * Leader and fixed length control fields, decoded on first access (same
+   * restriction as for the tag index).
+   */
+  private volatile FixedFields fixedFields;
+
   public MarcXml(Record record) {
     this.record = record;
   }
 
+  private TagIndex getTagIndex() {
+    TagIndex index = tagIndex;
+    if (index == null) {
+      MetricsListener listener = Metrics.getListener();
+      long start = listener == null ? 0 : System.nanoTime();
+      index = new TagIndex(record);
+      tagIndex = index;
+      if (listener != null) {
+        listener.timed(Stage.INDEX, System.nanoTime() - start);
+      }
+    }
+    return index;
+  }
+
+  private FixedFields getFixedFields() {
+    FixedFields fields = fixedFields;
+    if (fields == null) {
+      MetricsListener listener = Metrics.getListener();
+      long start = listener == null ? 0 : System.nanoTime();
+      fields = new FixedFields(record);
+      fixedFields = fields;
+      if (listener != null) {
+        listener.timed(Stage.INDEX, System.nanoTime() - start);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * @return data of first control field with given tag, null if no such field
+   */
   public String getControlFieldByTag(String tag) {
-    return record.getControlFields().stream().filter(cf -> tag.equals(cf.getTag())).findFirst().orElse(null).getData();
+    int tagValue = TagIndex.tagValue(tag);
+    if (tagValue < 0) {
+      ControlField controlField = record.getControlFields().stream().filter(cf -> tag.equals(cf.getTag()))
+          .findFirst().orElse(null);
+      return controlField == null ? null : controlField.getData();
+    }
+    TagIndex index = getTagIndex();
+    for (int i = index.from(tagValue), to = index.to(tagValue); i < to; i++) {
+      VariableField field = index.field(i);
+      if (field instanceof ControlField) {
+        return ((ControlField) field).getData();
+      }
+    }
+    return null;
   }
 
   public List<DataField> getDataFieldsByTag(String tag) {
-    List<DataField> dataFields = record.getDataFields();
-    List<DataField> matchingDataFields = dataFields.stream().filter(df -> tag.equals(df.getTag()))
-        .collect(Collectors.toList());
+    int tagValue = TagIndex.tagValue(tag);
+    if (tagValue < 0) {
+      List<DataField> dataFields = record.getDataFields();
+      List<DataField> matchingDataFields = dataFields.stream().filter(df -> tag.equals(df.getTag()))
+          .collect(Collectors.toList());
+      return matchingDataFields;
+    }
+    return getDataFieldsByTagRange(tagValue, tagValue);
+  }
+
+  /**
+   * Get all data fields with a tag in the given range, ordered by tag.
+   * 
+   * @param fromTag      lowest tag (inclusive), e.g. 500
+   * @param toTag        highest tag (inclusive), e.g. 599
+   * @param excludedTags tags in the range to be skipped
+   */
+  public List<DataField> getDataFieldsByTagRange(int fromTag, int toTag, int... excludedTags) {
+    TagIndex index = getTagIndex();
+    int from = index.from(fromTag);
+    int to = index.to(toTag);
+    if (from >= to) {
+      return Collections.emptyList();
+    }
+    List<DataField> matchingDataFields = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      VariableField field = index.field(i);
+      if (field instanceof DataField && !isExcluded(index.tag(i), excludedTags)) {
+        matchingDataFields.add((DataField) field);
+      }
+    }
     return matchingDataFields;
   }
 
+  private static boolean isExcluded(int tag, int[] excludedTags) {
+    for (int excludedTag : excludedTags) {
+      if (excludedTag == tag) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Get character in leader element on given position. (Index starts at 0).
+   *
+   * @throws ArrayIndexOutOfBoundsException if the position is outside of the
+   *                                        leader
    */
   public char getLeader(int pos) {
-    char[] leaderChars = record.getLeader().toString().toCharArray();
-    return leaderChars[pos];
+    LeaderView leader = getFixedFields().leader;
+    if (pos < 0 || pos >= leader.length()) {
+      throw new ArrayIndexOutOfBoundsException(pos);
+    }
+    return leader.charAt(pos);
+  }
+
+  public LeaderView getLeaderView() {
+    return getFixedFields().leader;
+  }
+
+  /**
+   * @return all 006 fields (additional material characteristics), empty if none
+   */
+  public List<Field006View> getField006() {
+    return getFixedFields().field006;
+  }
+
+  /**
+   * @return all 007 fields (physical description), empty if none
+   */
+  public List<Field007View> getField007() {
+    return getFixedFields().field007;
+  }
+
+  /**
+   * @return first 008 field, null if none
+   */
+  public Field008View getField008() {
+    return getFixedFields().field008;
+  }
+
+  /**
+   * leader7: https://www.loc.gov/marc/bibliographic/concise/bdleader.html
+   * Bibliographic level.
+   */
+  public char getBibliographicLevel() {
+    return getLeaderView().getBibliographicLevel();
+  }
+
+  /**
+   * @return 008/07-10 (Date 1), null if no 008 field
+   */
+  public String getDate1() {
+    Field008View field008 = getField008();
+    return field008 == null ? null : field008.getDate1();
+  }
+
+  /**
+   * @return 008/11-14 (Date 2), null if no 008 field
+   */
+  public String getDate2() {
+    Field008View field008 = getField008();
+    return field008 == null ? null : field008.getDate2();
+  }
+
+  /**
+   * @return 008/15-17 (Place of publication), null if no 008 field
+   */
+  public String getPlaceOfPublication() {
+    Field008View field008 = getField008();
+    return field008 == null ? null : field008.getPlaceOfPublication();
+  }
+
+  /**
+   * @return 008/35-37 (Language), null if no 008 field
+   */
+  public String getLanguage() {
+    Field008View field008 = getField008();
+    return field008 == null ? null : field008.getLanguage();
+  }
+
+  /**
+   * @return form of item of field 008 (position depending on the type of
+   *         material), blank if no 008 field
+   */
+  public char getFormOfItem() {
+    Field008View field008 = getField008();
+    return field008 == null ? ' ' : field008.getFormOfItem();
   }
 
   public List<String> getSubfieldsByTagAndCodes(String tag, String codes) {
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return getSubfieldsByCodes(getDataFieldsByTag(tag), codes);
+    }
+    long start = System.nanoTime();
+    try {
+      return getSubfieldsByCodes(getDataFieldsByTag(tag), codes);
+    } finally {
+      listener.timed(Stage.ACCESS, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Same as {@link #getSubfieldsByTagAndCodes(String, String)} for all data
+   * fields with a tag in the given range, see
+   * {@link #getDataFieldsByTagRange(int, int, int...)}.
+   */
+  public List<String> getSubfieldsByTagRangeAndCodes(int fromTag, int toTag, String codes, int... excludedTags) {
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return getSubfieldsByCodes(getDataFieldsByTagRange(fromTag, toTag, excludedTags), codes);
+    }
+    long start = System.nanoTime();
+    try {
+      return getSubfieldsByCodes(getDataFieldsByTagRange(fromTag, toTag, excludedTags), codes);
+    } finally {
+      listener.timed(Stage.ACCESS, System.nanoTime() - start);
+    }
+  }
+
+  private List<String> getSubfieldsByCodes(List<DataField> dataFields, String codes) {
+    SubfieldSelector selector = SubfieldSelector.of(codes);
+    StringBuilder buffer = new StringBuilder();
     List<String> result = null;
-    List<DataField> dataFields = getDataFieldsByTag(tag);
     for (DataField dataField : dataFields) {
-      List<Subfield> subfields = dataField.getSubfields(codes);
       // inside one datafield: concatenate subfields data
-      String data = concatenate(subfields, " ");
+      String data = selector.concatenate(dataField, buffer);
 
       // add subfields data of datafield to list
       if (result == null) {
@@ -112,20 +367,18 @@ public class MarcXml {
 
   public Set<String> getIdentifiers() {
     Set<String> identifiers = new HashSet<>();
-    List<DataField> dataFields = record.getDataFields();
+    List<DataField> dataFields = getDataFieldsByTagRange(35, 35);
     for (DataField dataField : dataFields) {
-      if ("035".equals(dataField.getTag())) {
-        Subfield subfield = dataField.getSubfield('a');
+      Subfield subfield = dataField.getSubfield('a');
+      if (subfield != null) {
+        String identifier = subfield.getData();
+        identifiers.add(identifier);
+      } else {
+        // "9" happened to be in LOC data: https://lccn.loc.gov/12027826/marcxml
+        subfield = dataField.getSubfield('9');
         if (subfield != null) {
           String identifier = subfield.getData();
           identifiers.add(identifier);
-        } else {
-          // "9" happened to be in LOC data: https://lccn.loc.gov/12027826/marcxml
-          subfield = dataField.getSubfield('9');
-          if (subfield != null) {
-            String identifier = subfield.getData();
-            identifiers.add(identifier);
-          }
         }
       }
     }
@@ -146,7 +399,47 @@ public class MarcXml {
   }
 
   public DublinCore toDublinCore() {
-    MarcXml2DublinCore marcXml2DublinCore = new MarcXml2DublinCore(this);
-    return marcXml2DublinCore.convert();
+    return DUBLIN_CORE_CONVERTER.convert(this);
+  }
+
+  /**
+   * @param elements elements to compute, all other elements are null
+   */
+  public DublinCore toDublinCore(Set<DcElement> elements) {
+    return DUBLIN_CORE_CONVERTER.convert(this, elements);
+  }
+
+  private static final class FixedFields {
+
+    final LeaderView leader;
+    final List<Field006View> field006;
+    final List<Field007View> field007;
+    final Field008View field008;
+
+    FixedFields(Record record) {
+      leader = new LeaderView(record.getLeader() == null ? null : record.getLeader().toString());
+      List<Field006View> list006 = null;
+      List<Field007View> list007 = null;
+      Field008View view008 = null;
+      for (ControlField controlField : record.getControlFields()) {
+        String tag = controlField.getTag();
+        if ("006".equals(tag)) {
+          if (list006 == null) {
+            list006 = new ArrayList<>(1);
+          }
+          list006.add(new Field006View(controlField.getData()));
+        } else if ("007".equals(tag)) {
+          if (list007 == null) {
+            list007 = new ArrayList<>(1);
+          }
+          list007.add(new Field007View(controlField.getData()));
+        } else if ("008".equals(tag) && view008 == null) {
+          view008 = new Field008View(controlField.getData(), leader.getMaterialType());
+        }
+      }
+      field006 = list006 == null ? Collections.emptyList() : Collections.unmodifiableList(list006);
+      field007 = list007 == null ? Collections.emptyList() : Collections.unmodifiableList(list007);
+      field008 = view008;
+    }
   }
 }
@@ -0,0 +1,200 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.marc4j.marc.Record;
+
+/**
+ * <p>
+ * Fetches MARC-XML records over HTTP. All requests of a fetcher share one
+ * {@link HttpClient} (and its connection pool), response bodies are parsed
+ * while they are received, without buffering them.
+ *
+ * <p>
+ * Instances are thread safe, {@link #getDefault()} is used by
+ * {@link MarcXmlRecord#from(URI)}.
+ */
+public class MarcXmlFetcher {
+
+  /**
+   * Maximum number of concurrent requests of {@link #fetchAll(Collection)} of
+   * a fetcher created without explicit concurrency.
+   */
+  public static final int DEFAULT_CONCURRENCY = 8;
+
+  private static volatile MarcXmlFetcher defaultFetcher;
+
+  public static MarcXmlFetcher getDefault() {
+    MarcXmlFetcher fetcher = defaultFetcher;
+    if (fetcher == null) {
+      synchronized (MarcXmlFetcher.class) {
+        fetcher = defaultFetcher;
+        if (fetcher == null) {
+          fetcher = new MarcXmlFetcher();
+          defaultFetcher = fetcher;
+        }
+      }
+    }
+    return fetcher;
+  }
+
+  /**
+   * Replace the fetcher used by {@link MarcXmlRecord#from(URI)}, e.g. by a
+   * caching one.
+   */
+  public static void setDefault(MarcXmlFetcher fetcher) {
+    defaultFetcher = fetcher;
+  }
+
+  protected static ExecutorService newDaemonThreadPool() {
+    return Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "marc-xml-fetcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private final HttpClient client;
+  private final Executor executor;
+  private final int concurrency;
+
+  public MarcXmlFetcher() {
+    this(HttpClient.newHttpClient(), newDaemonThreadPool(), DEFAULT_CONCURRENCY);
+  }
+
+  /**
+   * @param client      client used for all requests
+   * @param executor    executor running the requests of
+   *                    {@link #fetchAll(Collection)} (e.g. a virtual thread per
+   *                    task executor on Java 21+)
+   * @param concurrency maximum number of concurrent requests of
+   *                    {@link #fetchAll(Collection)}
+   */
+  public MarcXmlFetcher(HttpClient client, Executor executor, int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+    }
+    this.client = client;
+    this.executor = executor;
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * @return first record of the MARC-XML document at given URI, null if the
+   *         document does not contain any record
+   * @throws IOException if the request fails or the response status is not 2xx
+   */
+  public Record fetch(URI uri) throws IOException, InterruptedException {
+    return read(open(uri));
+  }
+
+  /**
+   * @return body of the document at the given URI, received while it is read
+   *         (the caller has to close it)
+   * @throws IOException if the request fails or the response status is not 2xx
+   */
+  public InputStream open(URI uri) throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder().uri(uri).build();
+    HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    InputStream body = response.body();
+    if (response.statusCode() / 100 != 2) {
+      body.close();
+      throw new IOException("Unexpected HTTP status " + response.statusCode() + " for " + uri);
+    }
+    return body;
+  }
+
+  /**
+   * @return first record of given MARC-XML document, null if none (the stream
+   *         is closed)
+   */
+  protected Record read(InputStream is) {
+    try (MarcXmlRecordIterator records = new MarcXmlRecordIterator(is)) {
+      return records.hasNext() ? records.next() : null;
+    }
+  }
+
+  protected HttpClient getClient() {
+    return client;
+  }
+
+  /**
+   * Fetch the records at all given URIs, at most <code>concurrency</code>
+   * requests at a time. The first failure (in completion order) is rethrown
+   * immediately: no further requests are started and the running ones are
+   * interrupted.
+   *
+   * @return records in the iteration order of the URIs (null for documents
+   *         without a record)
+   * @throws IOException if any of the requests fails
+   */
+  public List<Record> fetchAll(Collection<URI> uris) throws IOException, InterruptedException {
+    Semaphore permits = new Semaphore(concurrency);
+    AtomicBoolean failed = new AtomicBoolean();
+    CompletionService<Record> completed = new ExecutorCompletionService<>(executor);
+    List<Future<Record>> results = new ArrayList<>(uris.size());
+    try {
+      for (URI uri : uris) {
+        permits.acquire();
+        if (failed.get()) {
+          break;
+        }
+        // the permit is released when the fetch ends, not when it is cancelled
+        results.add(completed.submit(() -> {
+          try {
+            return fetch(uri);
+          } catch (Exception e) {
+            failed.set(true);
+            throw e;
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+      // in completion order, so that the first failure is rethrown at once
+      for (int i = 0; i < results.size(); i++) {
+        completed.take().get();
+      }
+      List<Record> records = new ArrayList<>(results.size());
+      for (Future<Record> result : results) {
+        records.add(result.get());
+      }
+      return records;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof InterruptedException) {
+        throw (InterruptedException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      // interrupts the fetches still running after a failure
+      results.forEach(result -> result.cancel(true));
+    }
+  }
+}
@@ -1,31 +1,129 @@
 package com.datazuul.metadata.marc.xml;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.marc4j.MarcPermissiveStreamReader;
 import org.marc4j.MarcReader;
+import org.marc4j.MarcStreamReader;
 import org.marc4j.MarcXmlReader;
 import org.marc4j.marc.Record;
 
+import com.datazuul.metadata.marc.xml.metrics.Metrics;
+import com.datazuul.metadata.marc.xml.metrics.MetricsListener;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
 public class MarcXmlRecord {
 
+  /**
+   * Fetch the record at the given URI, see {@link MarcXmlFetcher#getDefault()}.
+   */
   public static Record from(URI uri) throws IOException, InterruptedException {
-    HttpClient client = HttpClient.newHttpClient();
-    HttpRequest request = HttpRequest.newBuilder().uri(uri).build();
-    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-    String xml = response.body();
-    InputStream inputStream = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
-    return from(inputStream);
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return MarcXmlFetcher.getDefault().fetch(uri);
+    }
+    long start = System.nanoTime();
+    try {
+      return MarcXmlFetcher.getDefault().fetch(uri);
+    } catch (IOException | RuntimeException e) {
+      listener.failed(Stage.FETCH, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.FETCH, System.nanoTime() - start);
+    }
   }
 
+  /**
+   * Read the first record of the given source, MARC-XML or ISO 2709 (see
+   * {@link MarcFormat#detect(InputStream)}).
+   */
   public static Record from(InputStream is) {
-    MarcReader reader = new MarcXmlReader(is);
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return read(is);
+    }
+    long start = System.nanoTime();
+    try {
+      Record record = read(Metrics.countingStream(is, listener));
+      Metrics.recordParsed(listener, record);
+      return record;
+    } catch (RuntimeException e) {
+      listener.failed(Stage.PARSE, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.PARSE, System.nanoTime() - start);
+    }
+  }
+
+  private static Record read(InputStream is) {
+    MarcReader reader = reader(is, false);
     Record record = reader.next();
     return record;
   }
+
+  /**
+   * <p>
+   * Reader of the records of the given source, in the format detected from its
+   * first bytes (see {@link MarcFormat#detect(InputStream)}). The stream is
+   * buffered if it does not support mark/reset.
+   *
+   * <p>
+   * ISO 2709 records are read by a {@link MarcStreamReader}, decoding the data
+   * as UTF-8 if the leader declares Unicode (position 9 'a'), otherwise as
+   * ISO-8859-1. The {@link MarcPermissiveStreamReader} of a permissive reader
+   * also converts MARC-8 data and repairs records with wrong lengths or
+   * directory entries instead of failing.
+   *
+   * @param permissive true to read ISO 2709 records permissively (ignored for
+   *                   MARC-XML)
+   */
+  public static MarcReader reader(InputStream is, boolean permissive) {
+    InputStream in = is.markSupported() ? is : new BufferedInputStream(is);
+    MarcFormat format;
+    try {
+      format = MarcFormat.detect(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (format == MarcFormat.ISO_2709) {
+      return permissive ? new MarcPermissiveStreamReader(in, true, true) : new MarcStreamReader(in);
+    }
+    return new MarcXmlReader(in);
+  }
+
+  /**
+   * Lazy iterator over all records of the given MARC-XML or ISO 2709 source.
+   * The caller should close the iterator if it stops before the last record.
+   */
+  public static MarcXmlRecordIterator iterator(InputStream is) {
+    return new MarcXmlRecordIterator(is);
+  }
+
+  /**
+   * Lazy, sequential stream over all records of the given MARC-XML or ISO 2709
+   * source. Closing the stream closes the input stream and stops the parser, so
+   * use it in a try-with-resources block when not consuming all records.
+   */
+  public static Stream<Record> stream(InputStream is) {
+    MarcXmlRecordIterator iterator = iterator(is);
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(iterator::close);
+  }
+
+  /**
+   * Same as {@link #stream(InputStream)}, each record wrapped in a
+   * {@link MarcXml}.
+   */
+  public static Stream<MarcXml> marcXmlStream(InputStream is) {
+    return stream(is).map(MarcXml::new);
+  }
 }
@@ -0,0 +1,155 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.marc4j.MarcReader;
+import org.marc4j.MarcXmlReader;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.metrics.Metrics;
+import com.datazuul.metadata.marc.xml.metrics.MetricsListener;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * <p>
+ * Lazy iterator over all records of a MARC-XML source (a single
+ * <code>&lt;record&gt;</code> or a <code>&lt;collection&gt;</code> of records)
+ * or of an ISO 2709 source, see
+ * {@link MarcXmlRecord#reader(InputStream, boolean)}. Records are pulled one at
+ * a time from a {@link MarcXmlReader} (or a stream reader), so memory usage
+ * does not depend on the number of records in the source.
+ * 
+ * <p>
+ * The underlying input stream is closed when the iterator is exhausted or when
+ * {@link #close()} is called. Consumers that stop before the end must call
+ * {@link #close()} (e.g. by using try-with-resources), otherwise the parser
+ * thread of the {@link MarcXmlReader} stays blocked on the next record.
+ */
+public class MarcXmlRecordIterator implements Iterator<Record>, Closeable {
+
+  private final StoppableInputStream is;
+  private final MarcReader reader;
+  private final MetricsListener listener;
+  private boolean closed;
+
+  public MarcXmlRecordIterator(InputStream is) {
+    this(is, false);
+  }
+
+  /**
+   * @param permissive true to read ISO 2709 records permissively, see
+   *                   {@link MarcXmlRecord#reader(InputStream, boolean)}
+   */
+  public MarcXmlRecordIterator(InputStream is, boolean permissive) {
+    this.listener = Metrics.getListener();
+    this.is = new StoppableInputStream(listener == null ? is : Metrics.countingStream(is, listener));
+    this.reader = MarcXmlRecord.reader(this.is, permissive);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+    if (reader.hasNext()) {
+      return true;
+    }
+    close();
+    return false;
+  }
+
+  @Override
+  public Record next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    if (listener == null) {
+      return reader.next();
+    }
+    long start = System.nanoTime();
+    try {
+      Record record = reader.next();
+      Metrics.recordParsed(listener, record);
+      return record;
+    } catch (RuntimeException e) {
+      listener.failed(Stage.PARSE, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.PARSE, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    is.stop();
+    // the parser thread hands over records one by one and waits until the
+    // previous one has been taken: drain it, so that it hits the stopped stream
+    // and terminates (stream readers have no thread)
+    if (reader instanceof MarcXmlReader) {
+      try {
+        while (reader.hasNext()) {
+          reader.next();
+        }
+      } catch (RuntimeException e) {
+        // expected: parser aborted by stopped input stream
+      }
+    }
+    try {
+      is.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Input stream that fails all further reads once stopped, even if the wrapped
+   * stream (e.g. a {@link java.io.ByteArrayInputStream}) ignores
+   * {@link #close()}.
+   */
+  private static class StoppableInputStream extends FilterInputStream {
+
+    private volatile boolean stopped;
+
+    StoppableInputStream(InputStream in) {
+      super(in);
+    }
+
+    void stop() {
+      stopped = true;
+    }
+
+    private void ensureNotStopped() throws IOException {
+      if (stopped) {
+        throw new IOException("Stream closed");
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      ensureNotStopped();
+      return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      ensureNotStopped();
+      return super.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      ensureNotStopped();
+      return super.skip(n);
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ * Cuts a MARC-XML source into the raw bytes of its records without parsing
+ * them, so that each record can be parsed on its own: a malformed or truncated
+ * record does not affect the following ones. A record without end tag ends
+ * where the next record starts (or at the end of the collection or input).
+ *
+ * <p>
+ * {@link #document(byte[])} turns a record into a document of its own, made
+ * of the header of the source (XML declaration and collection start tag with
+ * the namespace declarations), the record and the collection end tag.
+ *
+ * <p>
+ * Tags are searched byte-wise (skipping comments, CDATA sections and
+ * processing instructions), so the source must be in an ASCII compatible
+ * encoding (e.g. UTF-8). Only the current record is buffered.
+ */
+public class MarcXmlRecordSplitter implements Closeable {
+
+  private static final int MAX_NAME_LENGTH = 128;
+
+  private static boolean isRecordName(String name) {
+    return name.equals("record") || name.endsWith(":record");
+  }
+
+  private static boolean isNameStart(byte b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+  }
+
+  private static boolean isNameChar(byte b) {
+    return isNameStart(b) || (b >= '0' && b <= '9') || b == '-' || b == '.' || b == ':';
+  }
+
+  private final InputStream in;
+  private byte[] buffer = new byte[64 * 1024];
+  // stream position of buffer[0]
+  private long bufferStart;
+  // stream position of the end of the data in the buffer
+  private long limit;
+  // stream position of the first byte still needed
+  private long mark;
+  private long pos;
+  private boolean eof;
+
+  private String rootName;
+  private boolean singleRecord;
+  private boolean finished;
+  private byte[] header;
+  private byte[] footer;
+
+  // last tag found by nextTag()
+  private long tagStart;
+  private long tagEnd;
+  private String tagName;
+  private boolean endTag;
+  private boolean emptyTag;
+
+  public MarcXmlRecordSplitter(InputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * @return raw bytes of the next record element, null if there are no more
+   *         records
+   */
+  public byte[] next() throws IOException {
+    if (finished) {
+      return null;
+    }
+    if (rootName == null) {
+      if (!nextTag()) {
+        finished = true;
+        return null;
+      }
+      rootName = tagName;
+      if (isRecordName(rootName) && !endTag) {
+        singleRecord = true;
+        header = bytes(0, tagStart);
+        footer = new byte[0];
+        return readRecord();
+      }
+      if (!nextRecordStart()) {
+        finished = true;
+        return null;
+      }
+      header = bytes(0, tagStart);
+      footer = ("</" + rootName + ">").getBytes(StandardCharsets.UTF_8);
+      return readRecord();
+    }
+    if (singleRecord || !nextRecordStart()) {
+      finished = true;
+      return null;
+    }
+    return readRecord();
+  }
+
+  /**
+   * @return header of the source (everything before the first record), null
+   *         before the first call of {@link #next()}
+   */
+  public byte[] getHeader() {
+    return header;
+  }
+
+  /**
+   * @return the given record as a MARC-XML document of its own
+   */
+  public byte[] document(byte[] record) {
+    byte[] document = new byte[header.length + record.length + footer.length];
+    System.arraycopy(header, 0, document, 0, header.length);
+    System.arraycopy(record, 0, document, header.length, record.length);
+    System.arraycopy(footer, 0, document, header.length + record.length, footer.length);
+    return document;
+  }
+
+  /**
+   * Advance to the next record start tag (at <code>tagStart</code>).
+   * 
+   * @return false at the end of the collection or input
+   */
+  private boolean nextRecordStart() throws IOException {
+    while (nextTag()) {
+      if (endTag && tagName.equals(rootName)) {
+        return false;
+      }
+      if (!endTag && isRecordName(tagName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read the record starting at <code>tagStart</code>.
+   */
+  private byte[] readRecord() throws IOException {
+    long recordStart = tagStart;
+    String recordName = tagName;
+    mark = recordStart;
+    if (emptyTag) {
+      return consume(recordStart, tagEnd);
+    }
+    while (nextTag()) {
+      if (endTag && tagName.equals(recordName)) {
+        return consume(recordStart, tagEnd);
+      }
+      if ((!endTag && isRecordName(tagName)) || (endTag && tagName.equals(rootName))) {
+        // truncated record, scan the tag again for the next record
+        pos = tagStart;
+        return consume(recordStart, tagStart);
+      }
+    }
+    finished = true;
+    return consume(recordStart, limit);
+  }
+
+  private byte[] consume(long from, long to) {
+    byte[] bytes = bytes(from, to);
+    mark = to;
+    return bytes;
+  }
+
+  /**
+   * Advance to the next start, end or empty element tag, skipping comments,
+   * CDATA sections, declarations and processing instructions.
+   * 
+   * @return false at the end of the input
+   */
+  private boolean nextTag() throws IOException {
+    while (true) {
+      while (true) {
+        if (!ensure(pos + 1)) {
+          return false;
+        }
+        if (byteAt(pos) == '<') {
+          break;
+        }
+        pos++;
+      }
+      tagStart = pos;
+      if (!ensure(pos + 2)) {
+        pos = limit;
+        return false;
+      }
+      byte second = byteAt(pos + 1);
+      if (second == '!') {
+        if (startsWith(pos, "<!--")) {
+          skipTo(pos + 4, "-->");
+        } else if (startsWith(pos, "<![CDATA[")) {
+          skipTo(pos + 9, "]]>");
+        } else {
+          skipTo(pos + 2, ">");
+        }
+        continue;
+      }
+      if (second == '?') {
+        skipTo(pos + 2, "?>");
+        continue;
+      }
+      endTag = second == '/';
+      long nameStart = pos + (endTag ? 2 : 1);
+      if (!ensure(nameStart + 1) || !isNameStart(byteAt(nameStart))) {
+        pos++;
+        continue;
+      }
+      long nameEnd = nameStart;
+      while (ensure(nameEnd + 1) && isNameChar(byteAt(nameEnd)) && nameEnd - nameStart < MAX_NAME_LENGTH) {
+        nameEnd++;
+      }
+      tagName = new String(bytes(nameStart, nameEnd), StandardCharsets.US_ASCII);
+      tagEnd = tagEnd(nameEnd);
+      emptyTag = !endTag && tagEnd - tagStart >= 2 && byteAt(tagEnd - 2) == '/';
+      pos = tagEnd;
+      return true;
+    }
+  }
+
+  /**
+   * @return position after the '&gt;' closing the tag, ignoring '&gt;' in
+   *         attribute values
+   */
+  private long tagEnd(long from) throws IOException {
+    byte quote = 0;
+    for (long i = from; ensure(i + 1); i++) {
+      byte b = byteAt(i);
+      if (quote != 0) {
+        if (b == quote) {
+          quote = 0;
+        }
+      } else if (b == '"' || b == '\'') {
+        quote = b;
+      } else if (b == '>') {
+        return i + 1;
+      }
+    }
+    return limit;
+  }
+
+  private void skipTo(long from, String terminator) throws IOException {
+    for (long i = from; ensure(i + terminator.length()); i++) {
+      if (startsWith(i, terminator)) {
+        pos = i + terminator.length();
+        return;
+      }
+    }
+    pos = limit;
+  }
+
+  private boolean startsWith(long at, String prefix) throws IOException {
+    if (!ensure(at + prefix.length())) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (byteAt(at + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte byteAt(long position) {
+    return buffer[(int) (position - bufferStart)];
+  }
+
+  private byte[] bytes(long from, long to) {
+    byte[] bytes = new byte[(int) (to - from)];
+    System.arraycopy(buffer, (int) (from - bufferStart), bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  /**
+   * Read until the data up to the given stream position is buffered.
+   * 
+   * @return false if the input ends before
+   */
+  private boolean ensure(long end) throws IOException {
+    while (limit < end) {
+      if (eof) {
+        return false;
+      }
+      int length = (int) (limit - bufferStart);
+      if (length == buffer.length) {
+        int keep = (int) (limit - mark);
+        if (keep * 2 > buffer.length) {
+          byte[] larger = new byte[buffer.length * 2];
+          System.arraycopy(buffer, (int) (mark - bufferStart), larger, 0, keep);
+          buffer = larger;
+        } else {
+          System.arraycopy(buffer, (int) (mark - bufferStart), buffer, 0, keep);
+        }
+        bufferStart = mark;
+        length = keep;
+      }
+      int n = in.read(buffer, length, buffer.length - length);
+      if (n < 0) {
+        eof = true;
+      } else {
+        limit += n;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,133 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Bounded pool of canonical String instances for values repeating across
+ * records (language codes, types, publishers, ...): converted records keeping
+ * these values share one instance instead of holding a copy each.
+ *
+ * <p>
+ * The pool is a fixed size, direct mapped table: a value replaces the value
+ * with the same hash slot, so heap usage is bounded by the capacity and
+ * lookups never block. Values can be looked up from a character range
+ * (e.g. of a reused buffer), the String is only created on a miss.
+ *
+ * <p>
+ * Instances are thread safe. Concurrent lookups of the same new value may
+ * both miss and return different instances, which only reduces the
+ * deduplication.
+ */
+public class StringPool {
+
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private final String[] table;
+  private final int mask;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public StringPool() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity maximum number of pooled values, rounded up to a power of
+   *                 two
+   */
+  public StringPool(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("capacity out of range: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.table = new String[size];
+    this.mask = size - 1;
+  }
+
+  /**
+   * @return pooled instance equal to the value, null for null
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    int slot = slot(value.hashCode());
+    // Strings are immutable, a racy read sees either null or a complete value
+    String pooled = table[slot];
+    if (pooled != null && pooled.equals(value)) {
+      hits.increment();
+      return pooled;
+    }
+    misses.increment();
+    table[slot] = value;
+    return value;
+  }
+
+  /**
+   * @return pooled instance equal to the characters from <code>start</code>
+   *         (inclusive) to <code>end</code> (exclusive)
+   */
+  public String intern(CharSequence chars, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    int slot = slot(hash);
+    String pooled = table[slot];
+    if (pooled != null && equals(pooled, chars, start, end)) {
+      hits.increment();
+      return pooled;
+    }
+    misses.increment();
+    String value = chars.subSequence(start, end).toString();
+    table[slot] = value;
+    return value;
+  }
+
+  private int slot(int hash) {
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private static boolean equals(String pooled, CharSequence chars, int start, int end) {
+    if (pooled.length() != end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (pooled.charAt(i - start) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int getCapacity() {
+    return table.length;
+  }
+
+  /**
+   * @return number of lookups returning a pooled instance
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return number of lookups adding a new instance
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return hits per lookup, 0 if there was no lookup
+   */
+  public double getHitRate() {
+    long h = hits.sum();
+    long lookups = h + misses.sum();
+    return lookups == 0 ? 0 : (double) h / lookups;
+  }
+}
@@ -0,0 +1,138 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Subfield;
+
+/**
+ * <p>
+ * Compiled selection of subfield codes, e.g. "abfghk". Selects the same
+ * subfields as {@link DataField#getSubfields(String)}: all subfields for an
+ * empty code string, codes matching a pattern for code strings containing '['
+ * (e.g. "[a-z]"), otherwise the listed codes.
+ *
+ * <p>
+ * Codes are tested against a bit mask of the ASCII characters (covering a-z
+ * and 0-9), the code string is not interpreted again per subfield. Instances
+ * are immutable and thread safe.
+ */
+public final class SubfieldSelector {
+
+  private static final Map<String, SubfieldSelector> SELECTORS = new ConcurrentHashMap<>();
+
+  public static final SubfieldSelector ALL = new SubfieldSelector("", -1L, -1L, null);
+
+  /**
+   * @return selector for the given codes, compiled once per distinct code
+   *         string
+   */
+  public static SubfieldSelector of(String codes) {
+    if (codes == null || codes.isEmpty()) {
+      return ALL;
+    }
+    SubfieldSelector selector = SELECTORS.get(codes);
+    if (selector == null) {
+      selector = SELECTORS.computeIfAbsent(codes, SubfieldSelector::compile);
+    }
+    return selector;
+  }
+
+  private static SubfieldSelector compile(String codes) {
+    Pattern pattern = codes.contains("[") ? Pattern.compile(codes) : null;
+    long low = 0;
+    long high = 0;
+    for (char c = 0; c < 128; c++) {
+      boolean selected = pattern == null ? codes.indexOf(c) >= 0 : pattern.matcher(String.valueOf(c)).matches();
+      if (selected) {
+        if (c < 64) {
+          low |= 1L << c;
+        } else {
+          high |= 1L << (c - 64);
+        }
+      }
+    }
+    return new SubfieldSelector(codes, low, high, pattern);
+  }
+
+  private final String codes;
+  private final long low;
+  private final long high;
+  private final Pattern pattern;
+
+  private SubfieldSelector(String codes, long low, long high, Pattern pattern) {
+    this.codes = codes;
+    this.low = low;
+    this.high = high;
+    this.pattern = pattern;
+  }
+
+  public boolean matches(char code) {
+    if (code < 64) {
+      return (low & (1L << code)) != 0;
+    }
+    if (code < 128) {
+      return (high & (1L << (code - 64))) != 0;
+    }
+    if (this == ALL) {
+      return true;
+    }
+    return pattern == null ? codes.indexOf(code) >= 0 : pattern.matcher(String.valueOf(code)).matches();
+  }
+
+  /**
+   * Append the data of all selected, non blank subfields of the data field to
+   * the buffer, each followed by the delimiter.
+   *
+   * @return true if any data was appended
+   */
+  public boolean appendTo(StringBuilder buffer, DataField dataField, char delimiter) {
+    boolean appended = false;
+    List<Subfield> subfields = dataField.getSubfields();
+    for (int i = 0, size = subfields.size(); i < size; i++) {
+      Subfield subfield = subfields.get(i);
+      if (matches(subfield.getCode())) {
+        String data = subfield.getData();
+        if (data != null && !data.isBlank()) {
+          buffer.append(data).append(delimiter);
+          appended = true;
+        }
+      }
+    }
+    return appended;
+  }
+
+  /**
+   * Same as
+   * <code>MarcXml.concatenate(dataField.getSubfields(codes), " ")</code>,
+   * without the intermediate list. The buffer is cleared before use and can be
+   * reused for the next field.
+   */
+  public String concatenate(DataField dataField, StringBuilder buffer) {
+    return concatenate(dataField, buffer, null);
+  }
+
+  /**
+   * Same as {@link #concatenate(DataField, StringBuilder)}, returning the pooled
+   * instance of the value if a pool is given.
+   */
+  public String concatenate(DataField dataField, StringBuilder buffer, StringPool pool) {
+    buffer.setLength(0);
+    if (!appendTo(buffer, dataField, ' ')) {
+      return "";
+    }
+    return MarcXml.trimmedString(buffer, pool);
+  }
+
+  public String getCodes() {
+    return codes;
+  }
+
+  @Override
+  public String toString() {
+    return "SubfieldSelector[" + codes + "]";
+  }
+}
@@ -0,0 +1,118 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.util.List;
+
+import org.marc4j.marc.Record;
+import org.marc4j.marc.VariableField;
+
+/**
+ * <p>
+ * Index of the variable fields (control and data fields) of a record by their
+ * numeric tag value (000-999). Built in one pass over the record, fields are
+ * kept sorted by tag (document order within the same tag), so that lookups of
+ * a single tag and of a tag range (e.g. all 5xx fields) are a binary search
+ * plus a contiguous slice.
+ * 
+ * <p>
+ * Fields with a non-numeric tag (e.g. local "LOW" or "SYS" fields) are not
+ * indexed.
+ */
+final class TagIndex {
+
+  private static final String[] TAGS = new String[1000];
+
+  static {
+    for (int i = 0; i < TAGS.length; i++) {
+      TAGS[i] = String.format("%03d", i);
+    }
+  }
+
+  /**
+   * @return shared instance of the three digit tag with the given value
+   *         (0-999)
+   */
+  static String tagString(int tagValue) {
+    return TAGS[tagValue];
+  }
+
+  /**
+   * @return numeric value of a three digit tag, -1 for all other tags
+   */
+  static int tagValue(String tag) {
+    if (tag == null || tag.length() != 3) {
+      return -1;
+    }
+    int value = 0;
+    for (int i = 0; i < 3; i++) {
+      char c = tag.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private final int[] tags;
+  private final VariableField[] fields;
+  private final int size;
+
+  TagIndex(Record record) {
+    List<VariableField> variableFields = record.getVariableFields();
+    int[] tags = new int[variableFields.size()];
+    VariableField[] fields = new VariableField[variableFields.size()];
+    int size = 0;
+    for (VariableField field : variableFields) {
+      int tag = tagValue(field.getTag());
+      if (tag < 0) {
+        continue;
+      }
+      // insertion sort: stable and linear for the usual, already sorted records
+      int i = size;
+      while (i > 0 && tags[i - 1] > tag) {
+        tags[i] = tags[i - 1];
+        fields[i] = fields[i - 1];
+        i--;
+      }
+      tags[i] = tag;
+      fields[i] = field;
+      size++;
+    }
+    this.tags = tags;
+    this.fields = fields;
+    this.size = size;
+  }
+
+  /**
+   * @return position of first field with a tag greater or equal to given tag
+   */
+  int from(int tag) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (tags[mid] < tag) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return position after the last field with a tag lower or equal to given
+   *         tag
+   */
+  int to(int tag) {
+    return from(tag + 1);
+  }
+
+  VariableField field(int pos) {
+    return fields[pos];
+  }
+
+  int tag(int pos) {
+    return tags[pos];
+  }
+}
@@ -0,0 +1,53 @@
+package com.datazuul.metadata.marc.xml.cache;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+
+/**
+ * Cached record with the validators of the response it has been read from.
+ */
+final class CacheEntry {
+
+  private final MarcXml marcXml;
+  private final String etag;
+  private final String lastModified;
+  private final long validatedAt;
+
+  CacheEntry(MarcXml marcXml, String etag, String lastModified, long validatedAt) {
+    this.marcXml = marcXml;
+    this.etag = etag;
+    this.lastModified = lastModified;
+    this.validatedAt = validatedAt;
+  }
+
+  MarcXml getMarcXml() {
+    return marcXml;
+  }
+
+  String getEtag() {
+    return etag;
+  }
+
+  String getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * @return time (milliseconds since epoch) the entry has been fetched or
+   *         revalidated
+   */
+  long getValidatedAt() {
+    return validatedAt;
+  }
+
+  boolean isFresh(long now, long timeToLiveMillis) {
+    return now - validatedAt < timeToLiveMillis;
+  }
+
+  boolean isRevalidatable() {
+    return etag != null || lastModified != null;
+  }
+
+  CacheEntry revalidated(long now) {
+    return new CacheEntry(marcXml, etag, lastModified, now);
+  }
+}
@@ -0,0 +1,66 @@
+package com.datazuul.metadata.marc.xml.cache;
+
+/**
+ * Snapshot of the counters of a {@link CachingMarcXmlFetcher}.
+ */
+public class CacheStatistics {
+
+  private final long hits;
+  private final long diskHits;
+  private final long revalidations;
+  private final long misses;
+  private final long evictions;
+
+  CacheStatistics(long hits, long diskHits, long revalidations, long misses, long evictions) {
+    this.hits = hits;
+    this.diskHits = diskHits;
+    this.revalidations = revalidations;
+    this.misses = misses;
+    this.evictions = evictions;
+  }
+
+  /**
+   * @return number of lookups served from the cache without any request
+   *         (memory or disk tier)
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of lookups served from the disk tier (with or without
+   *         revalidation)
+   */
+  public long getDiskHits() {
+    return diskHits;
+  }
+
+  /**
+   * @return number of stale entries confirmed by the server ("304 Not
+   *         Modified")
+   */
+  public long getRevalidations() {
+    return revalidations;
+  }
+
+  /**
+   * @return number of lookups that needed a full response
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return number of entries removed from the memory tier (size limit or
+   *         expired without validators)
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics [hits=" + hits + ", diskHits=" + diskHits + ", revalidations=" + revalidations
+        + ", misses=" + misses + ", evictions=" + evictions + "]";
+  }
+}
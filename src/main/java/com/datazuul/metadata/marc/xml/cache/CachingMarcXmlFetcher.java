@@ -0,0 +1,181 @@
+package com.datazuul.metadata.marc.xml.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlFetcher;
+
+/**
+ * <p>
+ * {@link MarcXmlFetcher} keeping parsed records in a least recently used
+ * memory cache and optionally the raw responses in a directory. Entries older
+ * than the time to live are revalidated with a conditional request
+ * (If-None-Match / If-Modified-Since); entries without validators are fetched
+ * again.
+ *
+ * <p>
+ * Cached records are shared by all callers and must not be modified.
+ *
+ * <p>
+ * To use it for {@link com.datazuul.metadata.marc.xml.MarcXmlRecord#from(URI)}
+ * register it with {@link MarcXmlFetcher#setDefault(MarcXmlFetcher)}.
+ */
+public class CachingMarcXmlFetcher extends MarcXmlFetcher {
+
+  private final MemoryCache memoryCache;
+  private final DiskCache diskCache;
+  private final long timeToLiveMillis;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder diskHits = new LongAdder();
+  private final LongAdder revalidations = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Memory cache only.
+   */
+  public CachingMarcXmlFetcher(int maxEntries, Duration timeToLive) {
+    this(HttpClient.newHttpClient(), newDaemonThreadPool(), DEFAULT_CONCURRENCY, maxEntries, timeToLive, null);
+  }
+
+  /**
+   * @param maxEntries         maximum number of records in memory
+   * @param timeToLive         time after which an entry is revalidated
+   * @param diskCacheDirectory directory of the disk cache, null for none
+   */
+  public CachingMarcXmlFetcher(HttpClient client, Executor executor, int concurrency, int maxEntries,
+      Duration timeToLive, Path diskCacheDirectory) {
+    super(client, executor, concurrency);
+    this.memoryCache = new MemoryCache(maxEntries);
+    this.diskCache = diskCacheDirectory == null ? null : new DiskCache(diskCacheDirectory);
+    this.timeToLiveMillis = timeToLive.toMillis();
+  }
+
+  @Override
+  public Record fetch(URI uri) throws IOException, InterruptedException {
+    MarcXml marcXml = fetchMarcXml(uri);
+    return marcXml == null ? null : marcXml.getRecord();
+  }
+
+  /**
+   * Same as {@link #fetch(URI)}, returns the cached {@link MarcXml} (reusing its
+   * tag index).
+   */
+  public MarcXml fetchMarcXml(URI uri) throws IOException, InterruptedException {
+    long now = System.currentTimeMillis();
+    CacheEntry entry = memoryCache.get(uri);
+    if (entry == null && diskCache != null) {
+      entry = diskCache.read(uri, this::read);
+      if (entry != null) {
+        diskHits.increment();
+        memoryCache.put(uri, entry);
+      }
+    }
+    if (entry != null) {
+      if (entry.isFresh(now, timeToLiveMillis)) {
+        hits.increment();
+        return entry.getMarcXml();
+      }
+      if (!entry.isRevalidatable()) {
+        memoryCache.evict(uri);
+        entry = null;
+      }
+    }
+    return request(uri, entry, now);
+  }
+
+  private MarcXml request(URI uri, CacheEntry entry, long now) throws IOException, InterruptedException {
+    HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri);
+    if (entry != null) {
+      if (entry.getEtag() != null) {
+        builder.header("If-None-Match", entry.getEtag());
+      }
+      if (entry.getLastModified() != null) {
+        builder.header("If-Modified-Since", entry.getLastModified());
+      }
+    }
+    HttpRequest request = builder.build();
+
+    if (diskCache == null) {
+      HttpResponse<InputStream> response = getClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+      if (isNotModified(response, entry)) {
+        response.body().close();
+        return revalidated(uri, entry, now);
+      }
+      checkStatus(uri, response, response.body());
+      return store(uri, response, read(response.body()), null, now);
+    }
+
+    // the disk cache needs the raw body
+    HttpResponse<byte[]> response = getClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+    if (isNotModified(response, entry)) {
+      return revalidated(uri, entry, now);
+    }
+    checkStatus(uri, response, null);
+    byte[] body = response.body();
+    return store(uri, response, read(new ByteArrayInputStream(body)), body, now);
+  }
+
+  private boolean isNotModified(HttpResponse<?> response, CacheEntry entry) {
+    return entry != null && response.statusCode() == 304;
+  }
+
+  private void checkStatus(URI uri, HttpResponse<?> response, InputStream body) throws IOException {
+    if (response.statusCode() / 100 != 2) {
+      if (body != null) {
+        body.close();
+      }
+      throw new IOException("Unexpected HTTP status " + response.statusCode() + " for " + uri);
+    }
+  }
+
+  private MarcXml revalidated(URI uri, CacheEntry entry, long now) throws IOException {
+    revalidations.increment();
+    CacheEntry revalidated = entry.revalidated(now);
+    memoryCache.put(uri, revalidated);
+    if (diskCache != null) {
+      diskCache.write(uri, null, revalidated);
+    }
+    return revalidated.getMarcXml();
+  }
+
+  private MarcXml store(URI uri, HttpResponse<?> response, Record record, byte[] body, long now)
+      throws IOException {
+    misses.increment();
+    if (record == null) {
+      return null;
+    }
+    String etag = response.headers().firstValue("ETag").orElse(null);
+    String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+    CacheEntry entry = new CacheEntry(new MarcXml(record), etag, lastModified, now);
+    memoryCache.put(uri, entry);
+    if (diskCache != null) {
+      diskCache.write(uri, body, entry);
+    }
+    return entry.getMarcXml();
+  }
+
+  public CacheStatistics getStatistics() {
+    return new CacheStatistics(hits.sum(), diskHits.sum(), revalidations.sum(), misses.sum(),
+        memoryCache.getEvictions());
+  }
+
+  /**
+   * @return number of records currently held in memory
+   */
+  public int size() {
+    return memoryCache.size();
+  }
+}
@@ -0,0 +1,116 @@
+package com.datazuul.metadata.marc.xml.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.function.Function;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+
+/**
+ * <p>
+ * Cache of MARC-XML responses in a directory: per URI the raw response body
+ * ("&lt;key&gt;.xml") and its validators ("&lt;key&gt;.properties"), key being
+ * the SHA-1 hash of the URI.
+ */
+final class DiskCache {
+
+  private static final String URI = "uri";
+  private static final String ETAG = "etag";
+  private static final String LAST_MODIFIED = "lastModified";
+  private static final String VALIDATED_AT = "validatedAt";
+
+  private static String key(URI uri) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-1").digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private final Path directory;
+
+  DiskCache(Path directory) {
+    this.directory = directory;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return cached entry, null if none (or unreadable)
+   */
+  CacheEntry read(URI uri, Function<InputStream, Record> parser) {
+    String key = key(uri);
+    Path metadataFile = directory.resolve(key + ".properties");
+    Path bodyFile = directory.resolve(key + ".xml");
+    if (!Files.exists(metadataFile) || !Files.exists(bodyFile)) {
+      return null;
+    }
+    try {
+      Properties metadata = new Properties();
+      try (InputStream is = Files.newInputStream(metadataFile)) {
+        metadata.load(is);
+      }
+      if (!uri.toString().equals(metadata.getProperty(URI))) {
+        return null;
+      }
+      Record record = parser.apply(Files.newInputStream(bodyFile));
+      if (record == null) {
+        return null;
+      }
+      return new CacheEntry(new MarcXml(record), metadata.getProperty(ETAG), metadata.getProperty(LAST_MODIFIED),
+          Long.parseLong(metadata.getProperty(VALIDATED_AT, "0")));
+    } catch (IOException | RuntimeException e) {
+      // corrupt entry: treat as missing, it gets overwritten by the next fetch
+      return null;
+    }
+  }
+
+  void write(URI uri, byte[] body, CacheEntry entry) throws IOException {
+    String key = key(uri);
+    if (body != null) {
+      replace(directory.resolve(key + ".xml"), body);
+    }
+    Properties metadata = new Properties();
+    metadata.setProperty(URI, uri.toString());
+    if (entry.getEtag() != null) {
+      metadata.setProperty(ETAG, entry.getEtag());
+    }
+    if (entry.getLastModified() != null) {
+      metadata.setProperty(LAST_MODIFIED, entry.getLastModified());
+    }
+    metadata.setProperty(VALIDATED_AT, Long.toString(entry.getValidatedAt()));
+    Path tempFile = Files.createTempFile(directory, key, ".tmp");
+    try (OutputStream os = Files.newOutputStream(tempFile)) {
+      metadata.store(os, null);
+    }
+    Files.move(tempFile, directory.resolve(key + ".properties"), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void replace(Path file, byte[] content) throws IOException {
+    Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    Files.copy(new ByteArrayInputStream(content), tempFile, StandardCopyOption.REPLACE_EXISTING);
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,56 @@
+package com.datazuul.metadata.marc.xml.cache;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least recently used cache of parsed records, limited to a maximum number of
+ * entries.
+ */
+final class MemoryCache {
+
+  private final LongAdder evictions = new LongAdder();
+  private final Map<URI, CacheEntry> entries;
+
+  MemoryCache(int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+    }
+    entries = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<URI, CacheEntry> eldest) {
+        if (size() > maxEntries) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  synchronized CacheEntry get(URI uri) {
+    return entries.get(uri);
+  }
+
+  synchronized void put(URI uri, CacheEntry entry) {
+    entries.put(uri, entry);
+  }
+
+  synchronized void evict(URI uri) {
+    if (entries.remove(uri) != null) {
+      evictions.increment();
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  long getEvictions() {
+    return evictions.sum();
+  }
+}
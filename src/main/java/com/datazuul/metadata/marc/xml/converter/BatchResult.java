@@ -0,0 +1,50 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+/**
+ * Counters of a fault tolerant batch run.
+ */
+public class BatchResult {
+
+  private final long skipped;
+  private final long converted;
+  private final long failed;
+
+  BatchResult(long skipped, long converted, long failed) {
+    this.skipped = skipped;
+    this.converted = converted;
+    this.failed = failed;
+  }
+
+  /**
+   * @return records skipped because they were done before the checkpoint
+   */
+  public long getSkipped() {
+    return skipped;
+  }
+
+  /**
+   * @return records passed to the sink
+   */
+  public long getConverted() {
+    return converted;
+  }
+
+  /**
+   * @return records passed to the dead letter sink
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * @return offset after the last record of the source
+   */
+  public long getEndOffset() {
+    return skipped + converted + failed;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResult[skipped=" + skipped + ", converted=" + converted + ", failed=" + failed + "]";
+  }
+}
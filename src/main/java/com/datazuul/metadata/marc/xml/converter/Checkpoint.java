@@ -0,0 +1,18 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.IOException;
+
+/**
+ * Persists the progress of a fault tolerant batch as the offset of the first
+ * record not yet passed to the sinks, so that a restarted run skips the records
+ * already done.
+ */
+public interface Checkpoint {
+
+  /**
+   * @return offset to resume at, 0 if there is no checkpoint
+   */
+  long load() throws IOException;
+
+  void save(long offset) throws IOException;
+}
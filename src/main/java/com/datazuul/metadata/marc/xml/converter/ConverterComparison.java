@@ -0,0 +1,164 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+
+/**
+ * <p>
+ * Runs two Dublin Core converters over the same corpus and lists the elements
+ * where their output differs.
+ *
+ * <p>
+ * The throughput of the converters is measured by the JMH benchmarks of the
+ * <code>benchmarks</code> module, which also has a command line entry point
+ * for this comparison.
+ */
+public class ConverterComparison {
+
+  private static final Map<String, Function<DublinCore, Object>> ELEMENTS = Map.of(
+      "title", DublinCore::getTitles,
+      "creator", DublinCore::getCreators,
+      "type", DublinCore::getType,
+      "publisher", DublinCore::getPublishers,
+      "date", DublinCore::getDates,
+      "language", DublinCore::getLanguage,
+      "description", DublinCore::getDescriptions,
+      "subject", DublinCore::getSubjects,
+      "identifier", DublinCore::getIdentifiers);
+
+  private static final List<String> ELEMENT_ORDER = List.of("title", "creator", "type", "publisher", "date",
+      "language", "description", "subject", "identifier");
+
+  private final String nameA;
+  private final RecordConverter<DublinCore> converterA;
+  private final String nameB;
+  private final RecordConverter<DublinCore> converterB;
+
+  public ConverterComparison(String nameA, RecordConverter<DublinCore> converterA, String nameB,
+      RecordConverter<DublinCore> converterB) {
+    this.nameA = nameA;
+    this.converterA = converterA;
+    this.nameB = nameB;
+    this.converterB = converterB;
+  }
+
+  /**
+   * Convert the corpus with both converters and compare the results record by
+   * record.
+   */
+  public Report compare(List<Record> corpus) {
+    List<DublinCore> resultsA = convert(converterA, corpus);
+    List<DublinCore> resultsB = convert(converterB, corpus);
+
+    List<Difference> differences = new ArrayList<>();
+    for (int i = 0; i < corpus.size(); i++) {
+      for (String element : ELEMENT_ORDER) {
+        Function<DublinCore, Object> getter = ELEMENTS.get(element);
+        Object valueA = getter.apply(resultsA.get(i));
+        Object valueB = getter.apply(resultsB.get(i));
+        if (!Objects.equals(valueA, valueB)) {
+          differences.add(new Difference(i, corpus.get(i).getControlNumber(), element, valueA, valueB));
+        }
+      }
+    }
+    return new Report(corpus.size(), differences);
+  }
+
+  private static List<DublinCore> convert(RecordConverter<DublinCore> converter, List<Record> corpus) {
+    List<DublinCore> results = new ArrayList<>(corpus.size());
+    for (Record record : corpus) {
+      results.add(converter.convert(record));
+    }
+    return results;
+  }
+
+  /**
+   * Result of {@link ConverterComparison#compare(List)}.
+   */
+  public class Report {
+
+    private final int records;
+    private final List<Difference> differences;
+
+    Report(int records, List<Difference> differences) {
+      this.records = records;
+      this.differences = Collections.unmodifiableList(differences);
+    }
+
+    public int getRecords() {
+      return records;
+    }
+
+    public List<Difference> getDifferences() {
+      return differences;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(records).append(" records\n");
+      sb.append(differences.stream().map(Difference::getRecordIndex).distinct().count())
+          .append(" records with differences\n");
+      sb.append(differences.stream()
+          .map(d -> "#" + d.getRecordIndex() + " (" + d.getControlNumber() + ") " + d.getElement() + "\n  " + nameA
+              + ": " + d.getValueA() + "\n  " + nameB + ": " + d.getValueB())
+          .collect(Collectors.joining("\n")));
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Differing values of one Dublin Core element of a record.
+   */
+  public static class Difference {
+
+    private final int recordIndex;
+    private final String controlNumber;
+    private final String element;
+    private final Object valueA;
+    private final Object valueB;
+
+    Difference(int recordIndex, String controlNumber, String element, Object valueA, Object valueB) {
+      this.recordIndex = recordIndex;
+      this.controlNumber = controlNumber;
+      this.element = element;
+      this.valueA = valueA;
+      this.valueB = valueB;
+    }
+
+    /**
+     * @return position of the record in the corpus
+     */
+    public int getRecordIndex() {
+      return recordIndex;
+    }
+
+    public String getControlNumber() {
+      return controlNumber;
+    }
+
+    /**
+     * @return Dublin Core element name, e.g. "creator"
+     */
+    public String getElement() {
+      return element;
+    }
+
+    public Object getValueA() {
+      return valueA;
+    }
+
+    public Object getValueB() {
+      return valueB;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.nio.charset.StandardCharsets;
+
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * A record that could not be parsed or converted, with its raw MARC-XML.
+ */
+public class DeadLetter {
+
+  private final long offset;
+  private final byte[] document;
+  private final Stage stage;
+  private final Throwable cause;
+
+  public DeadLetter(long offset, byte[] document, Stage stage, Throwable cause) {
+    this.offset = offset;
+    this.document = document;
+    this.stage = stage;
+    this.cause = cause;
+  }
+
+  /**
+   * @return position of the record in the source (starting at 0)
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return the raw record as a MARC-XML document of its own (header of the
+   *         source, record, collection end tag), in the encoding of the source
+   */
+  public byte[] getDocument() {
+    return document;
+  }
+
+  /**
+   * @return {@link Stage#PARSE} or {@link Stage#CONVERT}
+   */
+  public Stage getStage() {
+    return stage;
+  }
+
+  public Throwable getCause() {
+    return cause;
+  }
+
+  @Override
+  public String toString() {
+    return "DeadLetter[offset=" + offset + ", stage=" + stage + ", cause=" + cause + ", document="
+        + new String(document, StandardCharsets.UTF_8) + "]";
+  }
+}
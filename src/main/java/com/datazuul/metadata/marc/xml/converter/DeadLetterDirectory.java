@@ -0,0 +1,35 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link DeadLetterSink} writing each failed record to a directory:
+ * <code>&lt;offset&gt;.xml</code> with the MARC-XML document of the record (to
+ * be fixed and converted again) and <code>&lt;offset&gt;.error.txt</code> with
+ * the failed stage and the stack trace.
+ */
+public class DeadLetterDirectory implements DeadLetterSink {
+
+  private final Path directory;
+
+  public DeadLetterDirectory(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  @Override
+  public void accept(DeadLetter deadLetter) throws IOException {
+    String name = Long.toString(deadLetter.getOffset());
+    Files.write(directory.resolve(name + ".xml"), deadLetter.getDocument());
+    StringWriter error = new StringWriter();
+    try (PrintWriter writer = new PrintWriter(error)) {
+      writer.println(deadLetter.getStage());
+      deadLetter.getCause().printStackTrace(writer);
+    }
+    Files.writeString(directory.resolve(name + ".error.txt"), error.toString(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,13 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.IOException;
+
+/**
+ * Receives the records failing in a fault tolerant batch, see
+ * {@link MarcXmlBatchConverter#convert(java.io.InputStream, java.util.function.Consumer, DeadLetterSink, Checkpoint)}.
+ */
+@FunctionalInterface
+public interface DeadLetterSink {
+
+  void accept(DeadLetter deadLetter) throws IOException;
+}
@@ -0,0 +1,183 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.datazuul.metadata.dublincore.DcElement;
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.StringPool;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventHandler;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+
+/**
+ * <p>
+ * Builds Dublin Core records directly from MARC-XML events, without creating
+ * {@link org.marc4j.marc.Record} objects. Uses the mapping of
+ * {@link MarcXml2DublinCore} and produces the same output.
+ *
+ * <p>
+ * Not thread safe: use one builder per {@link MarcXmlEventReader}.
+ */
+public class DublinCoreEventBuilder implements MarcXmlEventHandler {
+
+  /**
+   * Convert all records of the given MARC-XML source.
+   * 
+   * @return number of records
+   */
+  public static long convert(InputStream is, Consumer<? super DublinCore> sink) throws IOException {
+    return convert(is, MarcXml2DublinCore.ALL_ELEMENTS, sink);
+  }
+
+  /**
+   * Same as {@link #convert(InputStream, Consumer)}, computing only the given
+   * elements.
+   */
+  public static long convert(InputStream is, Set<DcElement> elements, Consumer<? super DublinCore> sink)
+      throws IOException {
+    DublinCoreEventBuilder builder = new DublinCoreEventBuilder(elements);
+    long count = 0;
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(is)) {
+      while (reader.next(builder)) {
+        sink.accept(builder.getDublinCore());
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static boolean isBlank(char[] chars, int start, int length) {
+    for (int i = start, end = start + length; i < end; i++) {
+      if (!Character.isWhitespace(chars[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private final Set<DcElement> elements;
+  private final StringPool pool;
+  private final MarcXml2DublinCore.Route[][] routeTable;
+  private final List<String>[] slots = MarcXml2DublinCore.newSlots();
+  // one buffer per route of the current data field
+  private final List<StringBuilder> values = new ArrayList<>();
+  private MarcXml2DublinCore.Route[] routes;
+  private char leader6;
+  private char leader7;
+  private String field008;
+  private DublinCore dublinCore;
+
+  public DublinCoreEventBuilder() {
+    this(MarcXml2DublinCore.ALL_ELEMENTS);
+  }
+
+  /**
+   * @param elements elements to compute, all other elements of the results are
+   *                 null
+   */
+  public DublinCoreEventBuilder(Set<DcElement> elements) {
+    this(elements, null);
+  }
+
+  /**
+   * @param elements elements to compute, all other elements of the results are
+   *                 null
+   * @param pool     pool deduplicating repeating values, see
+   *                 {@link MarcXml2DublinCore#MarcXml2DublinCore(StringPool)}
+   */
+  public DublinCoreEventBuilder(Set<DcElement> elements, StringPool pool) {
+    this.elements = elements;
+    this.pool = pool;
+    this.routeTable = MarcXml2DublinCore.routes(elements);
+  }
+
+  /**
+   * @return Dublin Core of the last completed record
+   */
+  public DublinCore getDublinCore() {
+    return dublinCore;
+  }
+
+  @Override
+  public void startRecord() {
+    Arrays.fill(slots, null);
+    routes = null;
+    leader6 = ' ';
+    leader7 = ' ';
+    field008 = null;
+    dublinCore = null;
+  }
+
+  @Override
+  public void leader(char[] chars, int start, int length) {
+    if (length > 7) {
+      leader6 = chars[start + 6];
+      leader7 = chars[start + 7];
+    }
+  }
+
+  @Override
+  public void controlField(String tag, char[] chars, int start, int length) {
+    if (field008 == null && "008".equals(tag)) {
+      field008 = new String(chars, start, length);
+    }
+  }
+
+  @Override
+  public void startDataField(String tag, char ind1, char ind2) {
+    int tagValue = MarcXml.tagValue(tag);
+    routes = tagValue < 0 ? null : routeTable[tagValue];
+    if (routes != null) {
+      while (values.size() < routes.length) {
+        values.add(new StringBuilder());
+      }
+      for (int i = 0; i < routes.length; i++) {
+        values.get(i).setLength(0);
+      }
+    }
+  }
+
+  @Override
+  public void subfield(char code, char[] chars, int start, int length) {
+    if (routes == null || isBlank(chars, start, length)) {
+      return;
+    }
+    for (int i = 0; i < routes.length; i++) {
+      if (routes[i].selector.matches(code)) {
+        values.get(i).append(chars, start, length).append(' ');
+      }
+    }
+  }
+
+  @Override
+  public void endDataField() {
+    if (routes == null) {
+      return;
+    }
+    for (int i = 0; i < routes.length; i++) {
+      MarcXml2DublinCore.Route route = routes[i];
+      String data = MarcXml.trimmedString(values.get(i), route.pooled ? pool : null);
+      if (route.prefix != null) {
+        data = route.prefix + data;
+      }
+      List<String> slot = slots[route.slot];
+      if (slot == null) {
+        slot = new ArrayList<>();
+        slots[route.slot] = slot;
+      }
+      slot.add(data);
+    }
+    routes = null;
+  }
+
+  @Override
+  public void endRecord() {
+    dublinCore = MarcXml2DublinCore.toDublinCore(slots, leader6, leader7, field008, elements, pool);
+  }
+}
@@ -0,0 +1,38 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link Checkpoint} kept in a text file, replaced atomically on each save.
+ */
+public class FileCheckpoint implements Checkpoint {
+
+  private final Path file;
+
+  public FileCheckpoint(Path file) {
+    this.file = file;
+  }
+
+  @Override
+  public long load() throws IOException {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid checkpoint " + file, e);
+    }
+  }
+
+  @Override
+  public void save(long offset) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.writeString(temp, Long.toString(offset), StandardCharsets.UTF_8);
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -1,34 +1,390 @@
 package com.datazuul.metadata.marc.xml.converter;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DcElement;
 import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.CompactRecord;
 import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.StringPool;
+import com.datazuul.metadata.marc.xml.SubfieldSelector;
+import com.datazuul.metadata.marc.xml.metrics.Metrics;
+import com.datazuul.metadata.marc.xml.metrics.MetricsListener;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * <p>
+ * Converts MARC-XML to Dublin Core following the XSL-Transformation
+ * MARC21slim2OAIDC.xsl.
+ * 
+ * <p>
+ * The data fields of a record are visited once: a table built at class loading
+ * time maps each tag to the Dublin Core elements taking values from fields
+ * with this tag. Each element collects its values in slots (one per tag), so
+ * that values are ordered by tag as in the XSL-Transformation, independent of
+ * the field order in the record.
+ * 
+ * <p>
+ * Instances created with {@link #MarcXml2DublinCore()} are stateless and can be
+ * shared between threads for {@link #convert(Record)} and
+ * {@link #convert(MarcXml)}.
+ * 
+ * <p>
+ * {@link #convert(MarcXml, Set)} computes only the given elements: data fields
+ * only routed to other elements are skipped.
+ * 
+ * <p>
+ * {@link #convert(CompactRecord)} converts records kept as
+ * {@link CompactRecord} directly, with the same output.
+ * 
+ * <p>
+ * With a {@link StringPool} the values of elements repeating across records
+ * (creator, date, language, publisher, type) are deduplicated, which reduces
+ * the heap used by large batches of converted records.
+ */
+public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore>, RecordConverter<DublinCore> {
+
+  private static final String CREATOR_CODES = "abcdefghijklmnopqrstuvwxyz";
+  private static final int[] CREATOR_TAGS = { 100, 110, 111, 700, 710, 711, 720 };
+  private static final int[] DESCRIPTION_EXCLUDED_TAGS = { 506, 520, 521, 530, 540, 546 };
+
+  static final Set<DcElement> ALL_ELEMENTS = Collections.unmodifiableSet(EnumSet.allOf(DcElement.class));
+  // elements taking values from data fields
+  private static final Set<DcElement> DATA_FIELD_ELEMENTS = EnumSet.of(DcElement.CREATOR, DcElement.DATE,
+      DcElement.DESCRIPTION, DcElement.IDENTIFIER, DcElement.PUBLISHER, DcElement.TITLE, DcElement.TYPE);
+
+  private static final int SLOT_CREATORS = 0;
+  private static final int SLOT_DATES_260 = SLOT_CREATORS + CREATOR_TAGS.length;
+  private static final int SLOT_DATES_264 = SLOT_DATES_260 + 1;
+  private static final int SLOT_DESCRIPTIONS_520 = SLOT_DATES_264 + 1;
+  private static final int SLOT_DESCRIPTIONS_521 = SLOT_DESCRIPTIONS_520 + 1;
+  // one slot per tag 500-599
+  private static final int SLOT_DESCRIPTIONS_5XX = SLOT_DESCRIPTIONS_521 + 1;
+  private static final int SLOT_IDENTIFIERS_856 = SLOT_DESCRIPTIONS_5XX + 100;
+  private static final int SLOT_IDENTIFIERS_020 = SLOT_IDENTIFIERS_856 + 1;
+  private static final int SLOT_PUBLISHERS = SLOT_IDENTIFIERS_020 + 1;
+  private static final int SLOT_TITLES = SLOT_PUBLISHERS + 1;
+  private static final int SLOT_TYPES_655 = SLOT_TITLES + 1;
+  private static final int SLOT_COUNT = SLOT_TYPES_655 + 1;
+
+  /**
+   * @return values by slot, all slots null
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  static List<String>[] newSlots() {
+    return new List[SLOT_COUNT];
+  }
+
+  /**
+   * Routes of a data field by tag (000-999), null if no element takes values
+   * from this tag.
+   */
+  private static final Route[][] ROUTES = createRoutes();
+
+  /**
+   * @return routes to the given elements by tag (000-999), null for tags
+   *         without routes
+   */
+  static Route[][] routes(Set<DcElement> elements) {
+    if (elements.containsAll(ALL_ELEMENTS)) {
+      return ROUTES;
+    }
+    Route[][] routes = new Route[ROUTES.length][];
+    for (int tag = 0; tag < ROUTES.length; tag++) {
+      if (ROUTES[tag] != null) {
+        for (Route route : ROUTES[tag]) {
+          if (elements.contains(route.element)) {
+            addRoute(routes, tag, route);
+          }
+        }
+      }
+    }
+    return routes;
+  }
+
+  private static Route[][] createRoutes() {
+    Route[][] routes = new Route[1000][];
+    for (int i = 0; i < CREATOR_TAGS.length; i++) {
+      addRoute(routes, CREATOR_TAGS[i], new Route(DcElement.CREATOR, SLOT_CREATORS + i, CREATOR_CODES, null));
+    }
+    addRoute(routes, 260, new Route(DcElement.DATE, SLOT_DATES_260, "c", null));
+    addRoute(routes, 264, new Route(DcElement.DATE, SLOT_DATES_264, "c", null));
+    addRoute(routes, 520, new Route(DcElement.DESCRIPTION, SLOT_DESCRIPTIONS_520, "a", null));
+    addRoute(routes, 521, new Route(DcElement.DESCRIPTION, SLOT_DESCRIPTIONS_521, "a", null));
+    for (int tag = 500; tag <= 599; tag++) {
+      if (!contains(DESCRIPTION_EXCLUDED_TAGS, tag)) {
+        addRoute(routes, tag, new Route(DcElement.DESCRIPTION, SLOT_DESCRIPTIONS_5XX + tag - 500, "a", null));
+      }
+    }
+    addRoute(routes, 856, new Route(DcElement.IDENTIFIER, SLOT_IDENTIFIERS_856, "u", null));
+    addRoute(routes, 20, new Route(DcElement.IDENTIFIER, SLOT_IDENTIFIERS_020, "a", "URN:ISBN:"));
+    addRoute(routes, 260, new Route(DcElement.PUBLISHER, SLOT_PUBLISHERS, "ab", null));
+    addRoute(routes, 245, new Route(DcElement.TITLE, SLOT_TITLES, "abfghk", null));
+    addRoute(routes, 655, new Route(DcElement.TYPE, SLOT_TYPES_655, "abcvxyz", null));
+    return routes;
+  }
 
-public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
-  private MarcXml marcXml;
+  private static void addRoute(Route[][] routes, int tag, Route route) {
+    Route[] existing = routes[tag];
+    if (existing == null) {
+      routes[tag] = new Route[] { route };
+    } else {
+      Route[] extended = new Route[existing.length + 1];
+      System.arraycopy(existing, 0, extended, 0, existing.length);
+      extended[existing.length] = route;
+      routes[tag] = extended;
+    }
+  }
 
+  private static boolean contains(int[] values, int value) {
+    for (int v : values) {
+      if (v == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Collect the values of all data fields routed to the given elements of the
+   * record in one pass.
+   * 
+   * @return values by slot, null for slots without values
+   */
+  private static List<String>[] collect(Record record, Set<DcElement> elements, StringPool pool) {
+    List<String>[] slots = newSlots();
+    if (Collections.disjoint(elements, DATA_FIELD_ELEMENTS)) {
+      return slots;
+    }
+    // reused for all fields
+    StringBuilder buffer = new StringBuilder();
+    for (DataField dataField : record.getDataFields()) {
+      int tag = MarcXml.tagValue(dataField.getTag());
+      if (tag < 0 || ROUTES[tag] == null) {
+        continue;
+      }
+      for (Route route : ROUTES[tag]) {
+        if (!elements.contains(route.element)) {
+          continue;
+        }
+        add(slots, route, route.selector.concatenate(dataField, buffer, route.pooled ? pool : null));
+      }
+    }
+    return slots;
+  }
+
+  /**
+   * Same as {@link #collect(Record, Set, StringPool)} for a compact record.
+   */
+  private static List<String>[] collect(CompactRecord record, Set<DcElement> elements, StringPool pool) {
+    List<String>[] slots = newSlots();
+    if (Collections.disjoint(elements, DATA_FIELD_ELEMENTS)) {
+      return slots;
+    }
+    StringBuilder buffer = new StringBuilder();
+    for (int field = 0, fieldCount = record.getFieldCount(); field < fieldCount; field++) {
+      int tag = record.getTagValue(field);
+      if (tag < 0 || ROUTES[tag] == null || record.isControlField(field)) {
+        continue;
+      }
+      for (Route route : ROUTES[tag]) {
+        if (elements.contains(route.element)) {
+          add(slots, route, record.concatenate(field, route.selector, buffer, route.pooled ? pool : null));
+        }
+      }
+    }
+    return slots;
+  }
+
+  private static void add(List<String>[] slots, Route route, String data) {
+    if (route.prefix != null) {
+      data = route.prefix + data;
+    }
+    List<String> values = slots[route.slot];
+    if (values == null) {
+      values = new ArrayList<>();
+      slots[route.slot] = values;
+    }
+    values.add(data);
+  }
+
+  /**
+   * @return values of all slots in given range in slot order, null if none
+   */
+  private static List<String> join(List<String>[] slots, int fromSlot, int toSlot) {
+    List<String> result = null;
+    for (int i = fromSlot; i < toSlot; i++) {
+      if (slots[i] != null) {
+        if (result == null) {
+          result = new ArrayList<>();
+        }
+        result.addAll(slots[i]);
+      }
+    }
+    return result;
+  }
+
+  private final MarcXml marcXml;
+  private final StringPool pool;
+
+  /**
+   * Create a stateless converter, see {@link #convert(Record)}.
+   */
+  public MarcXml2DublinCore() {
+    this(null, null);
+  }
+
+  /**
+   * Create a converter bound to the given record, see {@link #convert()}.
+   */
   public MarcXml2DublinCore(MarcXml marcXml) {
+    this(marcXml, null);
+  }
+
+  /**
+   * Create a converter deduplicating repeating values with the given pool, see
+   * {@link #convert(Record)}. The converter can be shared between threads as
+   * the pool is thread safe.
+   */
+  public MarcXml2DublinCore(StringPool pool) {
+    this(null, pool);
+  }
+
+  private MarcXml2DublinCore(MarcXml marcXml, StringPool pool) {
     this.marcXml = marcXml;
+    this.pool = pool;
   }
 
   @Override
   public DublinCore convert() {
+    if (marcXml == null) {
+      throw new IllegalStateException("No record given at construction time, use convert(Record)");
+    }
+    return convert(marcXml);
+  }
+
+  @Override
+  public DublinCore convert(Record record) {
+    return convert(new MarcXml(record));
+  }
+
+  public DublinCore convert(MarcXml marcXml) {
+    return convert(marcXml, ALL_ELEMENTS);
+  }
+
+  /**
+   * Same as {@link #convert(Record)}, computing only the given elements.
+   */
+  public DublinCore convert(Record record, Set<DcElement> elements) {
+    return convert(new MarcXml(record), elements);
+  }
+
+  /**
+   * Same as {@link #convert(MarcXml)}, computing only the given elements, all
+   * other elements of the result are null.
+   * 
+   * @param elements elements to compute, e.g.
+   *                 <code>EnumSet.of(DcElement.TITLE, DcElement.CREATOR)</code>
+   */
+  public DublinCore convert(MarcXml marcXml, Set<DcElement> elements) {
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return doConvert(marcXml, elements);
+    }
+    long start = System.nanoTime();
+    try {
+      return doConvert(marcXml, elements);
+    } catch (RuntimeException e) {
+      listener.failed(Stage.CONVERT, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.CONVERT, System.nanoTime() - start);
+    }
+  }
+
+  public DublinCore convert(CompactRecord record) {
+    return convert(record, ALL_ELEMENTS);
+  }
+
+  /**
+   * Same as {@link #convert(MarcXml, Set)} for a compact record.
+   */
+  public DublinCore convert(CompactRecord record, Set<DcElement> elements) {
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return doConvert(record, elements);
+    }
+    long start = System.nanoTime();
+    try {
+      return doConvert(record, elements);
+    } catch (RuntimeException e) {
+      listener.failed(Stage.CONVERT, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.CONVERT, System.nanoTime() - start);
+    }
+  }
+
+  private DublinCore doConvert(CompactRecord record, Set<DcElement> elements) {
+    List<String>[] slots = collect(record, elements, pool);
+    String field008 = elements.contains(DcElement.LANGUAGE) ? record.getControlFieldByTag("008") : null;
+    return toDublinCore(slots, record.getTypeOfRecord(), record.getLeader(7), field008, elements, pool);
+  }
+
+  private DublinCore doConvert(MarcXml marcXml, Set<DcElement> elements) {
+    List<String>[] slots = collect(marcXml.getRecord(), elements, pool);
+    String field008 = elements.contains(DcElement.LANGUAGE) ? marcXml.getControlFieldByTag("008") : null;
+    return toDublinCore(slots, marcXml.getTypeOfRecord(), marcXml.getLeader(7), field008, elements, pool);
+  }
+
+  /**
+   * Create the Dublin Core record from the collected data field values, also
+   * used by {@link DublinCoreEventBuilder}.
+   * 
+   * @param slots    data field values by slot, see {@link Route}
+   * @param leader6  type of record
+   * @param leader7  bibliographic level
+   * @param field008 data of control field 008, null if none
+   * @param elements elements to set
+   * @param pool     pool for language and type, may be null
+   */
+  static DublinCore toDublinCore(List<String>[] slots, char leader6, char leader7, String field008,
+      Set<DcElement> elements, StringPool pool) {
     DublinCore dc = new DublinCore();
 
-    dc.setCreators(parseCreators());
-    dc.setDates(parseDates());
-    dc.setDescriptions(parseDescriptions());
+    if (elements.contains(DcElement.CREATOR)) {
+      dc.setCreators(parseCreators(slots));
+    }
+    if (elements.contains(DcElement.DATE)) {
+      dc.setDates(parseDates(slots));
+    }
+    if (elements.contains(DcElement.DESCRIPTION)) {
+      dc.setDescriptions(parseDescriptions(slots));
+    }
 //	dc.setFormat(null);
-    dc.setIdentifiers(parseIdentifiers());
-    dc.setLanguage(parseLanguage());
-    dc.setPublishers(parsePublishers());
+    if (elements.contains(DcElement.IDENTIFIER)) {
+      dc.setIdentifiers(parseIdentifiers(slots));
+    }
+    if (elements.contains(DcElement.LANGUAGE)) {
+      dc.setLanguage(parseLanguage(field008, pool));
+    }
+    if (elements.contains(DcElement.PUBLISHER)) {
+      dc.setPublishers(parsePublishers(slots));
+    }
     dc.setSubjects(null);
-    dc.setTitles(parseTitles());
-    dc.setType(parseType());
+    if (elements.contains(DcElement.TITLE)) {
+      dc.setTitles(parseTitles(slots));
+    }
+    if (elements.contains(DcElement.TYPE)) {
+      dc.setType(parseType(leader6, leader7, slots, pool));
+    }
 
     return dc;
   }
@@ -83,19 +439,8 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * </xsl:for-each>
    * </pre>
    */
-  private List<String> parseCreators() {
-    List<String> result = null;
-    List<String> tags = List.of("100", "110", "111", "700", "710", "711", "720");
-    for (String tag : tags) {
-      List<String> specifiedTagsContent = marcXml.getSubfieldsByTagAndCodes(tag, "abcdefghijklmnopqrstuvwxyz");
-      if (specifiedTagsContent != null) {
-        if (result == null) {
-          result = new ArrayList<>();
-        }
-        result.addAll(specifiedTagsContent);
-      }
-    }
-    return result;
+  private static List<String> parseCreators(List<String>[] slots) {
+    return join(slots, SLOT_CREATORS, SLOT_CREATORS + CREATOR_TAGS.length);
   }
 
   /**
@@ -129,11 +474,11 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * 
    * Regarding original records: I use 264 only and follow RDA compliance."
    */
-  private List<String> parseDates() {
-    List<String> result = marcXml.getSubfieldsByTagAndCodes("260", "c");
+  private static List<String> parseDates(List<String>[] slots) {
+    List<String> result = slots[SLOT_DATES_260];
 
     if (result == null || result.isEmpty()) {
-      result = marcXml.getSubfieldsByTagAndCodes("264", "c");
+      result = slots[SLOT_DATES_264];
     }
     return result;
   }
@@ -178,30 +523,10 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * </xsl:for-each>
    * </pre>
    */
-  private List<String> parseDescriptions() {
-    List<String> result = new ArrayList<>();
-    List<String> subfields520a = marcXml.getSubfieldsByTagAndCodes("520", "a");
-    if (subfields520a != null) {
-      result.addAll(subfields520a);
-    }
-    List<String> subfields521a = marcXml.getSubfieldsByTagAndCodes("521", "a");
-    if (subfields521a != null) {
-      result.addAll(subfields521a);
-    }
-    // also exclude 520 and 521 (differs from above xsl)
-    List<Integer> excludes = Arrays.asList(506, 520, 521, 530, 540, 546);
-    for (int i = 500; i <= 599; i++) {
-      if (!excludes.contains(i)) {
-        List<String> subfieldData = marcXml.getSubfieldsByTagAndCodes("" + i, "a");
-        if (subfieldData != null) {
-          result.addAll(subfieldData);
-        }
-      }
-    }
-    if (result.isEmpty()) {
-      return null;
-    }
-    return result;
+  private static List<String> parseDescriptions(List<String>[] slots) {
+    // 520, 521, then 500-599 without 506, 530, 540, 546 and also without 520
+    // and 521 (differs from above xsl)
+    return join(slots, SLOT_DESCRIPTIONS_520, SLOT_DESCRIPTIONS_5XX + 100);
   }
 
   /**
@@ -234,23 +559,8 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * </xsl:for-each>
    * </pre>
    */
-  private List<String> parseIdentifiers() {
-    List<String> uris = marcXml.getSubfieldsByTagAndCodes("856", "u");
-    List<String> isbns = marcXml.getSubfieldsByTagAndCodes("020", "a");
-    if (isbns != null) {
-      isbns = isbns.stream().map(i -> "URN:ISBN:" + i).collect(Collectors.toList());
-    }
-    List<String> result = null;
-    if (uris != null || isbns != null) {
-      result = new ArrayList<>();
-    }
-    if (uris != null) {
-      result.addAll(uris);
-    }
-    if (isbns != null) {
-      result.addAll(isbns);
-    }
-    return result;
+  private static List<String> parseIdentifiers(List<String>[] slots) {
+    return join(slots, SLOT_IDENTIFIERS_856, SLOT_IDENTIFIERS_020 + 1);
   }
 
   /**
@@ -269,9 +579,11 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * <dc:language> <xsl:value-of select="substring($controlField008,36,3)"/>
    * </dc:language>
    */
-  private String parseLanguage() {
-    String data = marcXml.getControlFieldByTag("008");
-    String lang = data.substring(35, 38);
+  private static String parseLanguage(String data, StringPool pool) {
+    if (data == null || data.length() < 38) {
+      return null;
+    }
+    String lang = pool == null ? data.substring(35, 38) : pool.intern(data, 35, 38);
     return lang;
   }
 
@@ -297,9 +609,8 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * </xsl:for-each>
    * </pre>
    */
-  private List<String> parsePublishers() {
-    List<String> publishers = marcXml.getSubfieldsByTagAndCodes("260", "ab");
-    return publishers;
+  private static List<String> parsePublishers(List<String>[] slots) {
+    return slots[SLOT_PUBLISHERS];
   }
 
   /**
@@ -319,9 +630,8 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * </xsl:for-each>
    * </pre>
    */
-  private List<String> parseTitles() {
-    List<String> result = marcXml.getSubfieldsByTagAndCodes("245", "abfghk");
-    return result;
+  private static List<String> parseTitles(List<String>[] slots) {
+    return slots[SLOT_TITLES];
   }
 
   /**
@@ -392,10 +702,8 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
    * </xsl:for-each>
    * </pre>
    */
-  private String parseType() {
+  private static String parseType(char leader6, char leader7, List<String>[] slots, StringPool pool) {
     String result = "";
-    char leader6 = marcXml.getTypeOfRecord();
-    char leader7 = marcXml.getLeader(7);
 
     if (leader7 == 'c') {
       result += "collection";
@@ -414,10 +722,33 @@ public class MarcXml2DublinCore implements MarcXmlConverter<DublinCore> {
     case 'm' -> result += "software, multimedia";
     case 'p' -> result += "mixed material";
     }
-    List<String> list655 = marcXml.getSubfieldsByTagAndCodes("655", "abcvxyz");
+    List<String> list655 = slots[SLOT_TYPES_655];
     if (list655 != null && !list655.isEmpty()) {
       result += String.join(" ", list655);
     }
-    return result;
+    return pool == null ? result : pool.intern(result);
+  }
+
+  /**
+   * Destination of the data of a field: the slot of a Dublin Core element and
+   * the subfields to concatenate.
+   */
+  static final class Route {
+
+    final DcElement element;
+    final int slot;
+    final SubfieldSelector selector;
+    final String prefix;
+    // value repeating across records, deduplicated if a pool is given
+    final boolean pooled;
+
+    Route(DcElement element, int slot, String codes, String prefix) {
+      this.element = element;
+      this.slot = slot;
+      this.selector = SubfieldSelector.of(codes);
+      this.prefix = prefix;
+      this.pooled = prefix == null && (element == DcElement.CREATOR || element == DcElement.DATE
+          || element == DcElement.PUBLISHER || element == DcElement.TYPE);
+    }
   }
 }
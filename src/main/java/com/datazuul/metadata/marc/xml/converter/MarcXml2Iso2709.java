@@ -0,0 +1,121 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.marc4j.MarcStreamWriter;
+import org.marc4j.marc.Leader;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.VariableField;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+import com.datazuul.metadata.marc.xml.event.RecordEventBuilder;
+import com.datazuul.metadata.marc.xml.metrics.Metrics;
+import com.datazuul.metadata.marc.xml.metrics.MetricsListener;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * <p>
+ * Converts MARC-XML to binary MARC (ISO 2709), UTF-8 encoded (leader position
+ * 9 set to 'a'). The result can be read again with
+ * {@link com.datazuul.metadata.marc.xml.MarcXmlRecord#from(InputStream)}.
+ *
+ * <p>
+ * {@link #transcode(InputStream, OutputStream)} converts whole dumps: records
+ * are built from MARC-XML events on the calling thread, without the parser
+ * thread of {@link org.marc4j.MarcXmlReader}. Records longer than 99999 bytes
+ * (the limit of the format) fail with a {@link org.marc4j.MarcException}.
+ */
+public class MarcXml2Iso2709 implements MarcXmlConverter<byte[]>, RecordConverter<byte[]> {
+
+  private static final String ENCODING = "UTF-8";
+  private static final MarcFactory FACTORY = MarcFactory.newInstance();
+
+  /**
+   * Write all records of the given MARC-XML source to the output stream (which
+   * is not closed).
+   *
+   * @return number of records
+   */
+  public static long transcode(InputStream is, OutputStream os) throws IOException {
+    MarcStreamWriter writer = new MarcStreamWriter(os, ENCODING);
+    RecordEventBuilder builder = new RecordEventBuilder();
+    long count = 0;
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(is)) {
+      while (reader.next(builder)) {
+        Record record = builder.getRecord();
+        record.getLeader().setCharCodingScheme('a');
+        writer.write(record);
+        count++;
+      }
+    }
+    os.flush();
+    return count;
+  }
+
+  private final MarcXml marcXml;
+
+  /**
+   * Create a stateless converter, see {@link #convert(Record)}.
+   */
+  public MarcXml2Iso2709() {
+    this(null);
+  }
+
+  /**
+   * Create a converter bound to the given record, see {@link #convert()}.
+   */
+  public MarcXml2Iso2709(MarcXml marcXml) {
+    this.marcXml = marcXml;
+  }
+
+  @Override
+  public byte[] convert() {
+    if (marcXml == null) {
+      throw new IllegalStateException("No record given at construction time, use convert(Record)");
+    }
+    return convert(marcXml.getRecord());
+  }
+
+  @Override
+  public byte[] convert(Record record) {
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return write(record);
+    }
+    long start = System.nanoTime();
+    try {
+      return write(record);
+    } catch (RuntimeException e) {
+      listener.failed(Stage.CONVERT, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.CONVERT, System.nanoTime() - start);
+    }
+  }
+
+  private static byte[] write(Record record) {
+    ByteArrayOutputStream os = new ByteArrayOutputStream(2048);
+    new MarcStreamWriter(os, ENCODING).write(utf8Copy(record));
+    return os.toByteArray();
+  }
+
+  /**
+   * @return copy of the record sharing its fields, with a leader of its own
+   *         (the writer also sets record length and base address), so that
+   *         the given record is not modified
+   */
+  private static Record utf8Copy(Record record) {
+    Leader leader = FACTORY.newLeader(record.getLeader().marshal());
+    leader.setCharCodingScheme('a');
+    Record copy = FACTORY.newRecord(leader);
+    for (VariableField field : record.getVariableFields()) {
+      copy.addVariableField(field);
+    }
+    return copy;
+  }
+}
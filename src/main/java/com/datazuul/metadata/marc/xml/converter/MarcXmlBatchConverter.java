@@ -0,0 +1,364 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.marc4j.MarcException;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXmlRecordIterator;
+import com.datazuul.metadata.marc.xml.MarcXmlRecordSplitter;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+import com.datazuul.metadata.marc.xml.event.RecordEventBuilder;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * <p>
+ * Converts all records of a MARC-XML source in parallel: records are parsed on
+ * a reader thread, converted on the given executor (e.g. a
+ * {@link ForkJoinPool} or, on Java 21+, a virtual thread per task executor) and
+ * handed to the sink on the calling thread.
+ *
+ * <p>
+ * At most <code>maxInFlight</code> records are parsed but not yet consumed by
+ * the sink: the reader blocks until the sink catches up, so heap usage does not
+ * depend on the size of the source. Results are passed to the sink in input
+ * order if <code>ordered</code> is set, otherwise as soon as they are
+ * converted.
+ *
+ * <p>
+ * The converter must be thread safe for {@link RecordConverter#convert(Record)},
+ * as {@link MarcXml2DublinCore} is.
+ *
+ * <p>
+ * {@link #convert(InputStream, Consumer)} stops at the first failure.
+ * {@link #convert(InputStream, Consumer, DeadLetterSink, Checkpoint)} isolates
+ * the records: the source is cut into raw records, each is parsed and
+ * converted on its own, failing records are passed to a dead letter sink and
+ * the run goes on.
+ */
+public class MarcXmlBatchConverter<T> {
+
+  /**
+   * Number of records between two checkpoints of a fault tolerant run.
+   */
+  public static final int CHECKPOINT_INTERVAL = 1000;
+
+  private final RecordConverter<T> converter;
+  private final Executor executor;
+  private final int maxInFlight;
+  private final boolean ordered;
+
+  /**
+   * Convert on the common {@link ForkJoinPool}, keeping input order.
+   */
+  public MarcXmlBatchConverter(RecordConverter<T> converter) {
+    this(converter, ForkJoinPool.commonPool(), 4 * Runtime.getRuntime().availableProcessors(), true);
+  }
+
+  public MarcXmlBatchConverter(RecordConverter<T> converter, Executor executor, int maxInFlight,
+      boolean ordered) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    this.converter = converter;
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+    this.ordered = ordered;
+  }
+
+  /**
+   * Convert all records of the given source. Blocks until all records have been
+   * passed to the sink. The first failure (parsing, conversion or sink) stops
+   * the run and is rethrown.
+   *
+   * @return number of converted records
+   */
+  public long convert(InputStream is, Consumer<? super T> sink) {
+    Run<T> run = new Run<>(ordered, tasks -> {
+      try (MarcXmlRecordIterator records = new MarcXmlRecordIterator(is)) {
+        while (records.hasNext()) {
+          Record record = records.next();
+          tasks.submit(() -> converter.convert(record));
+        }
+      }
+    });
+    return run.start(sink);
+  }
+
+  /**
+   * <p>
+   * Convert all records of the given source, passing records that can not be
+   * parsed (e.g. truncated) or converted to the dead letter sink with their raw
+   * MARC-XML instead of stopping. Only failures reading the source and
+   * failures of the sinks or the checkpoint stop the run.
+   *
+   * <p>
+   * Results are passed in input order (independent of <code>ordered</code>).
+   * Every {@link #CHECKPOINT_INTERVAL} records and at the end (also of a failed
+   * run) the offset of the next record is saved to the checkpoint; a run started with an existing
+   * checkpoint skips the records before its offset without parsing them.
+   *
+   * @param checkpoint checkpoint to resume from and to update, null for none
+   */
+  public BatchResult convert(InputStream is, Consumer<? super T> sink, DeadLetterSink deadLetters,
+      Checkpoint checkpoint) throws IOException {
+    long startOffset = checkpoint == null ? 0 : checkpoint.load();
+    AtomicLong skipped = new AtomicLong();
+    Run<Outcome<T>> run = new Run<>(true, tasks -> {
+      try (MarcXmlRecordSplitter splitter = new MarcXmlRecordSplitter(is)) {
+        long offset = 0;
+        for (byte[] record = splitter.next(); record != null; record = splitter.next(), offset++) {
+          if (offset < startOffset) {
+            skipped.incrementAndGet();
+            continue;
+          }
+          long recordOffset = offset;
+          byte[] document = splitter.document(record);
+          tasks.submit(() -> process(recordOffset, document));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    Progress progress = new Progress(startOffset, sink, deadLetters, checkpoint);
+    try {
+      run.start(progress);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      // also after a failure, so that a rerun resumes after the consumed records
+      progress.save();
+    }
+    return new BatchResult(skipped.get(), progress.converted, progress.failed);
+  }
+
+  private Outcome<T> process(long offset, byte[] document) {
+    Record record;
+    try {
+      record = parse(document);
+    } catch (RuntimeException e) {
+      return new Outcome<>(null, new DeadLetter(offset, document, Stage.PARSE, e));
+    }
+    try {
+      return new Outcome<>(converter.convert(record), null);
+    } catch (RuntimeException e) {
+      return new Outcome<>(null, new DeadLetter(offset, document, Stage.CONVERT, e));
+    }
+  }
+
+  /**
+   * Parse a single record document without a parser thread.
+   */
+  private static Record parse(byte[] document) {
+    RecordEventBuilder builder = new RecordEventBuilder();
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(new ByteArrayInputStream(document))) {
+      if (!reader.next(builder)) {
+        throw new MarcException("No record found");
+      }
+      return builder.getRecord();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Result of the fault tolerant processing of one record: converted record or
+   * dead letter.
+   */
+  private static final class Outcome<T> {
+
+    final T converted;
+    final DeadLetter deadLetter;
+
+    Outcome(T converted, DeadLetter deadLetter) {
+      this.converted = converted;
+      this.deadLetter = deadLetter;
+    }
+  }
+
+  /**
+   * Passes the outcomes of a fault tolerant run to the sinks and saves the
+   * checkpoint, on the consuming thread.
+   */
+  private final class Progress implements Consumer<Outcome<T>> {
+
+    private final Consumer<? super T> sink;
+    private final DeadLetterSink deadLetters;
+    private final Checkpoint checkpoint;
+    private long offset;
+    private long converted;
+    private long failed;
+
+    Progress(long offset, Consumer<? super T> sink, DeadLetterSink deadLetters, Checkpoint checkpoint) {
+      this.offset = offset;
+      this.sink = sink;
+      this.deadLetters = deadLetters;
+      this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public void accept(Outcome<T> outcome) {
+      try {
+        if (outcome.deadLetter == null) {
+          sink.accept(outcome.converted);
+          converted++;
+        } else {
+          deadLetters.accept(outcome.deadLetter);
+          failed++;
+        }
+        offset++;
+        if ((converted + failed) % CHECKPOINT_INTERVAL == 0) {
+          save();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void save() throws IOException {
+      if (checkpoint != null) {
+        checkpoint.save(offset);
+      }
+    }
+  }
+
+  /**
+   * Submits the tasks of a run, blocking while <code>maxInFlight</code> results
+   * are pending.
+   */
+  @FunctionalInterface
+  private interface Tasks<R> {
+
+    void submit(Supplier<R> task) throws InterruptedException;
+  }
+
+  /**
+   * Reads the source and submits a task per record.
+   */
+  @FunctionalInterface
+  private interface Producer<R> {
+
+    void produce(Tasks<R> tasks) throws InterruptedException;
+  }
+
+  /**
+   * State of one run, shared by reader and consuming thread.
+   */
+  private final class Run<R> {
+
+    private final boolean inOrder;
+    private final Producer<R> producer;
+    private final Semaphore permits = new Semaphore(maxInFlight);
+    private final BlockingQueue<CompletableFuture<R>> results = new LinkedBlockingQueue<>();
+    private final CompletableFuture<R> end = new CompletableFuture<>();
+    private long count;
+    private volatile long submitted;
+    // anything thrown by the reader, including errors, ends the run
+    private volatile Throwable readFailure;
+
+    Run(boolean inOrder, Producer<R> producer) {
+      this.inOrder = inOrder;
+      this.producer = producer;
+    }
+
+    long start(Consumer<? super R> sink) {
+      Thread readerThread = new Thread(this::read, "marc-xml-batch-reader");
+      readerThread.setDaemon(true);
+      readerThread.start();
+      try {
+        return consume(sink);
+      } catch (RuntimeException | Error e) {
+        readerThread.interrupt();
+        throw e;
+      }
+    }
+
+    private void submit(Supplier<R> task) throws InterruptedException {
+      permits.acquire();
+      CompletableFuture<R> result = CompletableFuture.supplyAsync(task, executor);
+      if (inOrder) {
+        results.add(result);
+      } else {
+        result.whenComplete((r, e) -> results.add(result));
+      }
+      count++;
+    }
+
+    void read() {
+      try {
+        producer.produce(this::submit);
+      } catch (InterruptedException e) {
+        // consumer failed and stopped the run
+        Thread.currentThread().interrupt();
+      } catch (Throwable e) {
+        readFailure = e;
+      } finally {
+        submitted = count;
+        results.add(end);
+      }
+    }
+
+    long consume(Consumer<? super R> sink) {
+      long consumed = 0;
+      boolean ended = false;
+      while (!ended || consumed < submitted) {
+        CompletableFuture<R> result = take();
+        if (result == end) {
+          ended = true;
+          if (readFailure != null) {
+            throw rethrow(readFailure);
+          }
+          continue;
+        }
+        R converted = get(result);
+        permits.release();
+        sink.accept(converted);
+        consumed++;
+      }
+      return consumed;
+    }
+
+    private CompletableFuture<R> take() {
+      try {
+        return results.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MarcException("Interrupted while waiting for converted record", e);
+      }
+    }
+
+    private R get(CompletableFuture<R> result) {
+      try {
+        return result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MarcException("Interrupted while waiting for converted record", e);
+      } catch (ExecutionException e) {
+        throw rethrow(e.getCause());
+      }
+    }
+
+    private RuntimeException rethrow(Throwable failure) {
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      throw new MarcException("Conversion failed", failure);
+    }
+  }
+}
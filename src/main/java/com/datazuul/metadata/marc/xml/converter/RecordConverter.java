@@ -0,0 +1,16 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import org.marc4j.marc.Record;
+
+/**
+ * Stateless conversion of records, e.g. by {@link MarcXmlBatchConverter}.
+ */
+@FunctionalInterface
+public interface RecordConverter<T> {
+
+  /**
+   * Convert the given record. Implementations should be thread safe for this
+   * method, so that one instance can serve all threads.
+   */
+  public T convert(Record record);
+}
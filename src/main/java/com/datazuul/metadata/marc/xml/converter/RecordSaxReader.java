@@ -0,0 +1,92 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.io.IOException;
+
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.Subfield;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Emits the SAX events of the MARC-XML representation
+ * (<code>collection/record</code>) of a record, so that it can be used as
+ * {@link javax.xml.transform.sax.SAXSource} without serializing it.
+ */
+class RecordSaxReader extends XMLFilterImpl {
+
+  static final String MARCXML_NAMESPACE = "http://www.loc.gov/MARC21/slim";
+
+  private static final AttributesImpl NO_ATTRIBUTES = new AttributesImpl();
+
+  private final Record record;
+  private final AttributesImpl attributes = new AttributesImpl();
+
+  RecordSaxReader(Record record) {
+    this.record = record;
+  }
+
+  @Override
+  public void parse(InputSource input) throws SAXException, IOException {
+    ContentHandler handler = getContentHandler();
+    handler.startDocument();
+    handler.startPrefixMapping("", MARCXML_NAMESPACE);
+    startElement(handler, "collection", NO_ATTRIBUTES);
+    startElement(handler, "record", NO_ATTRIBUTES);
+
+    startElement(handler, "leader", NO_ATTRIBUTES);
+    characters(handler, record.getLeader().marshal());
+    endElement(handler, "leader");
+
+    for (ControlField controlField : record.getControlFields()) {
+      attributes.clear();
+      addAttribute("tag", controlField.getTag());
+      startElement(handler, "controlfield", attributes);
+      characters(handler, controlField.getData());
+      endElement(handler, "controlfield");
+    }
+    for (DataField dataField : record.getDataFields()) {
+      attributes.clear();
+      addAttribute("tag", dataField.getTag());
+      addAttribute("ind1", String.valueOf(dataField.getIndicator1()));
+      addAttribute("ind2", String.valueOf(dataField.getIndicator2()));
+      startElement(handler, "datafield", attributes);
+      for (Subfield subfield : dataField.getSubfields()) {
+        attributes.clear();
+        addAttribute("code", String.valueOf(subfield.getCode()));
+        startElement(handler, "subfield", attributes);
+        characters(handler, subfield.getData());
+        endElement(handler, "subfield");
+      }
+      endElement(handler, "datafield");
+    }
+
+    endElement(handler, "record");
+    endElement(handler, "collection");
+    handler.endPrefixMapping("");
+    handler.endDocument();
+  }
+
+  private void addAttribute(String name, String value) {
+    attributes.addAttribute("", name, name, "CDATA", value);
+  }
+
+  private static void startElement(ContentHandler handler, String name, AttributesImpl attributes)
+      throws SAXException {
+    handler.startElement(MARCXML_NAMESPACE, name, name, attributes);
+  }
+
+  private static void endElement(ContentHandler handler, String name) throws SAXException {
+    handler.endElement(MARCXML_NAMESPACE, name, name);
+  }
+
+  private static void characters(ContentHandler handler, String data) throws SAXException {
+    if (data != null && !data.isEmpty()) {
+      handler.characters(data.toCharArray(), 0, data.length());
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.marc4j.MarcException;
+import org.marc4j.marc.Record;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.dublincore.DublinCoreXmlWriter;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.metrics.Metrics;
+import com.datazuul.metadata.marc.xml.metrics.MetricsListener;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * <p>
+ * Converts MARC-XML to Dublin Core by running the XSL-Transformation
+ * MARC21slim2OAIDC.xsl of the Library of Congress (bundled with
+ * MARC21slimUtils.xsl, so no network access is needed).
+ *
+ * <p>
+ * The stylesheet is compiled once per JVM into thread safe {@link Templates},
+ * {@link Transformer}s are pooled. Records are fed to the transformation as SAX
+ * events and the resulting oai_dc elements are collected without building a
+ * document, Dublin Core elements without a property in {@link DublinCore}
+ * (format, coverage, relation, rights) are dropped. Multiple
+ * <code>dc:type</code> elements are concatenated the same way
+ * {@link MarcXml2DublinCore} does: the type derived from the leader followed by
+ * the 655 values separated by blanks.
+ *
+ * <p>
+ * Instances are thread safe.
+ */
+public class XsltMarcXml2DublinCore implements MarcXmlConverter<DublinCore>, RecordConverter<DublinCore> {
+
+  private static final String STYLESHEET = "MARC21slim2OAIDC.xsl";
+  private static final String UTILS_STYLESHEET = "MARC21slimUtils.xsl";
+
+  /**
+   * Compiled stylesheet, created on first use.
+   */
+  private static final class TemplatesHolder {
+    private static final Templates TEMPLATES = compile();
+
+    private static Templates compile() {
+      TransformerFactory factory = TransformerFactory.newInstance();
+      // imported from http://www.loc.gov/standards/marcxml/xslt/MARC21slimUtils.xsl
+      factory.setURIResolver((href, base) -> {
+        if (href.endsWith("/" + UTILS_STYLESHEET)) {
+          return source(UTILS_STYLESHEET);
+        }
+        return null;
+      });
+      try {
+        return factory.newTemplates(source(STYLESHEET));
+      } catch (TransformerConfigurationException e) {
+        throw new IllegalStateException("Can not compile " + STYLESHEET, e);
+      }
+    }
+
+    private static StreamSource source(String name) {
+      URL url = XsltMarcXml2DublinCore.class.getResource(name);
+      if (url == null) {
+        throw new IllegalStateException("Missing stylesheet " + name);
+      }
+      return new StreamSource(url.toExternalForm());
+    }
+  }
+
+  private final Queue<Transformer> transformers = new ConcurrentLinkedQueue<>();
+  private final MarcXml marcXml;
+
+  /**
+   * Create a stateless converter, see {@link #convert(Record)}.
+   */
+  public XsltMarcXml2DublinCore() {
+    this(null);
+  }
+
+  /**
+   * Create a converter bound to the given record, see {@link #convert()}.
+   */
+  public XsltMarcXml2DublinCore(MarcXml marcXml) {
+    this.marcXml = marcXml;
+  }
+
+  @Override
+  public DublinCore convert() {
+    if (marcXml == null) {
+      throw new IllegalStateException("No record given at construction time, use convert(Record)");
+    }
+    return convert(marcXml.getRecord());
+  }
+
+  @Override
+  public DublinCore convert(Record record) {
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return transform(record);
+    }
+    long start = System.nanoTime();
+    try {
+      return transform(record);
+    } catch (RuntimeException e) {
+      listener.failed(Stage.CONVERT, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.CONVERT, System.nanoTime() - start);
+    }
+  }
+
+  private DublinCore transform(Record record) {
+    Transformer transformer = borrowTransformer();
+    try {
+      DublinCoreHandler handler = new DublinCoreHandler();
+      transformer.transform(new SAXSource(new RecordSaxReader(record), new InputSource()), new SAXResult(handler));
+      return handler.getDublinCore();
+    } catch (TransformerException e) {
+      throw new MarcException("XSL-Transformation of record " + record.getControlNumber() + " failed", e);
+    } finally {
+      transformer.reset();
+      transformers.offer(transformer);
+    }
+  }
+
+  private Transformer borrowTransformer() {
+    Transformer transformer = transformers.poll();
+    if (transformer != null) {
+      return transformer;
+    }
+    try {
+      return TemplatesHolder.TEMPLATES.newTransformer();
+    } catch (TransformerConfigurationException e) {
+      throw new IllegalStateException("Can not create transformer for " + STYLESHEET, e);
+    }
+  }
+
+  /**
+   * Collects the <code>dc:*</code> elements of the transformation result.
+   */
+  private static final class DublinCoreHandler extends DefaultHandler {
+
+    private final StringBuilder text = new StringBuilder();
+    private final List<String> types = new ArrayList<>();
+    private final DublinCore dc = new DublinCore();
+    private boolean inElement;
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      if (DublinCoreXmlWriter.DC_NAMESPACE.equals(uri)) {
+        text.setLength(0);
+        inElement = true;
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (inElement) {
+        text.append(ch, start, length);
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      if (!DublinCoreXmlWriter.DC_NAMESPACE.equals(uri)) {
+        return;
+      }
+      inElement = false;
+      String value = text.toString().trim();
+      switch (localName) {
+      case "title" -> dc.setTitles(add(dc.getTitles(), value));
+      case "creator" -> dc.setCreators(add(dc.getCreators(), value));
+      case "type" -> types.add(value);
+      case "publisher" -> dc.setPublishers(add(dc.getPublishers(), value));
+      case "date" -> dc.setDates(add(dc.getDates(), value));
+      case "language" -> dc.setLanguage(value);
+      case "description" -> dc.setDescriptions(add(dc.getDescriptions(), value));
+      case "subject" -> dc.setSubjects(add(dc.getSubjects(), value));
+      case "identifier" -> dc.setIdentifiers(add(dc.getIdentifiers(), value));
+      default -> {
+        // no property in DublinCore
+      }
+      }
+    }
+
+    private static List<String> add(List<String> values, String value) {
+      if (values == null) {
+        values = new ArrayList<>();
+      }
+      values.add(value);
+      return values;
+    }
+
+    DublinCore getDublinCore() {
+      if (!types.isEmpty()) {
+        String type = types.get(0);
+        if (types.size() > 1) {
+          type += String.join(" ", types.subList(1, types.size()));
+        }
+        dc.setType(type);
+      }
+      return dc;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package com.datazuul.metadata.marc.xml.dedup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+
+/**
+ * <p>
+ * Finds duplicate records across catalogues by their identifiers (035 system
+ * numbers, 020 ISBNs, 001 control numbers, see {@link IdentifierKeys}):
+ * records sharing an identifier, directly or through other records, form a
+ * cluster.
+ *
+ * <pre>
+ * DuplicateIndex index = new DuplicateIndex(50_000_000, true);
+ * records.forEachRemaining(index::add);
+ * for (int[] cluster : index.getClusters()) {
+ *   ...
+ * }
+ * </pre>
+ *
+ * <p>
+ * Records are numbered in the order they are added (starting at 0). Per
+ * identifier only its 64 bit key and the number of the first record with it
+ * are kept, in a {@link LongIntHashMap} (optionally outside of the heap), per
+ * record a parent number for the clustering (union-find): about 4 bytes per
+ * record and 17 bytes per distinct identifier, no objects.
+ *
+ * <p>
+ * Not thread safe.
+ */
+public class DuplicateIndex {
+
+  private static final int MISSING = -1;
+
+  private final LongIntHashMap firstRecords;
+  private final LongConsumer keyCollector = this::collectKey;
+  // union-find forest: parent record of each record, roots are their own parent
+  private int[] parents = new int[1024];
+  private int recordCount;
+  private long[] keys = new long[16];
+  private int keyCount;
+
+  public DuplicateIndex() {
+    this(1024, false);
+  }
+
+  /**
+   * @param expectedIdentifiers number of distinct identifiers the index is sized
+   *                            for
+   * @param offHeap             keep the identifier map outside of the heap
+   */
+  public DuplicateIndex(long expectedIdentifiers, boolean offHeap) {
+    this.firstRecords = new LongIntHashMap(expectedIdentifiers, offHeap);
+  }
+
+  private void collectKey(long key) {
+    if (keyCount == keys.length) {
+      keys = Arrays.copyOf(keys, keyCount * 2);
+    }
+    keys[keyCount++] = key;
+  }
+
+  /**
+   * Add the record and join it to the clusters of all earlier records sharing
+   * an identifier.
+   *
+   * @return number of the record
+   */
+  public int add(Record record) {
+    keyCount = 0;
+    IdentifierKeys.forEachKey(record, keyCollector);
+    return add(keys, keyCount);
+  }
+
+  public int add(MarcXml marcXml) {
+    return add(marcXml.getRecord());
+  }
+
+  /**
+   * Add a record with the given identifier keys (e.g. from another source).
+   *
+   * @return number of the record
+   */
+  public int add(long[] identifierKeys, int count) {
+    if (recordCount == Integer.MAX_VALUE) {
+      throw new IllegalStateException("Too many records");
+    }
+    int record = recordCount;
+    if (record == parents.length) {
+      parents = Arrays.copyOf(parents, (int) Math.min(Integer.MAX_VALUE, parents.length * 2L));
+    }
+    parents[record] = record;
+    recordCount++;
+    for (int i = 0; i < count; i++) {
+      int first = firstRecords.putIfAbsent(identifierKeys[i], record, MISSING);
+      if (first != MISSING) {
+        union(first, record);
+      }
+    }
+    return record;
+  }
+
+  /**
+   * Streaming check, without adding the record.
+   *
+   * @return number of an earlier record sharing an identifier with the record,
+   *         -1 if none
+   */
+  public int seenBefore(Record record) {
+    keyCount = 0;
+    IdentifierKeys.forEachKey(record, keyCollector);
+    for (int i = 0; i < keyCount; i++) {
+      int first = firstRecords.get(keys[i], MISSING);
+      if (first != MISSING) {
+        return first;
+      }
+    }
+    return MISSING;
+  }
+
+  /**
+   * @return smallest number of the records in the cluster of the record
+   */
+  public int getCluster(int record) {
+    if (record < 0 || record >= recordCount) {
+      throw new IndexOutOfBoundsException("No record " + record);
+    }
+    return find(record);
+  }
+
+  private int find(int record) {
+    int root = record;
+    while (parents[root] != root) {
+      root = parents[root];
+    }
+    // path compression
+    while (parents[record] != root) {
+      int parent = parents[record];
+      parents[record] = root;
+      record = parent;
+    }
+    return root;
+  }
+
+  private void union(int a, int b) {
+    int rootA = find(a);
+    int rootB = find(b);
+    // the smaller number becomes the root, so roots are the first records
+    if (rootA < rootB) {
+      parents[rootB] = rootA;
+    } else if (rootB < rootA) {
+      parents[rootA] = rootB;
+    }
+  }
+
+  /**
+   * @return clusters of more than one record, each sorted by record number,
+   *         ordered by their first record
+   */
+  public List<int[]> getClusters() {
+    int[] sizes = new int[recordCount];
+    for (int record = 0; record < recordCount; record++) {
+      sizes[find(record)]++;
+    }
+    // the sizes of the roots are replaced by the index of their cluster
+    List<int[]> clusters = new ArrayList<>();
+    int[] clusterIndex = sizes;
+    for (int record = 0; record < recordCount; record++) {
+      int root = parents[record];
+      if (root == record) {
+        if (sizes[record] > 1) {
+          clusters.add(new int[sizes[record]]);
+          clusterIndex[record] = clusters.size() - 1;
+        } else {
+          clusterIndex[record] = MISSING;
+        }
+      }
+    }
+    int[] filled = new int[clusters.size()];
+    for (int record = 0; record < recordCount; record++) {
+      int index = clusterIndex[parents[record]];
+      if (index != MISSING) {
+        clusters.get(index)[filled[index]++] = record;
+      }
+    }
+    return clusters;
+  }
+
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * @return number of distinct identifiers
+   */
+  public int getIdentifierCount() {
+    return firstRecords.size();
+  }
+}
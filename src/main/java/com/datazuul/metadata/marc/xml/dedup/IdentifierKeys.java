@@ -0,0 +1,210 @@
+package com.datazuul.metadata.marc.xml.dedup;
+
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.Subfield;
+import org.marc4j.marc.VariableField;
+
+import com.datazuul.metadata.marc.xml.Fnv1a;
+
+/**
+ * <p>
+ * Normalized identifiers of a record hashed to 64 bit keys, for duplicate
+ * detection without keeping the identifier strings:
+ * <ul>
+ * <li>035 system numbers (the values of
+ * {@link com.datazuul.metadata.marc.xml.MarcXml#getIdentifiers()}): without
+ * whitespace, upper case organization prefix, OCLC numbers without "ocm",
+ * "ocn", "on" and leading zeros, e.g. "(OCoLC)ocm00012345" and
+ * "(OCoLC)12345" are the same key</li>
+ * <li>020 $a ISBNs: without hyphens and qualifiers, ISBN-10 converted to
+ * ISBN-13</li>
+ * <li>001 control number, qualified by the 003 control number identifier if
+ * present (control numbers of different catalogues are not related)</li>
+ * </ul>
+ *
+ * <p>
+ * The kind of identifier is hashed with its value, so that equal values of
+ * different kinds (e.g. an 001 control number looking like an ISBN) get
+ * different keys. Any two different identifiers, of the same or of different
+ * kinds, still collide with hash-collision probability: about
+ * n<sup>2</sup>/2<sup>65</sup> for n identifiers. {@link DuplicateIndex} does
+ * not detect such a collision and reports the records as duplicates.
+ */
+public final class IdentifierKeys {
+
+  private static final char SYSTEM_NUMBER = '5';
+  private static final char ISBN = 'I';
+  private static final char CONTROL_NUMBER = 'C';
+
+  private IdentifierKeys() {
+  }
+
+  /**
+   * Pass the keys of all identifiers of the record to the action (a key may be
+   * passed more than once).
+   */
+  public static void forEachKey(Record record, LongConsumer action) {
+    ControlField controlNumber = record.getControlNumberField();
+    if (controlNumber != null && controlNumber.getData() != null && !controlNumber.getData().isBlank()) {
+      VariableField qualifier = record.getVariableField("003");
+      String organization = qualifier instanceof ControlField ? ((ControlField) qualifier).getData() : null;
+      action.accept(controlNumberKey(organization, controlNumber.getData()));
+    }
+    List<DataField> dataFields = record.getDataFields();
+    for (int i = 0, size = dataFields.size(); i < size; i++) {
+      DataField dataField = dataFields.get(i);
+      String tag = dataField.getTag();
+      if ("035".equals(tag)) {
+        Subfield subfield = dataField.getSubfield('a');
+        if (subfield == null) {
+          // same as MarcXml.getIdentifiers()
+          subfield = dataField.getSubfield('9');
+        }
+        long key = subfield == null ? 0 : systemNumberKey(subfield.getData());
+        if (key != 0) {
+          action.accept(key);
+        }
+      } else if ("020".equals(tag)) {
+        for (Subfield subfield : dataField.getSubfields('a')) {
+          long key = isbnKey(subfield.getData());
+          if (key != 0) {
+            action.accept(key);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return key of the 035 system number, 0 if it is blank
+   */
+  public static long systemNumberKey(String systemNumber) {
+    String normalized = normalizeSystemNumber(systemNumber);
+    return normalized == null ? 0 : hash(SYSTEM_NUMBER, normalized);
+  }
+
+  /**
+   * @return key of the ISBN, 0 if it is not an ISBN-10 or ISBN-13
+   */
+  public static long isbnKey(String isbn) {
+    String normalized = normalizeIsbn(isbn);
+    return normalized == null ? 0 : hash(ISBN, normalized);
+  }
+
+  /**
+   * @param organization 003 control number identifier, null if unknown
+   * @return key of the 001 control number
+   */
+  public static long controlNumberKey(String organization, String controlNumber) {
+    StringBuilder sb = new StringBuilder();
+    if (organization != null) {
+      appendWithoutWhitespace(sb, organization);
+      for (int i = 0; i < sb.length(); i++) {
+        sb.setCharAt(i, Character.toUpperCase(sb.charAt(i)));
+      }
+    }
+    sb.append(':');
+    appendWithoutWhitespace(sb, controlNumber);
+    return hash(CONTROL_NUMBER, sb);
+  }
+
+  /**
+   * @return system number without whitespace, prefix in upper case, OCLC
+   *         numbers without letters and leading zeros, null if blank
+   */
+  public static String normalizeSystemNumber(String systemNumber) {
+    if (systemNumber == null) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder(systemNumber.length());
+    appendWithoutWhitespace(sb, systemNumber);
+    if (sb.length() == 0) {
+      return null;
+    }
+    int bodyStart = 0;
+    if (sb.charAt(0) == '(') {
+      int end = sb.indexOf(")");
+      if (end > 0) {
+        for (int i = 1; i < end; i++) {
+          sb.setCharAt(i, Character.toUpperCase(sb.charAt(i)));
+        }
+        bodyStart = end + 1;
+      }
+    }
+    if (bodyStart > 0 && "(OCOLC)".contentEquals(sb.subSequence(0, bodyStart))) {
+      int digits = bodyStart;
+      while (digits < sb.length() && Character.isLetter(sb.charAt(digits))) {
+        digits++;
+      }
+      while (digits < sb.length() - 1 && sb.charAt(digits) == '0') {
+        digits++;
+      }
+      sb.delete(bodyStart, digits);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return ISBN-13 without hyphens, null if the value does not start with an
+   *         ISBN-10 or ISBN-13 (e.g. "3-89573-106-6 (pbk.)" gives
+   *         "9783895731065")
+   */
+  public static String normalizeIsbn(String isbn) {
+    if (isbn == null) {
+      return null;
+    }
+    StringBuilder digits = new StringBuilder(13);
+    int i = 0;
+    int length = isbn.length();
+    while (i < length && Character.isWhitespace(isbn.charAt(i))) {
+      i++;
+    }
+    for (; i < length && digits.length() <= 13; i++) {
+      char c = isbn.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits.append(c);
+      } else if (c == 'X' || c == 'x') {
+        digits.append('X');
+      } else if (c != '-') {
+        break;
+      }
+    }
+    if (digits.length() == 13 && digits.indexOf("X") < 0) {
+      return digits.toString();
+    }
+    if (digits.length() != 10 || digits.indexOf("X") >= 0 && digits.indexOf("X") != 9) {
+      return null;
+    }
+    digits.setLength(9);
+    digits.insert(0, "978");
+    int sum = 0;
+    for (int j = 0; j < 12; j++) {
+      sum += (digits.charAt(j) - '0') * (j % 2 == 0 ? 1 : 3);
+    }
+    digits.append((char) ('0' + (10 - sum % 10) % 10));
+    return digits.toString();
+  }
+
+  private static void appendWithoutWhitespace(StringBuilder sb, String value) {
+    for (int i = 0, length = value.length(); i < length; i++) {
+      char c = value.charAt(i);
+      if (!Character.isWhitespace(c)) {
+        sb.append(c);
+      }
+    }
+  }
+
+  /**
+   * @return FNV-1a hash of kind and value, finished with the MurmurHash3 mix
+   *         for well distributed low bits
+   */
+  static long hash(char kind, CharSequence value) {
+    long hash = Fnv1a.hash(Fnv1a.OFFSET_BASIS, kind);
+    return Fnv1a.mix(Fnv1a.hash(hash, value, 0, value.length()));
+  }
+}
@@ -0,0 +1,179 @@
+package com.datazuul.metadata.marc.xml.dedup;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * <p>
+ * Open addressing (linear probing) hash map from long keys to int values,
+ * without boxing: 12 bytes per slot, kept in two primitive tables on the heap
+ * or in direct buffers outside of the heap.
+ *
+ * <p>
+ * Keys are expected to be well distributed hashes (e.g. of
+ * {@link IdentifierKeys}), their low bits select the slot. Key 0 marks empty
+ * slots and is mapped to another key internally. The table grows by doubling
+ * at a load factor of 0.7, up to {@link #MAX_CAPACITY} slots; pass the
+ * expected number of keys to avoid rehashing.
+ *
+ * <p>
+ * Not thread safe.
+ */
+public class LongIntHashMap {
+
+  public static final int MAX_CAPACITY = 1 << 27;
+
+  private static final float LOAD_FACTOR = 0.7f;
+  // replaces key 0, which marks empty slots
+  private static final long ZERO_KEY = 0x9e3779b97f4a7c15L;
+
+  private static int tableSize(long expectedKeys) {
+    long size = Long.highestOneBit(Math.max(16, (long) (expectedKeys / LOAD_FACTOR) + 1));
+    if (size < expectedKeys / LOAD_FACTOR) {
+      size <<= 1;
+    }
+    if (size > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Too many keys: " + expectedKeys);
+    }
+    return (int) size;
+  }
+
+  private final boolean offHeap;
+  private LongBuffer keys;
+  private IntBuffer values;
+  private int mask;
+  private int size;
+  private int threshold;
+
+  public LongIntHashMap() {
+    this(16, false);
+  }
+
+  /**
+   * @param expectedKeys number of keys the map is sized for
+   * @param offHeap      keep the tables in direct buffers instead of arrays
+   */
+  public LongIntHashMap(long expectedKeys, boolean offHeap) {
+    this.offHeap = offHeap;
+    allocate(tableSize(expectedKeys));
+  }
+
+  private void allocate(int capacity) {
+    if (offHeap) {
+      keys = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+      values = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+    } else {
+      keys = LongBuffer.allocate(capacity);
+      values = IntBuffer.allocate(capacity);
+    }
+    mask = capacity - 1;
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  private static long internalKey(long key) {
+    return key == 0 ? ZERO_KEY : key;
+  }
+
+  /**
+   * @return slot of the key, or of the empty slot where it belongs
+   */
+  private int slot(long key) {
+    int slot = (int) key & mask;
+    while (true) {
+      long k = keys.get(slot);
+      if (k == key || k == 0) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * @return value of the key, <code>missing</code> if it is not contained
+   */
+  public int get(long key, int missing) {
+    int slot = slot(internalKey(key));
+    return keys.get(slot) == 0 ? missing : values.get(slot);
+  }
+
+  public boolean containsKey(long key) {
+    return keys.get(slot(internalKey(key))) != 0;
+  }
+
+  /**
+   * Add the key with the given value unless it is already contained.
+   *
+   * @return value of the contained key, <code>missing</code> if the key was
+   *         added
+   */
+  public int putIfAbsent(long key, int value, int missing) {
+    long k = internalKey(key);
+    int slot = slot(k);
+    if (keys.get(slot) != 0) {
+      return values.get(slot);
+    }
+    insert(k, value);
+    return missing;
+  }
+
+  /**
+   * Set the value of the key.
+   */
+  public void put(long key, int value) {
+    long k = internalKey(key);
+    int slot = slot(k);
+    if (keys.get(slot) == 0) {
+      insert(k, value);
+    } else {
+      values.put(slot, value);
+    }
+  }
+
+  /**
+   * Add a key that is not contained, growing the table first if needed: a full
+   * map throws before it is changed.
+   */
+  private void insert(long k, int value) {
+    if (size + 1 > threshold) {
+      grow();
+    }
+    int slot = slot(k);
+    keys.put(slot, k);
+    values.put(slot, value);
+    size++;
+  }
+
+  private void grow() {
+    int capacity = mask + 1;
+    if (capacity >= MAX_CAPACITY) {
+      throw new IllegalStateException("Map full: " + size + " keys");
+    }
+    LongBuffer oldKeys = keys;
+    IntBuffer oldValues = values;
+    allocate(capacity << 1);
+    for (int i = 0; i < capacity; i++) {
+      long k = oldKeys.get(i);
+      if (k != 0) {
+        int slot = slot(k);
+        keys.put(slot, k);
+        values.put(slot, oldValues.get(i));
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return number of slots
+   */
+  public int capacity() {
+    return mask + 1;
+  }
+
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+}
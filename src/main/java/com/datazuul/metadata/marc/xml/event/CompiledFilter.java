@@ -0,0 +1,18 @@
+package com.datazuul.metadata.marc.xml.event;
+
+/**
+ * A {@link RecordFilter} compiled for a {@link FilteringEventHandler}: its
+ * result on the states of its conditions, see
+ * {@link RecordFilter#compile(java.util.List)}.
+ */
+@FunctionalInterface
+interface CompiledFilter {
+
+  /**
+   * @param states states of the conditions collected by
+   *               {@link RecordFilter#compile(java.util.List)}
+   * @return {@link RecordFilter#TRUE}, {@link RecordFilter#FALSE} or
+   *         {@link RecordFilter#UNKNOWN}
+   */
+  byte evaluate(byte[] states);
+}
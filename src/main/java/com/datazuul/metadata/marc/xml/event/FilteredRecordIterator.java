@@ -0,0 +1,82 @@
+package com.datazuul.metadata.marc.xml.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.marc4j.marc.Record;
+
+/**
+ * <p>
+ * Lazy iterator over the records of a MARC-XML source matching a
+ * {@link RecordFilter}. Records are read with a {@link MarcXmlEventReader} on
+ * the calling thread; only matching records are built (see
+ * {@link FilteringEventHandler}).
+ *
+ * <p>
+ * The input stream is closed when the iterator is exhausted or closed.
+ */
+public class FilteredRecordIterator implements Iterator<Record>, Closeable {
+
+  private final MarcXmlEventReader reader;
+  private final RecordEventBuilder builder = new RecordEventBuilder();
+  private final FilteringEventHandler handler;
+  private Record next;
+  private boolean closed;
+
+  public FilteredRecordIterator(InputStream is, RecordFilter filter) {
+    this.reader = new MarcXmlEventReader(is);
+    this.handler = new FilteringEventHandler(filter, builder);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next != null) {
+      return true;
+    }
+    if (closed) {
+      return false;
+    }
+    while (reader.next(handler)) {
+      if (handler.isAccepted()) {
+        next = builder.getRecord();
+        return true;
+      }
+    }
+    close();
+    return false;
+  }
+
+  @Override
+  public Record next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Record record = next;
+    next = null;
+    return record;
+  }
+
+  /**
+   * @return number of records skipped so far
+   */
+  public long getSkippedCount() {
+    return handler.getRejectedCount();
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      reader.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
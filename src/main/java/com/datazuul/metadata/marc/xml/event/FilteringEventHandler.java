@@ -0,0 +1,266 @@
+package com.datazuul.metadata.marc.xml.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Passes only the records matching a {@link RecordFilter} on to another
+ * handler (e.g. a {@link RecordEventBuilder}), evaluating the filter on the
+ * events while the record is read:
+ *
+ * <pre>
+ * RecordEventBuilder builder = new RecordEventBuilder();
+ * FilteringEventHandler handler = new FilteringEventHandler(filter, builder);
+ * while (reader.next(handler)) {
+ *   if (handler.isAccepted()) {
+ *     Record record = builder.getRecord();
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>
+ * Until the filter is decided, the events of the record are copied to reused
+ * buffers. A record rejected early (e.g. by a leader condition) is skipped
+ * without copying its further events, the events of an accepted record are
+ * replayed and the rest are passed directly. Rejected records never reach the
+ * delegate, so no {@link org.marc4j.marc.Record} or Dublin Core is built for
+ * them (the reader itself still allocates per event, e.g. attribute values).
+ *
+ * <p>
+ * Not thread safe: use one handler per {@link MarcXmlEventReader}.
+ */
+public class FilteringEventHandler implements MarcXmlEventHandler {
+
+  private static final int LEADER = 0;
+  private static final int CONTROL_FIELD = 1;
+  private static final int START_DATA_FIELD = 2;
+  private static final int SUBFIELD = 3;
+  private static final int END_DATA_FIELD = 4;
+
+  // ints per buffered event: type, text start, text length, indicators or
+  // subfield code
+  private static final int EVENT_SIZE = 4;
+
+  private enum Mode {
+    BUFFER, PASS, SKIP
+  }
+
+  private final CompiledFilter filter;
+  private final RecordFilter.Condition[] conditions;
+  private final byte[] states;
+  private final MarcXmlEventHandler delegate;
+  private Mode mode;
+  private String dataFieldTag;
+  private boolean accepted;
+  private long acceptedCount;
+  private long rejectedCount;
+  private int[] events = new int[64 * EVENT_SIZE];
+  private String[] tags = new String[64];
+  private int eventCount;
+  private char[] text = new char[1024];
+  private int textLength;
+
+  public FilteringEventHandler(RecordFilter filter, MarcXmlEventHandler delegate) {
+    List<RecordFilter.Condition> compiled = new ArrayList<>();
+    this.filter = filter.compile(compiled);
+    this.conditions = compiled.toArray(new RecordFilter.Condition[0]);
+    this.states = new byte[conditions.length];
+    this.delegate = delegate;
+  }
+
+  /**
+   * @return true if the last completed record matched the filter (and has been
+   *         passed to the delegate)
+   */
+  public boolean isAccepted() {
+    return accepted;
+  }
+
+  /**
+   * @return number of records passed to the delegate
+   */
+  public long getAcceptedCount() {
+    return acceptedCount;
+  }
+
+  /**
+   * @return number of skipped records
+   */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  @Override
+  public void startRecord() {
+    Arrays.fill(states, RecordFilter.UNKNOWN);
+    mode = Mode.BUFFER;
+    dataFieldTag = null;
+    accepted = false;
+    eventCount = 0;
+    textLength = 0;
+  }
+
+  @Override
+  public void leader(char[] chars, int start, int length) {
+    if (mode == Mode.PASS) {
+      delegate.leader(chars, start, length);
+    } else if (mode == Mode.BUFFER) {
+      buffer(LEADER, null, chars, start, length, 0);
+      boolean decided = false;
+      for (int i = 0; i < conditions.length; i++) {
+        if (states[i] == RecordFilter.UNKNOWN) {
+          decided |= decide(i, conditions[i].leader(chars, start, length));
+        }
+      }
+      if (decided) {
+        evaluate();
+      }
+    }
+  }
+
+  @Override
+  public void controlField(String tag, char[] chars, int start, int length) {
+    if (mode == Mode.PASS) {
+      delegate.controlField(tag, chars, start, length);
+    } else if (mode == Mode.BUFFER) {
+      buffer(CONTROL_FIELD, tag, chars, start, length, 0);
+      boolean decided = false;
+      for (int i = 0; i < conditions.length; i++) {
+        if (states[i] == RecordFilter.UNKNOWN) {
+          decided |= decide(i, conditions[i].controlField(tag, chars, start, length));
+        }
+      }
+      if (decided) {
+        evaluate();
+      }
+    }
+  }
+
+  @Override
+  public void startDataField(String tag, char ind1, char ind2) {
+    dataFieldTag = tag;
+    if (mode == Mode.PASS) {
+      delegate.startDataField(tag, ind1, ind2);
+    } else if (mode == Mode.BUFFER) {
+      buffer(START_DATA_FIELD, tag, null, 0, 0, ind1 << 16 | ind2);
+      boolean decided = false;
+      for (int i = 0; i < conditions.length; i++) {
+        if (states[i] == RecordFilter.UNKNOWN) {
+          decided |= decide(i, conditions[i].startDataField(tag));
+        }
+      }
+      if (decided) {
+        evaluate();
+      }
+    }
+  }
+
+  @Override
+  public void subfield(char code, char[] chars, int start, int length) {
+    if (mode == Mode.PASS) {
+      delegate.subfield(code, chars, start, length);
+    } else if (mode == Mode.BUFFER) {
+      buffer(SUBFIELD, null, chars, start, length, code);
+      boolean decided = false;
+      for (int i = 0; i < conditions.length; i++) {
+        if (states[i] == RecordFilter.UNKNOWN) {
+          decided |= decide(i, conditions[i].subfield(dataFieldTag, code, chars, start, length));
+        }
+      }
+      if (decided) {
+        evaluate();
+      }
+    }
+  }
+
+  @Override
+  public void endDataField() {
+    dataFieldTag = null;
+    if (mode == Mode.PASS) {
+      delegate.endDataField();
+    } else if (mode == Mode.BUFFER) {
+      buffer(END_DATA_FIELD, null, null, 0, 0, 0);
+    }
+  }
+
+  @Override
+  public void endRecord() {
+    if (mode == Mode.BUFFER) {
+      // field conditions not met by any field
+      for (int i = 0; i < states.length; i++) {
+        if (states[i] == RecordFilter.UNKNOWN) {
+          states[i] = RecordFilter.FALSE;
+        }
+      }
+      evaluate();
+    }
+    if (mode == Mode.PASS) {
+      delegate.endRecord();
+      accepted = true;
+      acceptedCount++;
+    } else {
+      rejectedCount++;
+    }
+  }
+
+  private boolean decide(int condition, byte state) {
+    if (state == RecordFilter.UNKNOWN) {
+      return false;
+    }
+    states[condition] = state;
+    return true;
+  }
+
+  private void evaluate() {
+    byte result = filter.evaluate(states);
+    if (result == RecordFilter.FALSE) {
+      mode = Mode.SKIP;
+    } else if (result == RecordFilter.TRUE) {
+      mode = Mode.PASS;
+      replay();
+    }
+  }
+
+  private void buffer(int type, String tag, char[] chars, int start, int length, int value) {
+    if ((eventCount + 1) * EVENT_SIZE > events.length) {
+      events = Arrays.copyOf(events, events.length * 2);
+      tags = Arrays.copyOf(tags, tags.length * 2);
+    }
+    if (textLength + length > text.length) {
+      text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+    }
+    if (length > 0) {
+      System.arraycopy(chars, start, text, textLength, length);
+    }
+    int event = eventCount * EVENT_SIZE;
+    events[event] = type;
+    events[event + 1] = textLength;
+    events[event + 2] = length;
+    events[event + 3] = value;
+    tags[eventCount] = tag;
+    eventCount++;
+    textLength += length;
+  }
+
+  private void replay() {
+    delegate.startRecord();
+    for (int i = 0; i < eventCount; i++) {
+      int event = i * EVENT_SIZE;
+      int start = events[event + 1];
+      int length = events[event + 2];
+      int value = events[event + 3];
+      switch (events[event]) {
+      case LEADER -> delegate.leader(text, start, length);
+      case CONTROL_FIELD -> delegate.controlField(tags[i], text, start, length);
+      case START_DATA_FIELD -> delegate.startDataField(tags[i], (char) (value >>> 16), (char) value);
+      case SUBFIELD -> delegate.subfield((char) value, text, start, length);
+      default -> delegate.endDataField();
+      }
+      tags[i] = null;
+    }
+    eventCount = 0;
+    textLength = 0;
+  }
+}
@@ -0,0 +1,35 @@
+package com.datazuul.metadata.marc.xml.event;
+
+/**
+ * <p>
+ * Receives the content of MARC-XML records from a {@link MarcXmlEventReader}
+ * without building {@link org.marc4j.marc.Record} objects.
+ *
+ * <p>
+ * Character data is passed as a range of a buffer that is reused by the
+ * reader: it is only valid during the call and must be copied to be kept.
+ * Tags of three digits are passed as shared String instances.
+ */
+public interface MarcXmlEventHandler {
+
+  default void startRecord() {
+  }
+
+  default void leader(char[] chars, int start, int length) {
+  }
+
+  default void controlField(String tag, char[] chars, int start, int length) {
+  }
+
+  default void startDataField(String tag, char ind1, char ind2) {
+  }
+
+  default void subfield(char code, char[] chars, int start, int length) {
+  }
+
+  default void endDataField() {
+  }
+
+  default void endRecord() {
+  }
+}
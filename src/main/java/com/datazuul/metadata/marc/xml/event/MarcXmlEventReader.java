@@ -0,0 +1,209 @@
+package com.datazuul.metadata.marc.xml.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.marc4j.MarcException;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+
+/**
+ * <p>
+ * Reads MARC-XML records (a single record or a collection, with or without
+ * namespace prefix) with StAX and pushes their content to a
+ * {@link MarcXmlEventHandler}, record by record. Character data is collected
+ * in one reused buffer.
+ *
+ * <p>
+ * Not thread safe: use one reader per input stream and thread.
+ */
+public class MarcXmlEventReader implements Closeable {
+
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * @return shared instance for three digit tags
+   */
+  private static String tag(String tag) {
+    int tagValue = MarcXml.tagValue(tag);
+    return tagValue < 0 ? tag : MarcXml.tagString(tagValue);
+  }
+
+  private static char firstChar(String value) {
+    return value == null || value.isEmpty() ? ' ' : value.charAt(0);
+  }
+
+  private final InputStream is;
+  private final XMLStreamReader xml;
+  private char[] text = new char[256];
+  private int textLength;
+
+  public MarcXmlEventReader(InputStream is) {
+    this.is = is;
+    try {
+      this.xml = INPUT_FACTORY.createXMLStreamReader(is);
+    } catch (XMLStreamException e) {
+      throw new MarcException("Can not read MARC-XML", e);
+    }
+  }
+
+  /**
+   * Read records embedded in another document (e.g. an OAI-PMH response) with
+   * {@link #readCurrentRecord(MarcXmlEventHandler)}. {@link #close()} closes
+   * the stream reader but not its input.
+   */
+  public MarcXmlEventReader(XMLStreamReader xml) {
+    this.is = null;
+    this.xml = xml;
+  }
+
+  /**
+   * Push all remaining records to the handler.
+   * 
+   * @return number of records
+   */
+  public long parse(MarcXmlEventHandler handler) {
+    long count = 0;
+    while (next(handler)) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Push the next record to the handler.
+   * 
+   * @return false if there are no more records
+   */
+  public boolean next(MarcXmlEventHandler handler) {
+    try {
+      while (xml.hasNext()) {
+        if (xml.next() == XMLStreamConstants.START_ELEMENT && "record".equals(xml.getLocalName())) {
+          readRecord(handler);
+          return true;
+        }
+      }
+      return false;
+    } catch (XMLStreamException e) {
+      throw new MarcException("Can not read MARC-XML", e);
+    }
+  }
+
+  /**
+   * Push the record whose start element is the current event of the stream
+   * reader to the handler. The stream reader is left at the end element of the
+   * record.
+   */
+  public void readCurrentRecord(MarcXmlEventHandler handler) {
+    try {
+      readRecord(handler);
+    } catch (XMLStreamException e) {
+      throw new MarcException("Can not read MARC-XML", e);
+    }
+  }
+
+  private void readRecord(MarcXmlEventHandler handler) throws XMLStreamException {
+    handler.startRecord();
+    while (xml.hasNext()) {
+      int event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        switch (xml.getLocalName()) {
+        case "leader" -> {
+          readText();
+          handler.leader(text, 0, textLength);
+        }
+        case "controlfield" -> {
+          String tag = tag(xml.getAttributeValue(null, "tag"));
+          readText();
+          handler.controlField(tag, text, 0, textLength);
+        }
+        case "datafield" -> handler.startDataField(tag(xml.getAttributeValue(null, "tag")),
+            firstChar(xml.getAttributeValue(null, "ind1")), firstChar(xml.getAttributeValue(null, "ind2")));
+        case "subfield" -> {
+          char code = firstChar(xml.getAttributeValue(null, "code"));
+          readText();
+          handler.subfield(code, text, 0, textLength);
+        }
+        default -> {
+          // unknown element: ignored
+        }
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        String name = xml.getLocalName();
+        if ("datafield".equals(name)) {
+          handler.endDataField();
+        } else if ("record".equals(name)) {
+          handler.endRecord();
+          return;
+        }
+      }
+    }
+    throw new MarcException("Unexpected end of document in record");
+  }
+
+  /**
+   * Read the text content of the current element into the buffer.
+   */
+  private void readText() throws XMLStreamException {
+    textLength = 0;
+    int depth = 0;
+    while (xml.hasNext()) {
+      int event = xml.next();
+      switch (event) {
+      case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+        if (depth == 0) {
+          appendText();
+        }
+      }
+      case XMLStreamConstants.START_ELEMENT -> depth++;
+      case XMLStreamConstants.END_ELEMENT -> {
+        if (depth == 0) {
+          return;
+        }
+        depth--;
+      }
+      default -> {
+        // comments, processing instructions
+      }
+      }
+    }
+  }
+
+  private void appendText() {
+    int length = xml.getTextLength();
+    if (textLength + length > text.length) {
+      char[] larger = new char[Math.max(text.length * 2, textLength + length)];
+      System.arraycopy(text, 0, larger, 0, textLength);
+      text = larger;
+    }
+    System.arraycopy(xml.getTextCharacters(), xml.getTextStart(), text, textLength, length);
+    textLength += length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      xml.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      if (is != null) {
+        is.close();
+      }
+    }
+  }
+}
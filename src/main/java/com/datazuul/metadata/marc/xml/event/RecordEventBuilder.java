@@ -0,0 +1,70 @@
+package com.datazuul.metadata.marc.xml.event;
+
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+
+/**
+ * <p>
+ * Builds marc4j {@link Record} objects from MARC-XML events, without the
+ * parser thread of {@link org.marc4j.MarcXmlReader}.
+ *
+ * <p>
+ * Not thread safe: use one builder per {@link MarcXmlEventReader}.
+ */
+public class RecordEventBuilder implements MarcXmlEventHandler {
+
+  private static final MarcFactory FACTORY = MarcFactory.newInstance();
+
+  private Record record;
+  private DataField dataField;
+  private Record completed;
+
+  /**
+   * @return last completed record
+   */
+  public Record getRecord() {
+    return completed;
+  }
+
+  @Override
+  public void startRecord() {
+    record = FACTORY.newRecord();
+    dataField = null;
+    completed = null;
+  }
+
+  @Override
+  public void leader(char[] chars, int start, int length) {
+    record.setLeader(FACTORY.newLeader(new String(chars, start, length)));
+  }
+
+  @Override
+  public void controlField(String tag, char[] chars, int start, int length) {
+    record.addVariableField(FACTORY.newControlField(tag, new String(chars, start, length)));
+  }
+
+  @Override
+  public void startDataField(String tag, char ind1, char ind2) {
+    dataField = FACTORY.newDataField(tag, ind1, ind2);
+  }
+
+  @Override
+  public void subfield(char code, char[] chars, int start, int length) {
+    if (dataField != null) {
+      dataField.addSubfield(FACTORY.newSubfield(code, new String(chars, start, length)));
+    }
+  }
+
+  @Override
+  public void endDataField() {
+    record.addVariableField(dataField);
+    dataField = null;
+  }
+
+  @Override
+  public void endRecord() {
+    completed = record;
+    record = null;
+  }
+}
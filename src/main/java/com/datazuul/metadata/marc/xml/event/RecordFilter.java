@@ -0,0 +1,382 @@
+package com.datazuul.metadata.marc.xml.event;
+
+import java.util.List;
+
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.Subfield;
+import org.marc4j.marc.VariableField;
+
+/**
+ * <p>
+ * Condition on the leader, control fields and fields of a record that can be
+ * evaluated on MARC-XML events, see {@link FilteringEventHandler}:
+ *
+ * <pre>
+ * RecordFilter filter = RecordFilter.leader(6, "a").and(RecordFilter.hasField("856"));
+ * </pre>
+ *
+ * <p>
+ * While a record is read, conditions are unknown until the event deciding
+ * them: leader conditions are decided by the leader, field conditions become
+ * true with the first matching field and false at the end of the record
+ * (control fields like 006 and 007 are repeatable). Combined conditions are
+ * decided as soon as the decided parts determine the result, e.g. a
+ * conjunction with a false leader condition right after the leader.
+ *
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+public abstract class RecordFilter {
+
+  static final byte UNKNOWN = 0;
+  static final byte TRUE = 1;
+  static final byte FALSE = 2;
+
+  /**
+   * @param values accepted characters at the position, e.g. "at" for language
+   *               material at leader/06
+   */
+  public static RecordFilter leader(int position, String values) {
+    return new LeaderCondition(position, values);
+  }
+
+  /**
+   * @return condition on a control field having the value at the given
+   *         position, e.g. <code>controlField("008", 35, "ger")</code>
+   */
+  public static RecordFilter controlField(String tag, int position, String value) {
+    return new ControlFieldCondition(tag, position, value);
+  }
+
+  /**
+   * @return condition on the record having a (control or data) field with the
+   *         tag
+   */
+  public static RecordFilter hasField(String tag) {
+    return new FieldCondition(tag);
+  }
+
+  /**
+   * @return condition on a data field with the tag having a subfield with the
+   *         code and the value (ignoring leading and trailing whitespace), e.g.
+   *         <code>subfield("040", 'a', "DLC")</code>
+   */
+  public static RecordFilter subfield(String tag, char code, String value) {
+    return new SubfieldCondition(tag, code, value.trim());
+  }
+
+  public RecordFilter and(RecordFilter other) {
+    return new And(this, other);
+  }
+
+  public RecordFilter or(RecordFilter other) {
+    return new Or(this, other);
+  }
+
+  public RecordFilter negate() {
+    return new Not(this);
+  }
+
+  /**
+   * Evaluate the condition on a built record, with the same result as on the
+   * events of the record.
+   */
+  public abstract boolean test(Record record);
+
+  /**
+   * @return filter evaluating the states of the conditions, which are added to
+   *         the list in the order of their states
+   */
+  abstract CompiledFilter compile(List<Condition> conditions);
+
+  /**
+   * Single condition decided by one kind of event. The event methods return
+   * the new state or {@link #UNKNOWN} if the event does not decide the
+   * condition.
+   */
+  abstract static class Condition extends RecordFilter {
+
+    @Override
+    final CompiledFilter compile(List<Condition> conditions) {
+      int index = conditions.size();
+      conditions.add(this);
+      return states -> states[index];
+    }
+
+    byte leader(char[] chars, int start, int length) {
+      return UNKNOWN;
+    }
+
+    byte controlField(String tag, char[] chars, int start, int length) {
+      return UNKNOWN;
+    }
+
+    byte startDataField(String tag) {
+      return UNKNOWN;
+    }
+
+    byte subfield(String tag, char code, char[] chars, int start, int length) {
+      return UNKNOWN;
+    }
+  }
+
+  private static boolean regionMatches(char[] chars, int start, int length, int position, String value) {
+    if (position < 0 || position + value.length() > length) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (chars[start + position + i] != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class LeaderCondition extends Condition {
+
+    private final int position;
+    private final String values;
+
+    LeaderCondition(int position, String values) {
+      this.position = position;
+      this.values = values;
+    }
+
+    @Override
+    public boolean test(Record record) {
+      String leader = record.getLeader() == null ? "" : record.getLeader().marshal();
+      return position < leader.length() && values.indexOf(leader.charAt(position)) >= 0;
+    }
+
+    @Override
+    byte leader(char[] chars, int start, int length) {
+      return position < length && values.indexOf(chars[start + position]) >= 0 ? TRUE : FALSE;
+    }
+
+    @Override
+    public String toString() {
+      return "leader/" + position + " in \"" + values + "\"";
+    }
+  }
+
+  private static final class ControlFieldCondition extends Condition {
+
+    private final String tag;
+    private final int position;
+    private final String value;
+
+    ControlFieldCondition(String tag, int position, String value) {
+      this.tag = tag;
+      this.position = position;
+      this.value = value;
+    }
+
+    @Override
+    public boolean test(Record record) {
+      for (ControlField field : record.getControlFields()) {
+        String data = field.getData();
+        if (tag.equals(field.getTag()) && data != null && position >= 0 && data.startsWith(value, position)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    byte controlField(String tag, char[] chars, int start, int length) {
+      return this.tag.equals(tag) && regionMatches(chars, start, length, position, value) ? TRUE : UNKNOWN;
+    }
+
+    @Override
+    public String toString() {
+      return tag + "/" + position + " = \"" + value + "\"";
+    }
+  }
+
+  private static final class FieldCondition extends Condition {
+
+    private final String tag;
+
+    FieldCondition(String tag) {
+      this.tag = tag;
+    }
+
+    @Override
+    public boolean test(Record record) {
+      for (VariableField field : record.getVariableFields()) {
+        if (tag.equals(field.getTag())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    byte controlField(String tag, char[] chars, int start, int length) {
+      return this.tag.equals(tag) ? TRUE : UNKNOWN;
+    }
+
+    @Override
+    byte startDataField(String tag) {
+      return this.tag.equals(tag) ? TRUE : UNKNOWN;
+    }
+
+    @Override
+    public String toString() {
+      return "has " + tag;
+    }
+  }
+
+  private static final class SubfieldCondition extends Condition {
+
+    private final String tag;
+    private final char code;
+    private final String value;
+
+    SubfieldCondition(String tag, char code, String value) {
+      this.tag = tag;
+      this.code = code;
+      this.value = value;
+    }
+
+    @Override
+    public boolean test(Record record) {
+      for (DataField field : record.getDataFields()) {
+        if (tag.equals(field.getTag())) {
+          for (Subfield subfield : field.getSubfields(code)) {
+            if (subfield.getData() != null && value.equals(subfield.getData().trim())) {
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+
+    @Override
+    byte subfield(String tag, char code, char[] chars, int start, int length) {
+      if (code != this.code || !this.tag.equals(tag)) {
+        return UNKNOWN;
+      }
+      int end = start + length;
+      while (start < end && Character.isWhitespace(chars[start])) {
+        start++;
+      }
+      while (end > start && Character.isWhitespace(chars[end - 1])) {
+        end--;
+      }
+      return end - start == value.length() && regionMatches(chars, start, end - start, 0, value) ? TRUE : UNKNOWN;
+    }
+
+    @Override
+    public String toString() {
+      return tag + " $" + code + " = \"" + value + "\"";
+    }
+  }
+
+  private static final class And extends RecordFilter {
+
+    private final RecordFilter left;
+    private final RecordFilter right;
+
+    And(RecordFilter left, RecordFilter right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean test(Record record) {
+      return left.test(record) && right.test(record);
+    }
+
+    @Override
+    CompiledFilter compile(List<Condition> conditions) {
+      CompiledFilter l = left.compile(conditions);
+      CompiledFilter r = right.compile(conditions);
+      return states -> {
+        byte leftState = l.evaluate(states);
+        if (leftState == FALSE) {
+          return FALSE;
+        }
+        byte rightState = r.evaluate(states);
+        if (rightState == FALSE) {
+          return FALSE;
+        }
+        return leftState == TRUE && rightState == TRUE ? TRUE : UNKNOWN;
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + " and " + right + ")";
+    }
+  }
+
+  private static final class Or extends RecordFilter {
+
+    private final RecordFilter left;
+    private final RecordFilter right;
+
+    Or(RecordFilter left, RecordFilter right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean test(Record record) {
+      return left.test(record) || right.test(record);
+    }
+
+    @Override
+    CompiledFilter compile(List<Condition> conditions) {
+      CompiledFilter l = left.compile(conditions);
+      CompiledFilter r = right.compile(conditions);
+      return states -> {
+        byte leftState = l.evaluate(states);
+        if (leftState == TRUE) {
+          return TRUE;
+        }
+        byte rightState = r.evaluate(states);
+        if (rightState == TRUE) {
+          return TRUE;
+        }
+        return leftState == FALSE && rightState == FALSE ? FALSE : UNKNOWN;
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + " or " + right + ")";
+    }
+  }
+
+  private static final class Not extends RecordFilter {
+
+    private final RecordFilter filter;
+
+    Not(RecordFilter filter) {
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean test(Record record) {
+      return !filter.test(record);
+    }
+
+    @Override
+    CompiledFilter compile(List<Condition> conditions) {
+      CompiledFilter compiled = filter.compile(conditions);
+      return states -> {
+        byte state = compiled.evaluate(states);
+        return state == TRUE ? FALSE : state == FALSE ? TRUE : UNKNOWN;
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "not " + filter;
+    }
+  }
+}
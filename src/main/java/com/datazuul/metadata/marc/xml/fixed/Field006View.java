@@ -0,0 +1,40 @@
+package com.datazuul.metadata.marc.xml.fixed;
+
+/**
+ * 006: https://www.loc.gov/marc/bibliographic/concise/bd006.html<br>
+ * Fixed-length data elements of additional material characteristics, with the
+ * same material specific elements as positions 18-34 of field 008.
+ */
+public final class Field006View extends FixedFieldView {
+
+  private final MaterialType materialType;
+
+  public Field006View(String data) {
+    super(data);
+    this.materialType = MaterialType.fromFormOfMaterial(getFormOfMaterial());
+  }
+
+  /**
+   * 00 - Form of material
+   */
+  public char getFormOfMaterial() {
+    return charAt(0);
+  }
+
+  /**
+   * @return null for unknown form of material
+   */
+  public MaterialType getMaterialType() {
+    return materialType;
+  }
+
+  /**
+   * 06 (books, computer files, music, continuing resources, mixed materials) or
+   * 12 (maps, visual materials) - Form of item
+   *
+   * @return blank for unknown form of material
+   */
+  public char getFormOfItem() {
+    return materialType == null ? ' ' : charAt(materialType.getFormOfItemPosition() - 17);
+  }
+}
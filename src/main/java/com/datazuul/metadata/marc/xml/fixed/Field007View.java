@@ -0,0 +1,27 @@
+package com.datazuul.metadata.marc.xml.fixed;
+
+/**
+ * 007: https://www.loc.gov/marc/bibliographic/concise/bd007.html<br>
+ * Physical description fixed field, the meaning of the positions after 01
+ * depends on the category of material.
+ */
+public final class Field007View extends FixedFieldView {
+
+  public Field007View(String data) {
+    super(data);
+  }
+
+  /**
+   * 00 - Category of material (e.g. 'c' electronic resource, 'h' microform)
+   */
+  public char getCategoryOfMaterial() {
+    return charAt(0);
+  }
+
+  /**
+   * 01 - Specific material designation
+   */
+  public char getSpecificMaterialDesignation() {
+    return charAt(1);
+  }
+}
@@ -0,0 +1,98 @@
+package com.datazuul.metadata.marc.xml.fixed;
+
+/**
+ * <p>
+ * 008 all: https://www.loc.gov/marc/bibliographic/concise/bd008a.html
+ *
+ * <p>
+ * Elements are returned as recorded, including blanks and fill characters
+ * ('|'), e.g. "gw " for the place of publication Germany or "19uu" for an
+ * unknown year.
+ */
+public final class Field008View extends FixedFieldView {
+
+  private final MaterialType materialType;
+  private final String dateEntered;
+  private final String date1;
+  private final String date2;
+  private final String place;
+  private final String language;
+
+  /**
+   * @param materialType configuration of positions 18-34, see
+   *                     {@link LeaderView#getMaterialType()}, null if unknown
+   */
+  public Field008View(String data, MaterialType materialType) {
+    super(data);
+    this.materialType = materialType;
+    this.dateEntered = element(0, 6);
+    this.date1 = element(7, 11);
+    this.date2 = element(11, 15);
+    this.place = element(15, 18);
+    this.language = element(35, 38);
+  }
+
+  /**
+   * 00-05 - Date entered on file (yymmdd)
+   */
+  public String getDateEntered() {
+    return dateEntered;
+  }
+
+  /**
+   * 06 - Type of date/Publication status
+   */
+  public char getTypeOfDate() {
+    return charAt(6);
+  }
+
+  /**
+   * 07-10 - Date 1
+   */
+  public String getDate1() {
+    return date1;
+  }
+
+  /**
+   * 11-14 - Date 2
+   */
+  public String getDate2() {
+    return date2;
+  }
+
+  /**
+   * 15-17 - Place of publication, production, or execution (MARC Code List for
+   * Countries)
+   */
+  public String getPlaceOfPublication() {
+    return place;
+  }
+
+  /**
+   * 35-37 - Language (MARC Code List for Languages)
+   */
+  public String getLanguage() {
+    return language;
+  }
+
+  /**
+   * 39 - Cataloging source
+   */
+  public char getCatalogingSource() {
+    return charAt(39);
+  }
+
+  public MaterialType getMaterialType() {
+    return materialType;
+  }
+
+  /**
+   * 23 (books, computer files, music, continuing resources, mixed materials) or
+   * 29 (maps, visual materials) - Form of item
+   *
+   * @return blank for unknown material type
+   */
+  public char getFormOfItem() {
+    return materialType == null ? ' ' : charAt(materialType.getFormOfItemPosition());
+  }
+}
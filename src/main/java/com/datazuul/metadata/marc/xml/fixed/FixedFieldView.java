@@ -0,0 +1,49 @@
+package com.datazuul.metadata.marc.xml.fixed;
+
+/**
+ * <p>
+ * Base of the views of fixed length fields (leader, 006, 007, 008): character
+ * positions are read from the field data, multi-character elements are
+ * decoded once at construction time.
+ *
+ * <p>
+ * Positions beyond the end of the data (e.g. of truncated fields) read as
+ * blank, elements beyond the end as null.
+ */
+public abstract class FixedFieldView {
+
+  private final String data;
+
+  protected FixedFieldView(String data) {
+    this.data = data == null ? "" : data;
+  }
+
+  /**
+   * @return character at given position (index starts at 0), blank if the
+   *         field is shorter
+   */
+  public char charAt(int pos) {
+    return pos >= 0 && pos < data.length() ? data.charAt(pos) : ' ';
+  }
+
+  public String getData() {
+    return data;
+  }
+
+  public int length() {
+    return data.length();
+  }
+
+  /**
+   * @return characters from position <code>from</code> (inclusive) to
+   *         <code>to</code> (exclusive), null if the field is shorter
+   */
+  protected String element(int from, int to) {
+    return to <= data.length() ? data.substring(from, to) : null;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[" + data + "]";
+  }
+}
@@ -0,0 +1,52 @@
+package com.datazuul.metadata.marc.xml.fixed;
+
+/**
+ * leader: https://www.loc.gov/marc/bibliographic/concise/bdleader.html<br>
+ * Fixed field that comprises the first 24 character positions (00-23) of each
+ * bibliographic record.
+ */
+public final class LeaderView extends FixedFieldView {
+
+  private final MaterialType materialType;
+
+  public LeaderView(String data) {
+    super(data);
+    this.materialType = MaterialType.fromLeader(getTypeOfRecord(), getBibliographicLevel());
+  }
+
+  /**
+   * 05 - Record status
+   */
+  public char getRecordStatus() {
+    return charAt(5);
+  }
+
+  /**
+   * 06 - Type of record
+   */
+  public char getTypeOfRecord() {
+    return charAt(6);
+  }
+
+  /**
+   * 07 - Bibliographic level
+   */
+  public char getBibliographicLevel() {
+    return charAt(7);
+  }
+
+  /**
+   * 17 - Encoding level
+   */
+  public char getEncodingLevel() {
+    return charAt(17);
+  }
+
+  /**
+   * @return configuration of field 008 given by type of record and
+   *         bibliographic level, null if unknown
+   */
+  public MaterialType getMaterialType() {
+    return materialType;
+  }
+}
@@ -0,0 +1,81 @@
+package com.datazuul.metadata.marc.xml.fixed;
+
+/**
+ * <p>
+ * Configuration of the material specific positions 18-34 of field 008 and
+ * 01-17 of field 006.
+ *
+ * <p>
+ * 008: https://www.loc.gov/marc/bibliographic/concise/bd008.html<br>
+ * 006: https://www.loc.gov/marc/bibliographic/concise/bd006.html
+ */
+public enum MaterialType {
+
+  BOOKS(23), COMPUTER_FILES(23), MAPS(29), MUSIC(23), CONTINUING_RESOURCES(23), VISUAL_MATERIALS(29),
+  MIXED_MATERIALS(23);
+
+  private final int formOfItemPosition;
+
+  MaterialType(int formOfItemPosition) {
+    this.formOfItemPosition = formOfItemPosition;
+  }
+
+  /**
+   * @return position of the form of item in field 008 (in field 006 it is 17
+   *         positions lower)
+   */
+  public int getFormOfItemPosition() {
+    return formOfItemPosition;
+  }
+
+  /**
+   * @param typeOfRecord       leader/06
+   * @param bibliographicLevel leader/07
+   * @return configuration of field 008, null for unknown codes
+   */
+  public static MaterialType fromLeader(char typeOfRecord, char bibliographicLevel) {
+    switch (typeOfRecord) {
+    case 'a':
+      return bibliographicLevel == 'b' || bibliographicLevel == 'i' || bibliographicLevel == 's'
+          ? CONTINUING_RESOURCES
+          : BOOKS;
+    case 't':
+      return BOOKS;
+    default:
+      return fromFormOfMaterial(typeOfRecord);
+    }
+  }
+
+  /**
+   * @param formOfMaterial 006/00
+   * @return configuration of field 006, null for unknown codes
+   */
+  public static MaterialType fromFormOfMaterial(char formOfMaterial) {
+    switch (formOfMaterial) {
+    case 'a':
+    case 't':
+      return BOOKS;
+    case 'm':
+      return COMPUTER_FILES;
+    case 'e':
+    case 'f':
+      return MAPS;
+    case 'c':
+    case 'd':
+    case 'i':
+    case 'j':
+      return MUSIC;
+    case 's':
+      return CONTINUING_RESOURCES;
+    case 'g':
+    case 'k':
+    case 'o':
+    case 'r':
+      return VISUAL_MATERIALS;
+    case 'p':
+      return MIXED_MATERIALS;
+    default:
+      return null;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import java.io.IOException;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.converter.DeadLetter;
+
+/**
+ * Receives the changes found by an {@link IncrementalHarvest}.
+ */
+public interface ChangeListener {
+
+  /**
+   * A record with a new key, or a record without key (which can not be
+   * tracked and is passed on every run with key null).
+   */
+  void added(String key, Record record) throws IOException;
+
+  /**
+   * A record whose content differs from the last run.
+   */
+  void changed(String key, Record record) throws IOException;
+
+  /**
+   * A record of the last run missing in this run.
+   */
+  void deleted(String key) throws IOException;
+
+  /**
+   * A record that can not be parsed, with its raw MARC-XML. Ignored by
+   * default.
+   */
+  default void failed(DeadLetter deadLetter) throws IOException {
+  }
+}
@@ -0,0 +1,65 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+/**
+ * Counts of a run of an {@link IncrementalHarvest}.
+ */
+public class ChangeSummary {
+
+  private final long added;
+  private final long changed;
+  private final long unchanged;
+  private final long deleted;
+  private final long unkeyed;
+  private final long failed;
+
+  ChangeSummary(long added, long changed, long unchanged, long deleted, long unkeyed, long failed) {
+    this.added = added;
+    this.changed = changed;
+    this.unchanged = unchanged;
+    this.deleted = deleted;
+    this.unkeyed = unkeyed;
+    this.failed = failed;
+  }
+
+  /**
+   * @return number of records with a new key
+   */
+  public long getAdded() {
+    return added;
+  }
+
+  public long getChanged() {
+    return changed;
+  }
+
+  /**
+   * @return number of skipped records
+   */
+  public long getUnchanged() {
+    return unchanged;
+  }
+
+  public long getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * @return number of records without key (passed as added)
+   */
+  public long getUnkeyed() {
+    return unkeyed;
+  }
+
+  /**
+   * @return number of records that could not be parsed
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  @Override
+  public String toString() {
+    return "added=" + added + ", changed=" + changed + ", unchanged=" + unchanged + ", deleted=" + deleted
+        + ", unkeyed=" + unkeyed + ", failed=" + failed;
+  }
+}
@@ -0,0 +1,102 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Fingerprints of the records of the last harvest by key, kept in memory and
+ * persisted in a local file.
+ *
+ * <p>
+ * {@link #save()} replaces the file atomically: an interrupted run leaves the
+ * fingerprints of the last completed run.
+ */
+public class FingerprintStore {
+
+  // "MXFP"
+  private static final int MAGIC = 0x4d584650;
+  private static final int VERSION = 1;
+
+  private final Path file;
+  private final Map<String, Long> fingerprints = new HashMap<>();
+
+  /**
+   * @param file file of the store, read if it exists
+   */
+  public FingerprintStore(Path file) throws IOException {
+    this.file = file;
+    if (Files.exists(file)) {
+      load();
+    }
+  }
+
+  private void load() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a fingerprint store: " + file);
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        String key = in.readUTF();
+        fingerprints.put(key, in.readLong());
+      }
+    }
+  }
+
+  /**
+   * @return fingerprint of the record with the given key, null if unknown
+   */
+  public Long get(String key) {
+    return fingerprints.get(key);
+  }
+
+  public void put(String key, long fingerprint) {
+    fingerprints.put(key, fingerprint);
+  }
+
+  public void remove(String key) {
+    fingerprints.remove(key);
+  }
+
+  /**
+   * @return unmodifiable view of the keys
+   */
+  public Set<String> keys() {
+    return Collections.unmodifiableSet(fingerprints.keySet());
+  }
+
+  public int size() {
+    return fingerprints.size();
+  }
+
+  public void save() throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(fingerprints.size());
+        for (Map.Entry<String, Long> entry : fingerprints.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeLong(entry.getValue());
+        }
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.marc4j.MarcException;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXmlRecordSplitter;
+import com.datazuul.metadata.marc.xml.converter.DeadLetter;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventHandler;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+import com.datazuul.metadata.marc.xml.event.RecordEventBuilder;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * <p>
+ * Compares a full dump with the fingerprints of the last run and passes only
+ * added, changed and deleted records on, e.g. to a converter:
+ *
+ * <pre>
+ * FingerprintStore store = new FingerprintStore(Paths.get("dump.fingerprints"));
+ * ChangeSummary summary = new IncrementalHarvest(store).run(is, listener);
+ * </pre>
+ *
+ * <p>
+ * Records are fingerprinted from MARC-XML events ({@link RecordFingerprint});
+ * a {@link Record} is only built for added and changed records. The store is
+ * updated and saved when the whole dump has been passed to the listener: if
+ * the run fails, the next run reports the same changes again.
+ *
+ * <p>
+ * Records that can not be parsed are passed to
+ * {@link ChangeListener#failed(DeadLetter)} and the run goes on. Their
+ * fingerprints are not updated, so they are reported again on the next run.
+ * As the key of such a record may be unknown, no deletions are reported by a
+ * run with unparseable records.
+ *
+ * <p>
+ * Not thread safe.
+ */
+public class IncrementalHarvest {
+
+  private static void parse(byte[] document, MarcXmlEventHandler handler) {
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(new ByteArrayInputStream(document))) {
+      if (!reader.next(handler)) {
+        throw new MarcException("No record found");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Record record(byte[] document) {
+    RecordEventBuilder builder = new RecordEventBuilder();
+    parse(document, builder);
+    return builder.getRecord();
+  }
+
+  private final FingerprintStore store;
+
+  public IncrementalHarvest(FingerprintStore store) {
+    this.store = store;
+  }
+
+  /**
+   * @return record of the document, null if it can not be parsed (passed to
+   *         the listener)
+   */
+  private static Record record(long offset, byte[] document, ChangeListener listener) throws IOException {
+    try {
+      return record(document);
+    } catch (RuntimeException e) {
+      listener.failed(new DeadLetter(offset, document, Stage.PARSE, e));
+      return null;
+    }
+  }
+
+  /**
+   * Pass the changes of the given dump since the last run to the listener and
+   * save the fingerprints of the dump.
+   */
+  public ChangeSummary run(InputStream is, ChangeListener listener) throws IOException {
+    RecordFingerprint fingerprint = new RecordFingerprint();
+    Set<String> seen = new HashSet<>();
+    // fingerprints of added and changed records
+    Map<String, Long> updates = new HashMap<>();
+    long added = 0;
+    long changed = 0;
+    long unchanged = 0;
+    long unkeyed = 0;
+    long failed = 0;
+    // false if a record without known key failed
+    boolean allKeysSeen = true;
+    try (MarcXmlRecordSplitter splitter = new MarcXmlRecordSplitter(is)) {
+      long offset = 0;
+      for (byte[] raw = splitter.next(); raw != null; raw = splitter.next(), offset++) {
+        byte[] document = splitter.document(raw);
+        try {
+          parse(document, fingerprint);
+        } catch (RuntimeException e) {
+          listener.failed(new DeadLetter(offset, document, Stage.PARSE, e));
+          failed++;
+          allKeysSeen = false;
+          continue;
+        }
+        String key = fingerprint.getKey();
+        if (key == null) {
+          Record record = record(offset, document, listener);
+          if (record == null) {
+            failed++;
+          } else {
+            listener.added(null, record);
+            unkeyed++;
+          }
+          continue;
+        }
+        seen.add(key);
+        long current = fingerprint.getFingerprint();
+        Long previous = updates.get(key);
+        if (previous == null) {
+          previous = store.get(key);
+        }
+        if (previous != null && previous == current) {
+          unchanged++;
+          continue;
+        }
+        Record record = record(offset, document, listener);
+        if (record == null) {
+          failed++;
+        } else if (previous == null) {
+          updates.put(key, current);
+          listener.added(key, record);
+          added++;
+        } else {
+          updates.put(key, current);
+          listener.changed(key, record);
+          changed++;
+        }
+      }
+    }
+    List<String> deleted = new ArrayList<>();
+    if (allKeysSeen) {
+      for (String key : store.keys()) {
+        if (!seen.contains(key)) {
+          deleted.add(key);
+        }
+      }
+    }
+    for (String key : deleted) {
+      listener.deleted(key);
+    }
+    deleted.forEach(store::remove);
+    updates.forEach(store::put);
+    store.save();
+    return new ChangeSummary(added, changed, unchanged, deleted.size(), unkeyed, failed);
+  }
+}
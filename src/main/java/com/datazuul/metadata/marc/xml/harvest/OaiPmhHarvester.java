@@ -0,0 +1,387 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.marc4j.MarcException;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+import com.datazuul.metadata.marc.xml.event.RecordEventBuilder;
+import com.datazuul.metadata.marc.xml.metrics.Metrics;
+import com.datazuul.metadata.marc.xml.metrics.MetricsListener;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+/**
+ * <p>
+ * Harvests MARC-XML records from an OAI-PMH endpoint (verb ListRecords):
+ *
+ * <pre>
+ * OaiPmhHarvester harvester = new OaiPmhHarvester(URI.create("https://example.org/oai"));
+ * try (OaiPmhRecordIterator records = harvester.listRecords(null, "2024-01-01", null)) {
+ *   while (records.hasNext()) {
+ *     MarcXml marcXml = new MarcXml(records.next());
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>
+ * Response pages are parsed while they are received. As soon as a page has
+ * been parsed, the page of its resumption token is requested, while the
+ * records of the current page are processed: at most one page is fetched
+ * ahead.
+ *
+ * <p>
+ * Responses with status 503 (or 429) are retried after the delay of their
+ * Retry-After header, failed connections (also while the response is read)
+ * and responses without Retry-After with exponential backoff. Deleted records (headers without metadata) are
+ * skipped.
+ *
+ * <p>
+ * Instances are thread safe.
+ */
+public class OaiPmhHarvester {
+
+  public static final String DEFAULT_METADATA_PREFIX = "marcxml";
+  public static final int DEFAULT_MAX_RETRIES = 5;
+  public static final Duration DEFAULT_RETRY_DELAY = Duration.ofSeconds(1);
+
+  private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(10);
+
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  private static Executor newDaemonThreadPool() {
+    return Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "oai-pmh-harvester");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+
+  private final URI baseUrl;
+  private final String metadataPrefix;
+  private final HttpClient client;
+  private final Executor executor;
+  private final int maxRetries;
+  private final Duration retryDelay;
+
+  public OaiPmhHarvester(URI baseUrl) {
+    this(baseUrl, DEFAULT_METADATA_PREFIX, HttpClient.newHttpClient(), newDaemonThreadPool(), DEFAULT_MAX_RETRIES,
+        DEFAULT_RETRY_DELAY);
+  }
+
+  /**
+   * @param baseUrl        base URL of the OAI-PMH endpoint
+   * @param metadataPrefix metadata format of MARC-XML records at the endpoint
+   * @param client         client used for all requests
+   * @param executor       executor fetching the pages of a harvest (one task
+   *                       per harvest)
+   * @param maxRetries     maximum number of retries per page
+   * @param retryDelay     delay before the first retry without Retry-After,
+   *                       doubled for each further retry
+   */
+  public OaiPmhHarvester(URI baseUrl, String metadataPrefix, HttpClient client, Executor executor, int maxRetries,
+      Duration retryDelay) {
+    if (maxRetries < 0) {
+      throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+    }
+    this.baseUrl = baseUrl;
+    this.metadataPrefix = metadataPrefix;
+    this.client = client;
+    this.executor = executor;
+    this.maxRetries = maxRetries;
+    this.retryDelay = retryDelay;
+  }
+
+  /**
+   * Start a harvest. The returned iterator must be closed if it is not
+   * exhausted, to stop fetching pages.
+   *
+   * @param set   set spec, null for all records
+   * @param from  lower bound of the datestamps (e.g. "2024-01-01"), null for
+   *              none
+   * @param until upper bound of the datestamps, null for none
+   */
+  public OaiPmhRecordIterator listRecords(String set, String from, String until) {
+    StringBuilder query = new StringBuilder("verb=ListRecords&metadataPrefix=").append(encode(metadataPrefix));
+    if (set != null) {
+      query.append("&set=").append(encode(set));
+    }
+    if (from != null) {
+      query.append("&from=").append(encode(from));
+    }
+    if (until != null) {
+      query.append("&until=").append(encode(until));
+    }
+    OaiPmhRecordIterator records = new OaiPmhRecordIterator(this, uri(query.toString()));
+    executor.execute(records::fetchPages);
+    return records;
+  }
+
+  /**
+   * Harvest all records of the given set and datestamp range, see
+   * {@link #listRecords(String, String, String)}.
+   *
+   * @return number of records
+   */
+  public long harvest(String set, String from, String until, Consumer<? super Record> sink) throws IOException {
+    long count = 0;
+    try (OaiPmhRecordIterator records = listRecords(set, from, until)) {
+      while (records.hasNext()) {
+        sink.accept(records.next());
+        count++;
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return count;
+  }
+
+  private URI uri(String query) {
+    String url = baseUrl.toString();
+    return URI.create(url + (url.indexOf('?') < 0 ? '?' : '&') + query);
+  }
+
+  URI resumptionUri(String resumptionToken) {
+    return uri("verb=ListRecords&resumptionToken=" + encode(resumptionToken));
+  }
+
+  /**
+   * Fetch and parse the page at the given URI, retrying as configured.
+   */
+  Page fetchPage(URI uri) throws IOException, InterruptedException {
+    MetricsListener listener = Metrics.getListener();
+    if (listener == null) {
+      return fetchAndParse(uri, null);
+    }
+    long start = System.nanoTime();
+    try {
+      return fetchAndParse(uri, listener);
+    } catch (IOException | RuntimeException e) {
+      listener.failed(Stage.FETCH, e);
+      throw e;
+    } finally {
+      listener.timed(Stage.FETCH, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Each attempt requests the page and parses the whole response, so that a
+   * connection lost while the body is read is retried like a failed request.
+   */
+  private Page fetchAndParse(URI uri, MetricsListener listener) throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder().uri(uri).build();
+    for (int attempt = 0;; attempt++) {
+      HttpResponse<InputStream> response;
+      try {
+        response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      } catch (IOException e) {
+        if (attempt >= maxRetries) {
+          throw e;
+        }
+        Thread.sleep(backoff(attempt).toMillis());
+        continue;
+      }
+      int status = response.statusCode();
+      if (status / 100 != 2) {
+        response.body().close();
+        if ((status == 503 || status == 429) && attempt < maxRetries) {
+          Thread.sleep(retryAfter(response.headers().firstValue("Retry-After"), attempt).toMillis());
+          continue;
+        }
+        throw new IOException("Unexpected HTTP status " + status + " for " + uri);
+      }
+      ReadFailureRecorder body = new ReadFailureRecorder(response.body());
+      try {
+        return parse(listener == null ? body : Metrics.countingStream(body, listener), listener);
+      } catch (IOException | RuntimeException e) {
+        IOException readFailure = body.failure;
+        if (readFailure == null) {
+          // OAI-PMH error or malformed response: not retried
+          throw e;
+        }
+        if (attempt >= maxRetries) {
+          throw readFailure;
+        }
+        Thread.sleep(backoff(attempt).toMillis());
+      }
+    }
+  }
+
+  private Duration backoff(int attempt) {
+    Duration delay = retryDelay.multipliedBy(1L << Math.min(attempt, 20));
+    return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+  }
+
+  /**
+   * @return delay of the Retry-After header (seconds or HTTP date), backoff if
+   *         there is none
+   */
+  private Duration retryAfter(Optional<String> retryAfter, int attempt) {
+    if (retryAfter.isEmpty()) {
+      return backoff(attempt);
+    }
+    String value = retryAfter.get().trim();
+    Duration delay;
+    try {
+      delay = Duration.ofSeconds(Long.parseLong(value));
+    } catch (NumberFormatException e) {
+      try {
+        delay = Duration.between(ZonedDateTime.now(),
+            ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+      } catch (DateTimeParseException e2) {
+        return backoff(attempt);
+      }
+    }
+    if (delay.isNegative()) {
+      return Duration.ZERO;
+    }
+    return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+  }
+
+  /**
+   * Parse a ListRecords response: MARC-XML records (the <code>record</code>
+   * elements in <code>metadata</code>) and resumption token.
+   */
+  private static Page parse(InputStream is, MetricsListener listener) throws IOException {
+    try (is) {
+      XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(is);
+      try {
+        MarcXmlEventReader reader = new MarcXmlEventReader(xml);
+        RecordEventBuilder builder = new RecordEventBuilder();
+        List<Record> records = new ArrayList<>();
+        String resumptionToken = null;
+        boolean inMetadata = false;
+        while (xml.hasNext()) {
+          int event = xml.next();
+          if (event == XMLStreamConstants.END_ELEMENT && "metadata".equals(xml.getLocalName())) {
+            inMetadata = false;
+          } else if (event == XMLStreamConstants.START_ELEMENT) {
+            switch (xml.getLocalName()) {
+            case "metadata" -> inMetadata = true;
+            case "record" -> {
+              if (inMetadata) {
+                reader.readCurrentRecord(builder);
+                Record record = builder.getRecord();
+                if (listener != null) {
+                  Metrics.recordParsed(listener, record);
+                }
+                records.add(record);
+              }
+            }
+            case "resumptionToken" -> {
+              String token = xml.getElementText().trim();
+              resumptionToken = token.isEmpty() ? null : token;
+            }
+            case "error" -> {
+              String code = xml.getAttributeValue(null, "code");
+              String message = xml.getElementText().trim();
+              if ("noRecordsMatch".equals(code)) {
+                return new Page(records, null);
+              }
+              throw new IOException("OAI-PMH error " + code + ": " + message);
+            }
+            default -> {
+              // header, envelope
+            }
+            }
+          }
+        }
+        return new Page(records, resumptionToken);
+      } finally {
+        xml.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new MarcException("Can not read OAI-PMH response", e);
+    }
+  }
+
+  /**
+   * Remembers the first failure reading the response body, which the XML
+   * parser reports as a malformed document.
+   */
+  private static final class ReadFailureRecorder extends FilterInputStream {
+
+    private IOException failure;
+
+    ReadFailureRecorder(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return super.read();
+      } catch (IOException e) {
+        record(e);
+        throw e;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      try {
+        return super.read(b, off, len);
+      } catch (IOException e) {
+        record(e);
+        throw e;
+      }
+    }
+
+    private void record(IOException e) {
+      if (failure == null) {
+        failure = e;
+      }
+    }
+  }
+
+  /**
+   * Records and resumption token (null for the last page) of a response.
+   */
+  static final class Page {
+
+    final List<Record> records;
+    final String resumptionToken;
+
+    Page(List<Record> records, String resumptionToken) {
+      this.records = records;
+      this.resumptionToken = resumptionToken;
+    }
+  }
+}
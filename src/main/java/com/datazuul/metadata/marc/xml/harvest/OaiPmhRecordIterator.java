@@ -0,0 +1,146 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.SynchronousQueue;
+
+import org.marc4j.MarcException;
+import org.marc4j.marc.Record;
+
+/**
+ * <p>
+ * Records of a harvest of an {@link OaiPmhHarvester}. Pages are fetched on an
+ * executor thread and handed over one at a time: the next page is fetched
+ * while the records of the current page are consumed.
+ *
+ * <p>
+ * A failing request (after all retries) is thrown by {@link #hasNext()} as
+ * {@link UncheckedIOException}. Consumers that stop before the end must call
+ * {@link #close()}.
+ */
+public class OaiPmhRecordIterator implements Iterator<Record>, Closeable {
+
+  private final OaiPmhHarvester harvester;
+  private final URI firstPage;
+  // pages are handed over only when the consumer takes them: one page ahead
+  private final SynchronousQueue<Object> pages = new SynchronousQueue<>();
+  private Thread fetcher;
+  private volatile boolean closed;
+  private OaiPmhHarvester.Page page;
+  private int index;
+  private boolean lastPage;
+  private long pageCount;
+
+  OaiPmhRecordIterator(OaiPmhHarvester harvester, URI firstPage) {
+    this.harvester = harvester;
+    this.firstPage = firstPage;
+  }
+
+  /**
+   * Fetch all pages, run by the executor of the harvester.
+   */
+  void fetchPages() {
+    synchronized (this) {
+      fetcher = Thread.currentThread();
+    }
+    try {
+      URI uri = firstPage;
+      while (!closed) {
+        Object result;
+        OaiPmhHarvester.Page fetched = null;
+        try {
+          fetched = harvester.fetchPage(uri);
+          result = fetched;
+        } catch (IOException | RuntimeException e) {
+          result = e;
+        }
+        pages.put(result);
+        if (fetched == null || fetched.resumptionToken == null) {
+          return;
+        }
+        uri = harvester.resumptionUri(fetched.resumptionToken);
+      }
+    } catch (InterruptedException e) {
+      // closed by the consumer
+    } finally {
+      synchronized (this) {
+        fetcher = null;
+        // clear the interrupt flag of the pooled thread, close() no longer
+        // interrupts it
+        Thread.interrupted();
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (page == null || index >= page.records.size()) {
+      if (closed || lastPage) {
+        close();
+        return false;
+      }
+      Object result = take();
+      if (result instanceof OaiPmhHarvester.Page) {
+        page = (OaiPmhHarvester.Page) result;
+        index = 0;
+        lastPage = page.resumptionToken == null;
+        pageCount++;
+      } else {
+        close();
+        if (result instanceof IOException) {
+          throw new UncheckedIOException((IOException) result);
+        }
+        throw (RuntimeException) result;
+      }
+    }
+    return true;
+  }
+
+  private Object take() {
+    try {
+      return pages.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new MarcException("Interrupted while waiting for OAI-PMH response", e);
+    }
+  }
+
+  @Override
+  public Record next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Record record = page.records.get(index);
+    // release the record of the page for garbage collection
+    page.records.set(index++, null);
+    return record;
+  }
+
+  /**
+   * @return number of pages received so far
+   */
+  public long getPageCount() {
+    return pageCount;
+  }
+
+  /**
+   * Stop fetching pages.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    synchronized (this) {
+      if (fetcher != null) {
+        fetcher.interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.Set;
+
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Leader;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.Subfield;
+
+import com.datazuul.metadata.marc.xml.Fnv1a;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventHandler;
+
+/**
+ * <p>
+ * Key and canonical content fingerprint of a MARC record, computed from
+ * MARC-XML events (without building a {@link Record}) or from a
+ * {@link Record}, both giving the same result.
+ *
+ * <p>
+ * The key is the control number (001), or if there is none the smallest
+ * identifier of {@link MarcXml#getIdentifiers()} (035).
+ *
+ * <p>
+ * The fingerprint is a 64 bit FNV-1a hash ({@link Fnv1a}) of the leader, the
+ * control fields and the data fields with their indicators and subfields, in
+ * record order.
+ * Parts that change without a change of the content are left out: the record
+ * length and base address of the leader (positions 0-4 and 12-16), the
+ * control number (the key) and the date of latest transaction (005). The
+ * fingerprint does not depend on the serialization (whitespace between
+ * elements, namespace prefixes, attribute order).
+ *
+ * <p>
+ * Not thread safe: use one instance per {@link
+ * com.datazuul.metadata.marc.xml.event.MarcXmlEventReader}.
+ */
+public class RecordFingerprint implements MarcXmlEventHandler {
+
+  private static final char FIELD_SEPARATOR = 0x1E;
+  private static final char SUBFIELD_SEPARATOR = 0x1F;
+
+  /**
+   * @return key of the record, null if it has neither control number nor
+   *         identifier
+   */
+  public static String key(Record record) {
+    ControlField controlNumber = record.getControlNumberField();
+    if (controlNumber != null) {
+      String key = trimToNull(controlNumber.getData());
+      if (key != null) {
+        return key;
+      }
+    }
+    String smallest = null;
+    Set<String> identifiers = new MarcXml(record).getIdentifiers();
+    for (String identifier : identifiers) {
+      smallest = smaller(smallest, identifier);
+    }
+    return smallest;
+  }
+
+  /**
+   * @return content fingerprint of the record
+   */
+  public static long fingerprint(Record record) {
+    long hash = Fnv1a.OFFSET_BASIS;
+    Leader leader = record.getLeader();
+    if (leader != null) {
+      String data = leader.marshal();
+      hash = hashLeader(hash, data, 0, data.length());
+    }
+    for (ControlField controlField : record.getControlFields()) {
+      String data = controlField.getData();
+      hash = hashControlField(hash, controlField.getTag(), data, 0, data == null ? 0 : data.length());
+    }
+    for (DataField dataField : record.getDataFields()) {
+      hash = hashDataField(hash, dataField.getTag(), dataField.getIndicator1(), dataField.getIndicator2());
+      List<Subfield> subfields = dataField.getSubfields();
+      for (int i = 0, size = subfields.size(); i < size; i++) {
+        Subfield subfield = subfields.get(i);
+        String data = subfield.getData();
+        hash = hashSubfield(hash, subfield.getCode(), data, 0, data == null ? 0 : data.length());
+      }
+    }
+    return hash;
+  }
+
+  private static boolean isHashed(String tag) {
+    return !"001".equals(tag) && !"005".equals(tag);
+  }
+
+  private static long hashLeader(long hash, CharSequence chars, int start, int length) {
+    int end = start + length;
+    hash = Fnv1a.hash(hash, chars, Math.min(start + 5, end), Math.min(start + 12, end));
+    return Fnv1a.hash(hash, chars, Math.min(start + 17, end), end);
+  }
+
+  private static long hashControlField(long hash, String tag, CharSequence chars, int start, int length) {
+    if (!isHashed(tag)) {
+      return hash;
+    }
+    hash = Fnv1a.hash(Fnv1a.hash(hash, FIELD_SEPARATOR), tag, 0, tag.length());
+    return Fnv1a.hash(Fnv1a.hash(hash, SUBFIELD_SEPARATOR), chars, start, start + length);
+  }
+
+  private static long hashDataField(long hash, String tag, char ind1, char ind2) {
+    hash = Fnv1a.hash(Fnv1a.hash(hash, FIELD_SEPARATOR), tag, 0, tag.length());
+    return Fnv1a.hash(Fnv1a.hash(hash, ind1), ind2);
+  }
+
+  private static long hashSubfield(long hash, char code, CharSequence chars, int start, int length) {
+    return Fnv1a.hash(Fnv1a.hash(Fnv1a.hash(hash, SUBFIELD_SEPARATOR), code), chars, start, start + length);
+  }
+
+  private static String trimToNull(String value) {
+    if (value == null) {
+      return null;
+    }
+    String trimmed = value.trim();
+    return trimmed.isEmpty() ? null : trimmed;
+  }
+
+  private static String smaller(String smallest, String identifier) {
+    if (identifier == null || identifier.isBlank()) {
+      return smallest;
+    }
+    return smallest == null || identifier.compareTo(smallest) < 0 ? identifier : smallest;
+  }
+
+  private long hash;
+  private String controlNumber;
+  private String identifier;
+  // current 035 field: first $a, first $9
+  private boolean inIdentifierField;
+  private String identifierA;
+  private String identifier9;
+
+  /**
+   * @return key of the last record, null if it has neither control number nor
+   *         identifier
+   */
+  public String getKey() {
+    return controlNumber != null ? controlNumber : identifier;
+  }
+
+  /**
+   * @return content fingerprint of the last record
+   */
+  public long getFingerprint() {
+    return hash;
+  }
+
+  @Override
+  public void startRecord() {
+    hash = Fnv1a.OFFSET_BASIS;
+    controlNumber = null;
+    identifier = null;
+    inIdentifierField = false;
+  }
+
+  @Override
+  public void leader(char[] chars, int start, int length) {
+    hash = hashLeader(hash, CharBuffer.wrap(chars), start, length);
+  }
+
+  @Override
+  public void controlField(String tag, char[] chars, int start, int length) {
+    if ("001".equals(tag)) {
+      if (controlNumber == null) {
+        controlNumber = trimToNull(new String(chars, start, length));
+      }
+    } else {
+      hash = hashControlField(hash, tag, CharBuffer.wrap(chars), start, length);
+    }
+  }
+
+  @Override
+  public void startDataField(String tag, char ind1, char ind2) {
+    hash = hashDataField(hash, tag, ind1, ind2);
+    inIdentifierField = "035".equals(tag);
+    identifierA = null;
+    identifier9 = null;
+  }
+
+  @Override
+  public void subfield(char code, char[] chars, int start, int length) {
+    hash = hashSubfield(hash, code, CharBuffer.wrap(chars), start, length);
+    if (inIdentifierField) {
+      if (code == 'a' && identifierA == null) {
+        identifierA = new String(chars, start, length);
+      } else if (code == '9' && identifier9 == null) {
+        identifier9 = new String(chars, start, length);
+      }
+    }
+  }
+
+  @Override
+  public void endDataField() {
+    if (inIdentifierField) {
+      identifier = smaller(identifier, identifierA != null ? identifierA : identifier9);
+      inIdentifierField = false;
+    }
+  }
+}
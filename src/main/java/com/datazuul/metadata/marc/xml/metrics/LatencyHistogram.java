@@ -0,0 +1,74 @@
+package com.datazuul.metadata.marc.xml.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe histogram of durations in nanoseconds with power of two buckets:
+ * percentiles are accurate to a factor of two, recording a value is a single
+ * counter increment.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 64;
+
+  // bucket i counts durations in [2^(i-1), 2^i)
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder totalNanos = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value))].increment();
+    totalNanos.add(value);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  /**
+   * @return mean duration, 0 if empty
+   */
+  public double getMeanNanos() {
+    long count = getCount();
+    return count == 0 ? 0 : (double) getTotalNanos() / count;
+  }
+
+  /**
+   * @param percentile e.g. 0.99
+   * @return upper bound of the bucket containing the percentile, 0 if empty
+   */
+  public long getPercentileNanos(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      count += counts[i];
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(percentile * count);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return i == 0 ? 0 : i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+}
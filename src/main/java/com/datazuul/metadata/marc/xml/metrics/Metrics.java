@@ -0,0 +1,112 @@
+package com.datazuul.metadata.marc.xml.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.Record;
+
+/**
+ * <p>
+ * Registry of the {@link MetricsListener} of the library. Without a listener
+ * (the default) instrumented methods only check for it and take the
+ * uninstrumented path.
+ *
+ * <p>
+ * Instrumented code follows the pattern
+ *
+ * <pre>
+ * MetricsListener listener = Metrics.getListener();
+ * if (listener == null) {
+ *   return doWork();
+ * }
+ * long start = System.nanoTime();
+ * try {
+ *   return doWork();
+ * } catch (RuntimeException e) {
+ *   listener.failed(Stage.CONVERT, e);
+ *   throw e;
+ * } finally {
+ *   listener.timed(Stage.CONVERT, System.nanoTime() - start);
+ * }
+ * </pre>
+ */
+public final class Metrics {
+
+  private static volatile MetricsListener listener;
+
+  private Metrics() {
+  }
+
+  /**
+   * @return registered listener, null if none
+   */
+  public static MetricsListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Register the listener receiving the measurements of all threads, null to
+   * stop measuring.
+   */
+  public static void setListener(MetricsListener metricsListener) {
+    listener = metricsListener;
+  }
+
+  /**
+   * Report a parsed record with its number of fields and subfields.
+   */
+  public static void recordParsed(MetricsListener listener, Record record) {
+    if (record == null) {
+      return;
+    }
+    int subfields = 0;
+    for (DataField dataField : record.getDataFields()) {
+      subfields += dataField.getSubfields().size();
+    }
+    listener.recordParsed(record.getControlFields().size() + record.getDataFields().size(), subfields);
+  }
+
+  /**
+   * @return stream reporting the bytes read from the given stream (not
+   *         supporting mark/reset)
+   */
+  public static InputStream countingStream(InputStream is, MetricsListener listener) {
+    return new FilterInputStream(is) {
+
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+          listener.bytesRead(1);
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+          listener.bytesRead(n);
+        }
+        return n;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+          listener.bytesRead(skipped);
+        }
+        return skipped;
+      }
+
+      // bytes read again after a reset would be counted twice
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+    };
+  }
+}
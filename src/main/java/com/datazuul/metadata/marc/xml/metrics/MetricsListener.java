@@ -0,0 +1,43 @@
+package com.datazuul.metadata.marc.xml.metrics;
+
+/**
+ * <p>
+ * Receives measurements of the parse and conversion hot paths, see
+ * {@link Metrics#setListener(MetricsListener)}. All methods do nothing by
+ * default, implementations override the ones they need.
+ *
+ * <p>
+ * Methods are called on the processing threads, so implementations must be
+ * thread safe and fast (e.g. increment counters, no I/O).
+ */
+public interface MetricsListener {
+
+  /**
+   * @param stage completed (or failed) stage
+   * @param nanos duration of the stage
+   */
+  default void timed(Stage stage, long nanos) {
+  }
+
+  /**
+   * A record has been parsed.
+   *
+   * @param fields    number of control and data fields of the record
+   * @param subfields number of subfields of all data fields
+   */
+  default void recordParsed(int fields, int subfields) {
+  }
+
+  /**
+   * @param bytes number of bytes read from a MARC-XML source
+   */
+  default void bytesRead(long bytes) {
+  }
+
+  /**
+   * @param stage stage that failed
+   * @param cause exception thrown to the caller
+   */
+  default void failed(Stage stage, Throwable cause) {
+  }
+}
@@ -0,0 +1,87 @@
+package com.datazuul.metadata.marc.xml.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ * Bridges the measurements to a monitoring system with named timers and
+ * counters (e.g. a Micrometer MeterRegistry), without depending on it:
+ *
+ * <pre>
+ * Metrics.setListener(new NamedMetricsAdapter("marcxml", new MeterSink() {
+ *   public void recordTime(String name, long nanos) {
+ *     registry.timer(name).record(nanos, TimeUnit.NANOSECONDS);
+ *   }
+ *
+ *   public void increment(String name, long amount) {
+ *     registry.counter(name).increment(amount);
+ *   }
+ * }));
+ * </pre>
+ *
+ * <p>
+ * Names are &lt;prefix&gt;.&lt;stage&gt;.time (e.g. marcxml.parse.time),
+ * &lt;prefix&gt;.records, &lt;prefix&gt;.fields, &lt;prefix&gt;.subfields,
+ * &lt;prefix&gt;.bytes and &lt;prefix&gt;.&lt;stage&gt;.failures.&lt;simple
+ * exception class name&gt;.
+ */
+public class NamedMetricsAdapter implements MetricsListener {
+
+  /**
+   * Target of the measurements, must be thread safe.
+   */
+  public interface MeterSink {
+
+    void recordTime(String name, long nanos);
+
+    void increment(String name, long amount);
+  }
+
+  private final String prefix;
+  private final MeterSink sink;
+  private final Map<Stage, String> timerNames = new EnumMap<>(Stage.class);
+  private final String recordsName;
+  private final String fieldsName;
+  private final String subfieldsName;
+  private final String bytesName;
+
+  public NamedMetricsAdapter(String prefix, MeterSink sink) {
+    this.prefix = prefix;
+    this.sink = sink;
+    for (Stage stage : Stage.values()) {
+      timerNames.put(stage, name(stage) + ".time");
+    }
+    this.recordsName = prefix + ".records";
+    this.fieldsName = prefix + ".fields";
+    this.subfieldsName = prefix + ".subfields";
+    this.bytesName = prefix + ".bytes";
+  }
+
+  private String name(Stage stage) {
+    return prefix + "." + stage.name().toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  public void timed(Stage stage, long nanos) {
+    sink.recordTime(timerNames.get(stage), nanos);
+  }
+
+  @Override
+  public void recordParsed(int fields, int subfields) {
+    sink.increment(recordsName, 1);
+    sink.increment(fieldsName, fields);
+    sink.increment(subfieldsName, subfields);
+  }
+
+  @Override
+  public void bytesRead(long bytes) {
+    sink.increment(bytesName, bytes);
+  }
+
+  @Override
+  public void failed(Stage stage, Throwable cause) {
+    sink.increment(name(stage) + ".failures." + cause.getClass().getSimpleName(), 1);
+  }
+}
@@ -0,0 +1,79 @@
+package com.datazuul.metadata.marc.xml.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MetricsListener} keeping a {@link LatencyHistogram} per stage and
+ * counters in memory, e.g. to be logged or exported periodically.
+ */
+public class RecordingMetricsListener implements MetricsListener {
+
+  private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+  private final LongAdder records = new LongAdder();
+  private final LongAdder fields = new LongAdder();
+  private final LongAdder subfields = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+  public RecordingMetricsListener() {
+    for (Stage stage : Stage.values()) {
+      histograms.put(stage, new LatencyHistogram());
+    }
+  }
+
+  @Override
+  public void timed(Stage stage, long nanos) {
+    histograms.get(stage).record(nanos);
+  }
+
+  @Override
+  public void recordParsed(int fieldCount, int subfieldCount) {
+    records.increment();
+    fields.add(fieldCount);
+    subfields.add(subfieldCount);
+  }
+
+  @Override
+  public void bytesRead(long count) {
+    bytes.add(count);
+  }
+
+  @Override
+  public void failed(Stage stage, Throwable cause) {
+    failures.computeIfAbsent(stage + " " + cause.getClass().getName(), key -> new LongAdder()).increment();
+  }
+
+  public LatencyHistogram getHistogram(Stage stage) {
+    return histograms.get(stage);
+  }
+
+  public long getRecords() {
+    return records.sum();
+  }
+
+  public long getFields() {
+    return fields.sum();
+  }
+
+  public long getSubfields() {
+    return subfields.sum();
+  }
+
+  public long getBytesRead() {
+    return bytes.sum();
+  }
+
+  /**
+   * @return number of failures by stage and exception class, e.g.
+   *         "CONVERT java.lang.NullPointerException"
+   */
+  public Map<String, Long> getFailures() {
+    Map<String, Long> result = new TreeMap<>();
+    failures.forEach((key, count) -> result.put(key, count.sum()));
+    return result;
+  }
+}
@@ -0,0 +1,35 @@
+package com.datazuul.metadata.marc.xml.metrics;
+
+/**
+ * Processing stages reported to a {@link MetricsListener}.
+ */
+public enum Stage {
+
+  /**
+   * Request and parsing of a record fetched by
+   * {@link com.datazuul.metadata.marc.xml.MarcXmlRecord#from(java.net.URI)}.
+   */
+  FETCH,
+
+  /**
+   * Parsing of one record (for iterators and streams: waiting for the next
+   * record of the parser).
+   */
+  PARSE,
+
+  /**
+   * Creation of the tag index and the fixed field views of a
+   * {@link com.datazuul.metadata.marc.xml.MarcXml}.
+   */
+  INDEX,
+
+  /**
+   * Subfield accessors of {@link com.datazuul.metadata.marc.xml.MarcXml}.
+   */
+  ACCESS,
+
+  /**
+   * Conversion of one record, e.g. to Dublin Core.
+   */
+  CONVERT
+}
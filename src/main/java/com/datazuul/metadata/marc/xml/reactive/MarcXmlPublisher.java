@@ -0,0 +1,290 @@
+package com.datazuul.metadata.marc.xml.reactive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DcElement;
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXmlFetcher;
+import com.datazuul.metadata.marc.xml.converter.DublinCoreEventBuilder;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+import com.datazuul.metadata.marc.xml.event.RecordEventBuilder;
+
+/**
+ * <p>
+ * {@link Flow.Publisher} of the records of a MARC-XML source, as
+ * {@link Record}s or converted to {@link DublinCore}:
+ *
+ * <pre>
+ * MarcXmlPublisher.dublinCore(URI.create("https://example.org/dump.xml"), executor).subscribe(subscriber);
+ * </pre>
+ *
+ * <p>
+ * Records are parsed on the given executor with a {@link MarcXmlEventReader},
+ * one record per requested item: nothing is read ahead of the demand of the
+ * subscriber, so a slow subscriber throttles parsing (and the download of a
+ * URI source). The source is opened on the first request; cancelling the
+ * subscription, completion and errors close the parser and the source.
+ *
+ * <p>
+ * Publishers of an input stream accept only one subscriber, publishers of a
+ * URI fetch the document for each subscriber (see
+ * {@link MarcXmlFetcher#open(URI)} of the default fetcher).
+ */
+public final class MarcXmlPublisher<T> implements Flow.Publisher<T> {
+
+  /**
+   * Opens the MARC-XML source for a subscription.
+   */
+  @FunctionalInterface
+  private interface Source {
+
+    InputStream open() throws IOException, InterruptedException;
+  }
+
+  /**
+   * Reads the next item of a subscription.
+   */
+  @FunctionalInterface
+  private interface ItemReader<T> {
+
+    /**
+     * @return next item, null if there are no more records
+     */
+    T next(MarcXmlEventReader reader);
+  }
+
+  public static MarcXmlPublisher<Record> records(InputStream is, Executor executor) {
+    return new MarcXmlPublisher<>(singleUse(is), MarcXmlPublisher::recordReader, executor);
+  }
+
+  public static MarcXmlPublisher<Record> records(URI uri, Executor executor) {
+    return new MarcXmlPublisher<>(() -> MarcXmlFetcher.getDefault().open(uri), MarcXmlPublisher::recordReader,
+        executor);
+  }
+
+  public static MarcXmlPublisher<DublinCore> dublinCore(InputStream is, Executor executor) {
+    return dublinCore(is, EnumSet.allOf(DcElement.class), executor);
+  }
+
+  public static MarcXmlPublisher<DublinCore> dublinCore(URI uri, Executor executor) {
+    return dublinCore(uri, EnumSet.allOf(DcElement.class), executor);
+  }
+
+  /**
+   * @param elements elements to compute, all other elements of the results are
+   *                 null
+   */
+  public static MarcXmlPublisher<DublinCore> dublinCore(InputStream is, Set<DcElement> elements,
+      Executor executor) {
+    return new MarcXmlPublisher<>(singleUse(is), () -> dublinCoreReader(elements), executor);
+  }
+
+  /**
+   * @param elements elements to compute, all other elements of the results are
+   *                 null
+   */
+  public static MarcXmlPublisher<DublinCore> dublinCore(URI uri, Set<DcElement> elements, Executor executor) {
+    return new MarcXmlPublisher<>(() -> MarcXmlFetcher.getDefault().open(uri), () -> dublinCoreReader(elements),
+        executor);
+  }
+
+  private static Source singleUse(InputStream is) {
+    AtomicBoolean opened = new AtomicBoolean();
+    return () -> {
+      if (opened.getAndSet(true)) {
+        throw new IllegalStateException("Input stream already subscribed to");
+      }
+      return is;
+    };
+  }
+
+  private static ItemReader<Record> recordReader() {
+    RecordEventBuilder builder = new RecordEventBuilder();
+    return reader -> reader.next(builder) ? builder.getRecord() : null;
+  }
+
+  private static ItemReader<DublinCore> dublinCoreReader(Set<DcElement> elements) {
+    DublinCoreEventBuilder builder = new DublinCoreEventBuilder(elements);
+    return reader -> reader.next(builder) ? builder.getDublinCore() : null;
+  }
+
+  private final Source source;
+  private final Supplier<ItemReader<T>> itemReaders;
+  private final Executor executor;
+
+  private MarcXmlPublisher(Source source, Supplier<ItemReader<T>> itemReaders, Executor executor) {
+    this.source = source;
+    this.itemReaders = itemReaders;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    subscriber.onSubscribe(new RecordSubscription(subscriber));
+  }
+
+  /**
+   * <p>
+   * Emits the items of one subscriber. Requests and cancellation only update
+   * the state and schedule a drain on the executor; at most one drain runs at a
+   * time (<code>pending</code> counts the schedules not yet seen by the
+   * running drain), so the subscriber is signalled serially.
+   */
+  private final class RecordSubscription implements Flow.Subscription, Runnable {
+
+    private final Flow.Subscriber<? super T> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+    // accessed by the drain only
+    private MarcXmlEventReader reader;
+    private ItemReader<T> itemReader;
+    private boolean done;
+
+    RecordSubscription(Flow.Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+      } else {
+        demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // no drain running (nor scheduled ever again)
+          boolean signal = !cancelled;
+          cancelled = true;
+          closeReader();
+          if (signal) {
+            subscriber.onError(e);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        drain();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drain() {
+      if (done) {
+        return;
+      }
+      if (cancelled) {
+        finish();
+        return;
+      }
+      if (invalidRequest != null) {
+        finish();
+        subscriber.onError(invalidRequest);
+        return;
+      }
+      long emitted = 0;
+      long requested = demand.get();
+      while (!cancelled) {
+        if (emitted == requested) {
+          // consume the emitted demand, continue if more has been requested
+          requested = demand.addAndGet(-emitted);
+          emitted = 0;
+          if (requested == 0) {
+            return;
+          }
+        }
+        T item;
+        try {
+          if (reader == null) {
+            itemReader = itemReaders.get();
+            InputStream is = source.open();
+            try {
+              reader = new MarcXmlEventReader(is);
+            } catch (RuntimeException e) {
+              is.close();
+              throw e;
+            }
+          }
+          item = itemReader.next(reader);
+        } catch (IOException | RuntimeException e) {
+          finish();
+          subscriber.onError(e);
+          return;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          finish();
+          subscriber.onError(e);
+          return;
+        }
+        if (item == null) {
+          finish();
+          subscriber.onComplete();
+          return;
+        }
+        try {
+          subscriber.onNext(item);
+        } catch (RuntimeException | Error e) {
+          // a subscriber must not throw (rule 2.13): treat as cancelled
+          cancelled = true;
+          finish();
+          if (e instanceof Error) {
+            throw e;
+          }
+          return;
+        }
+        emitted++;
+      }
+      finish();
+    }
+
+    private void finish() {
+      done = true;
+      closeReader();
+    }
+
+    private void closeReader() {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          // nothing more to read
+        }
+        reader = null;
+      }
+    }
+  }
+}
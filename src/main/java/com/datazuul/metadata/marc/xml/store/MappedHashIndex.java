@@ -0,0 +1,241 @@
+package com.datazuul.metadata.marc.xml.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+
+/**
+ * <p>
+ * Persistent open addressing hash table from 64 bit key hashes to file
+ * offsets, in a memory mapped file: a header and 16 bytes per slot (hash,
+ * offset + 1, 0 for empty slots). The file is mapped in segments of 1 GB.
+ *
+ * <p>
+ * Several entries may have the same hash (different keys with the same hash,
+ * or the same key in several records): lookups and updates get a predicate
+ * deciding whether the record at an offset has the key. The table is rebuilt
+ * with twice the capacity in a new file (replacing the old one atomically) at
+ * a load factor of 0.7.
+ *
+ * <p>
+ * Not thread safe.
+ */
+final class MappedHashIndex implements Closeable {
+
+  // "MXHI"
+  private static final int MAGIC = 0x4d584849;
+  private static final int VERSION = 1;
+  // magic, version, capacity, size, data length, record count
+  private static final int HEADER_SIZE = 32;
+  private static final int SLOT_SIZE = 16;
+  private static final int SLOTS_PER_SEGMENT = 1 << 26;
+  private static final int MAX_CAPACITY = 1 << 30;
+  private static final float LOAD_FACTOR = 0.7f;
+  private static final long EMPTY_HASH = 0x9e3779b97f4a7c15L;
+
+  private static int capacityFor(long expectedKeys) {
+    long capacity = 16;
+    while (capacity * LOAD_FACTOR < expectedKeys) {
+      capacity <<= 1;
+    }
+    if (capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Too many keys: " + expectedKeys);
+    }
+    return (int) capacity;
+  }
+
+  private final Path file;
+  private FileChannel channel;
+  private MappedByteBuffer header;
+  private MappedByteBuffer[] segments;
+  private int capacity;
+  private int size;
+
+  /**
+   * Open the index file, create it if it does not exist.
+   *
+   * @param expectedKeys number of keys a new index is sized for
+   */
+  MappedHashIndex(Path file, long expectedKeys) throws IOException {
+    this(file, Files.exists(file) ? 0 : capacityFor(expectedKeys));
+  }
+
+  /**
+   * @param newCapacity capacity of a new, empty index, 0 to open the existing
+   *                    file
+   */
+  private MappedHashIndex(Path file, int newCapacity) throws IOException {
+    this.file = file;
+    open(newCapacity);
+  }
+
+  private void open(int newCapacity) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (newCapacity > 0) {
+      channel.truncate(0);
+      header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+      header.putInt(0, MAGIC);
+      header.putInt(4, VERSION);
+      header.putInt(8, newCapacity);
+    } else {
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException("Not an index file: " + file);
+      }
+      header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException("Not an index file: " + file);
+      }
+    }
+    capacity = header.getInt(8);
+    size = header.getInt(12);
+    if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+      throw new IOException("Corrupt index file: " + file);
+    }
+    int segmentCount = Math.max(1, capacity / SLOTS_PER_SEGMENT);
+    segments = new MappedByteBuffer[segmentCount];
+    long slotsPerSegment = Math.min(capacity, SLOTS_PER_SEGMENT);
+    for (int i = 0; i < segmentCount; i++) {
+      // mapping beyond the end grows the file, new slots are zero (empty)
+      segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * slotsPerSegment * SLOT_SIZE,
+          slotsPerSegment * SLOT_SIZE);
+    }
+  }
+
+  private static long internalHash(long hash) {
+    return hash == 0 ? EMPTY_HASH : hash;
+  }
+
+  private long hashAt(int slot) {
+    return segments[slot / SLOTS_PER_SEGMENT].getLong((slot % SLOTS_PER_SEGMENT) * SLOT_SIZE);
+  }
+
+  private long offsetAt(int slot) {
+    return segments[slot / SLOTS_PER_SEGMENT].getLong((slot % SLOTS_PER_SEGMENT) * SLOT_SIZE + 8) - 1;
+  }
+
+  private void set(int slot, long hash, long offset) {
+    MappedByteBuffer segment = segments[slot / SLOTS_PER_SEGMENT];
+    int position = (slot % SLOTS_PER_SEGMENT) * SLOT_SIZE;
+    segment.putLong(position + 8, offset + 1);
+    segment.putLong(position, hash);
+  }
+
+  /**
+   * @return offset of the first entry with the hash accepted by the predicate,
+   *         -1 if none
+   */
+  long find(long hash, LongPredicate hasKey) {
+    long h = internalHash(hash);
+    int mask = capacity - 1;
+    for (int slot = (int) h & mask;; slot = (slot + 1) & mask) {
+      long slotHash = hashAt(slot);
+      if (slotHash == 0) {
+        return -1;
+      }
+      if (slotHash == h && hasKey.test(offsetAt(slot))) {
+        return offsetAt(slot);
+      }
+    }
+  }
+
+  /**
+   * Point the entry with the hash accepted by the predicate to the new offset,
+   * add an entry if there is none.
+   */
+  void put(long hash, long offset, LongPredicate hasKey) throws IOException {
+    long h = internalHash(hash);
+    int mask = capacity - 1;
+    int slot = (int) h & mask;
+    for (long slotHash = hashAt(slot); slotHash != 0; slot = (slot + 1) & mask, slotHash = hashAt(slot)) {
+      if (slotHash == h && hasKey.test(offsetAt(slot))) {
+        set(slot, h, offset);
+        return;
+      }
+    }
+    set(slot, h, offset);
+    header.putInt(12, ++size);
+    if (size > capacity * LOAD_FACTOR) {
+      grow();
+    }
+  }
+
+  private void insert(long h, long offset) {
+    int mask = capacity - 1;
+    int slot = (int) h & mask;
+    while (hashAt(slot) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    set(slot, h, offset);
+  }
+
+  private void grow() throws IOException {
+    if (capacity >= MAX_CAPACITY) {
+      throw new IOException("Index full: " + size + " keys");
+    }
+    Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    MappedHashIndex grown = new MappedHashIndex(tempFile, capacity * 2);
+    for (int slot = 0; slot < capacity; slot++) {
+      long h = hashAt(slot);
+      if (h != 0) {
+        grown.insert(h, offsetAt(slot));
+      }
+    }
+    grown.header.putInt(12, size);
+    grown.setDataLength(getDataLength());
+    grown.setRecordCount(getRecordCount());
+    grown.force();
+    grown.close();
+    close();
+    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    open(0);
+  }
+
+  int size() {
+    return size;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @return length of the data file covered by the index
+   */
+  long getDataLength() {
+    return header.getLong(16);
+  }
+
+  void setDataLength(long dataLength) {
+    header.putLong(16, dataLength);
+  }
+
+  long getRecordCount() {
+    return header.getLong(24);
+  }
+
+  void setRecordCount(long recordCount) {
+    header.putLong(24, recordCount);
+  }
+
+  void force() {
+    for (MappedByteBuffer segment : segments) {
+      segment.force();
+    }
+    header.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+    header = null;
+    segments = null;
+  }
+}
@@ -0,0 +1,450 @@
+package com.datazuul.metadata.marc.xml.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.CompactRecord;
+import com.datazuul.metadata.marc.xml.Fnv1a;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+import com.datazuul.metadata.marc.xml.event.RecordEventBuilder;
+
+/**
+ * <p>
+ * Append-only store of MARC records in a directory, for lookups by control
+ * number (001) or system number (035 $a) without parsing MARC-XML:
+ *
+ * <pre>
+ * try (MarcXmlRecordStore store = MarcXmlRecordStore.build(Paths.get("store"), is, 1_000_000)) {
+ *   MarcXml marcXml = store.get("(DE-101)1234");
+ * }
+ * </pre>
+ *
+ * <p>
+ * Records are appended in the serialized form of {@link CompactRecord} to the
+ * data file "records.dat", which is read through memory mapped segments of 1
+ * GB (a record never crosses a segment boundary). Records appended since the
+ * last mapping are read through the file channel, until 64 MB of them are
+ * mapped at once. The keys of the records are
+ * indexed in the persistent hash index "records.idx". Appending a record with
+ * a known key replaces the indexed record of this key: lookups return the
+ * last appended version.
+ *
+ * <p>
+ * The index records the length of the data file it covers. An append writes
+ * the record, then extends the covered length and only then points the index
+ * slots to the record, so slots never point beyond the covered data: data
+ * appended by an interrupted run, but not covered, is discarded when the
+ * store is opened again, a covered record whose slots were not written is
+ * just not found. The order holds for a crashed process; {@link #flush()}
+ * forces both files to the storage device. A data file without a usable index
+ * (e.g. the index file was deleted) is indexed again when opened.
+ *
+ * <p>
+ * Thread safe: lookups run in parallel, appends exclusively.
+ */
+public class MarcXmlRecordStore implements Closeable {
+
+  static final String DATA_FILE = "records.dat";
+  static final String INDEX_FILE = "records.idx";
+
+  // "MXRS"
+  private static final int MAGIC = 0x4d585253;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final long SEGMENT_SIZE = 1L << 30;
+  private static final long MAP_INCREMENT = 64L << 20;
+
+  /**
+   * Create a new store in the directory (replacing an existing one) with all
+   * records of the given MARC-XML source.
+   *
+   * @param expectedRecords number of records the index is sized for
+   */
+  public static MarcXmlRecordStore build(Path directory, InputStream is, int expectedRecords) throws IOException {
+    Files.deleteIfExists(directory.resolve(DATA_FILE));
+    Files.deleteIfExists(directory.resolve(INDEX_FILE));
+    // 001 and usually one 035 per record
+    MarcXmlRecordStore store = new MarcXmlRecordStore(directory, expectedRecords * 2L, SEGMENT_SIZE);
+    try {
+      store.appendAll(is);
+      store.flush();
+    } catch (IOException | RuntimeException e) {
+      store.close();
+      throw e;
+    }
+    return store;
+  }
+
+  /**
+   * @return keys of the record: trimmed control number and 035 identifiers
+   */
+  static List<String> keys(CompactRecord record) {
+    List<String> keys = new ArrayList<>();
+    String controlNumber = record.getControlNumber();
+    if (controlNumber != null && !controlNumber.isBlank()) {
+      keys.add(controlNumber.trim());
+    }
+    for (String identifier : record.getIdentifiers()) {
+      String key = identifier.trim();
+      if (!key.isEmpty() && !keys.contains(key)) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
+  private final Path dataFile;
+  private final long segmentSize;
+  // unmapped data read through the channel before it is mapped
+  private final long mapIncrement;
+  private final FileChannel channel;
+  private final MappedHashIndex index;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  // replaced by readers (under the read lock) when records have been appended
+  private volatile Mapping mapping = new Mapping(new MappedByteBuffer[0], 0);
+  // guarded by the lock
+  private long dataLength;
+
+  /**
+   * Open the store in the directory, create it if it does not exist.
+   */
+  public MarcXmlRecordStore(Path directory) throws IOException {
+    this(directory, 0, SEGMENT_SIZE);
+  }
+
+  /**
+   * @param expectedKeys number of keys a new index is sized for
+   * @param segmentSize  size of the mapped segments of the data file
+   */
+  MarcXmlRecordStore(Path directory, long expectedKeys, long segmentSize) throws IOException {
+    Files.createDirectories(directory);
+    this.dataFile = directory.resolve(DATA_FILE);
+    this.segmentSize = segmentSize;
+    this.mapIncrement = Math.min(segmentSize, MAP_INCREMENT);
+    this.index = new MappedHashIndex(directory.resolve(INDEX_FILE), expectedKeys);
+    try {
+      this.channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      index.close();
+      throw e;
+    }
+    try {
+      open();
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private void open() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (channel.size() < HEADER_SIZE) {
+      // new store (or its header was never completely written)
+      header.putInt(MAGIC).putInt(VERSION).flip();
+      channel.truncate(0);
+      channel.write(header, 0);
+      dataLength = HEADER_SIZE;
+      index.setDataLength(dataLength);
+      return;
+    }
+    readFully(header, 0);
+    if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+      throw new IOException("Not a record store: " + dataFile);
+    }
+    if (index.getDataLength() == 0) {
+      // index file missing or never forced
+      rebuildIndex();
+      return;
+    }
+    dataLength = index.getDataLength();
+    if (channel.size() < dataLength) {
+      throw new IOException("Data file shorter than indexed: " + dataFile);
+    }
+    // discard records appended after the last index update
+    channel.truncate(dataLength);
+  }
+
+  /**
+   * Index the records of a data file the index does not cover at all. An
+   * incomplete last record is discarded.
+   */
+  private void rebuildIndex() throws IOException {
+    long size = channel.size();
+    long offset = HEADER_SIZE;
+    dataLength = HEADER_SIZE;
+    index.setDataLength(dataLength);
+    ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    while (offset + Integer.BYTES <= size) {
+      int length = 0;
+      if (offset % segmentSize + Integer.BYTES <= segmentSize) {
+        lengthBuffer.clear();
+        readFully(lengthBuffer, offset);
+        length = lengthBuffer.getInt(0);
+      }
+      if (length == 0) {
+        // gap up to the next segment, never written
+        offset = (offset / segmentSize + 1) * segmentSize;
+        continue;
+      }
+      long end = offset + Integer.BYTES + length;
+      if (length < 0 || offset % segmentSize + Integer.BYTES + length > segmentSize) {
+        throw new IOException("Invalid record length " + length + " at offset " + offset + ": " + dataFile);
+      }
+      if (end > size) {
+        break;
+      }
+      ByteBuffer bytes = ByteBuffer.allocate(length);
+      readFully(bytes, offset + Integer.BYTES);
+      CompactRecord record;
+      try {
+        record = CompactRecord.fromBytes(bytes.flip());
+      } catch (RuntimeException e) {
+        throw new IOException("Invalid record at offset " + offset + ": " + dataFile, e);
+      }
+      dataLength = end;
+      index.setDataLength(dataLength);
+      index.setRecordCount(index.getRecordCount() + 1);
+      for (String key : keys(record)) {
+        index.put(Fnv1a.hash(key), offset, o -> hasKey(o, key));
+      }
+      offset = end;
+    }
+    channel.truncate(dataLength);
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of data file: " + dataFile);
+      }
+    }
+  }
+
+  /**
+   * Append all records of the given MARC-XML source.
+   *
+   * @return number of appended records
+   */
+  public long appendAll(InputStream is) throws IOException {
+    RecordEventBuilder builder = new RecordEventBuilder();
+    long count = 0;
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(is)) {
+      while (reader.next(builder)) {
+        if (append(builder.getRecord())) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Append the record, replacing the indexed records of its keys.
+   *
+   * @return false if the record has neither a control number nor 035
+   *         identifiers (and is not stored)
+   */
+  public boolean append(Record record) throws IOException {
+    CompactRecord compact = CompactRecord.from(record);
+    List<String> keys = keys(compact);
+    if (keys.isEmpty()) {
+      return false;
+    }
+    byte[] bytes = compact.toBytes();
+    int entryLength = Integer.BYTES + bytes.length;
+    if (entryLength > segmentSize) {
+      throw new IOException("Record too large: " + bytes.length + " bytes");
+    }
+    lock.writeLock().lock();
+    try {
+      long offset = dataLength;
+      if (offset % segmentSize + entryLength > segmentSize) {
+        // start a new segment, the gap is never read
+        offset = (offset / segmentSize + 1) * segmentSize;
+      }
+      ByteBuffer entry = ByteBuffer.allocate(entryLength);
+      entry.putInt(bytes.length).put(bytes).flip();
+      while (entry.hasRemaining()) {
+        channel.write(entry, offset + entry.position());
+      }
+      dataLength = offset + entryLength;
+      index.setDataLength(dataLength);
+      index.setRecordCount(index.getRecordCount() + 1);
+      for (String key : keys) {
+        index.put(Fnv1a.hash(key), offset, o -> hasKey(o, key));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    return true;
+  }
+
+  /**
+   * @return last appended record with the given control number or 035
+   *         identifier, null if none
+   */
+  public MarcXml get(String key) throws IOException {
+    CompactRecord record = getCompactRecord(key);
+    return record == null ? null : new MarcXml(record.toRecord());
+  }
+
+  /**
+   * Same as {@link #get(String)}, without creating the marc4j record.
+   */
+  public CompactRecord getCompactRecord(String key) throws IOException {
+    String trimmed = key.trim();
+    lock.readLock().lock();
+    try {
+      long offset = index.find(Fnv1a.hash(trimmed), o -> hasKey(o, trimmed));
+      return offset < 0 ? null : read(offset);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private boolean hasKey(long offset, String key) {
+    return keys(read(offset)).contains(key);
+  }
+
+  private CompactRecord read(long offset) {
+    if (offset + Integer.BYTES > dataLength) {
+      throw new IllegalStateException("Offset beyond data: " + offset);
+    }
+    Mapping current = mapping;
+    if (dataLength - current.length >= mapIncrement) {
+      current = map();
+    }
+    if (offset >= current.length) {
+      // appended since the last mapping
+      return readUnmapped(offset);
+    }
+    ByteBuffer segment = current.segments[(int) (offset / segmentSize)].duplicate();
+    segment.position((int) (offset % segmentSize) + Integer.BYTES);
+    return CompactRecord.fromBytes(segment);
+  }
+
+  private CompactRecord readUnmapped(long offset) {
+    try {
+      ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+      readFully(length, offset);
+      ByteBuffer bytes = ByteBuffer.allocate(length.getInt(0));
+      readFully(bytes, offset + Integer.BYTES);
+      return CompactRecord.fromBytes(bytes.flip());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Map the data appended since the last mapping. Called under the read lock
+   * by concurrent readers.
+   *
+   * @return mapping covering the data length
+   */
+  private synchronized Mapping map() {
+    Mapping current = mapping;
+    if (current.length >= dataLength) {
+      return current;
+    }
+    MappedByteBuffer[] segments = current.segments;
+    int segmentCount = (int) ((dataLength + segmentSize - 1) / segmentSize);
+    MappedByteBuffer[] mapped = Arrays.copyOf(segments, segmentCount);
+    // the last mapped segment may be incomplete
+    for (int i = Math.max(0, segments.length - 1); i < segmentCount; i++) {
+      long start = i * segmentSize;
+      try {
+        mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, dataLength - start));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    current = new Mapping(mapped, dataLength);
+    mapping = current;
+    return current;
+  }
+
+  /**
+   * @return number of appended records, including replaced versions
+   */
+  public long getRecordCount() {
+    lock.readLock().lock();
+    try {
+      return index.getRecordCount();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return number of distinct keys
+   */
+  public int getKeyCount() {
+    lock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Force the appended records and the index to the storage device.
+   */
+  public void flush() throws IOException {
+    lock.writeLock().lock();
+    try {
+      channel.force(false);
+      index.force();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      mapping = new Mapping(new MappedByteBuffer[0], 0);
+      try {
+        channel.close();
+      } finally {
+        index.close();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Read only mappings of the data file, the last one possibly shorter, and the
+   * length they cover. Published as a whole, so that readers outside of the
+   * monitor of {@link MarcXmlRecordStore#map()} never see segments and length
+   * of different mappings.
+   */
+  private static final class Mapping {
+
+    final MappedByteBuffer[] segments;
+    final long length;
+
+    Mapping(MappedByteBuffer[] segments, long length) {
+      this.segments = segments;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.datazuul.metadata.dublincore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+
+class DublinCoreWritersTest {
+
+  private static DublinCore sandburg() {
+    final InputStream resourceAsStream = DublinCoreWritersTest.class.getClassLoader()
+        .getResourceAsStream("marc21-sandburg.xml");
+    return new MarcXml(MarcXmlRecord.from(resourceAsStream)).toDublinCore();
+  }
+
+  @Test
+  void testXml() throws Exception {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try (DublinCoreXmlWriter writer = new DublinCoreXmlWriter(os)) {
+      writer.write(sandburg());
+      writer.write(sandburg());
+    }
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(os.toByteArray()));
+
+    Element collection = document.getDocumentElement();
+    assertEquals(DublinCoreXmlWriter.OAI_DC_NAMESPACE, collection.getNamespaceURI());
+    assertEquals("dcCollection", collection.getLocalName());
+    NodeList records = collection.getElementsByTagNameNS(DublinCoreXmlWriter.OAI_DC_NAMESPACE, "dc");
+    assertEquals(2, records.getLength());
+
+    List<String> elements = new ArrayList<>();
+    NodeList children = records.item(0).getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      Node child = children.item(i);
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        assertEquals(DublinCoreXmlWriter.DC_NAMESPACE, child.getNamespaceURI());
+        elements.add(child.getLocalName() + "=" + child.getTextContent());
+      }
+    }
+    assertEquals(Arrays.asList("title=Arithmetic /", "creator=Sandburg, Carl, 1878-1967.", "creator=Rand, Ted, ill.",
+        "type=text", "publisher=San Diego : Harcourt Brace Jovanovich,", "date=c1993.", "language=eng",
+        "description=A poem about numbers and their characteristics. Features anamorphic, or distorted, drawings which can be restored to normal by viewing from a particular angle or by viewing the image's reflection in the provided Mylar cone.",
+        "description=One Mylar sheet included in pocket.", "identifier=URN:ISBN:0152038655 :"), elements);
+  }
+
+  @Test
+  void testJsonLines() throws IOException {
+    DublinCore dc = new DublinCore();
+    dc.setTitles(Arrays.asList("A \"quoted\" title\\"));
+    dc.setCreators(Arrays.asList("First", "Second"));
+    dc.setLanguage("eng");
+    dc.setType("text\n");
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try (DublinCoreJsonLinesWriter writer = new DublinCoreJsonLinesWriter(os)) {
+      writer.write(dc);
+      writer.write(new DublinCore());
+    }
+    assertEquals("{\"title\":[\"A \\\"quoted\\\" title\\\\\"],\"creator\":[\"First\",\"Second\"],"
+        + "\"type\":\"text\\n\",\"language\":\"eng\"}\n{}\n", os.toString(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,133 @@
+package com.datazuul.metadata.marc.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
+
+class CompactRecordTest {
+
+  private static void assertSameAsMarcXml(Record record) {
+    MarcXml marcXml = new MarcXml(record);
+    CompactRecord compact = CompactRecord.from(record);
+
+    assertEquals(record.toString(), compact.toRecord().toString());
+    assertEquals(record.getLeader().marshal(), compact.getLeader());
+    for (int pos = 0; pos < 24; pos++) {
+      assertEquals(marcXml.getLeader(pos), compact.getLeader(pos));
+    }
+    assertEquals(marcXml.getTypeOfRecord(), compact.getTypeOfRecord());
+    for (String tag : new String[] { "001", "003", "005", "007", "008", "009" }) {
+      assertEquals(marcXml.getControlFieldByTag(tag), compact.getControlFieldByTag(tag));
+    }
+    for (String tag : new String[] { "020", "035", "100", "245", "260", "650", "700", "999" }) {
+      for (String codes : new String[] { "", "a", "ab", "abfghk", "[a-z]" }) {
+        assertEquals(marcXml.getSubfieldsByTagAndCodes(tag, codes), compact.getSubfieldsByTagAndCodes(tag, codes));
+      }
+    }
+    assertEquals(marcXml.getSubfieldsByTagRangeAndCodes(500, 599, "a", 520, 521),
+        compact.getSubfieldsByTagRangeAndCodes(500, 599, "a", 520, 521));
+    assertEquals(marcXml.getSubfieldsByTagRangeAndCodes(0, 999, ""), compact.getSubfieldsByTagRangeAndCodes(0, 999, ""));
+    assertEquals(marcXml.getIdentifiers(), compact.getIdentifiers());
+
+    DublinCore expected = new MarcXml2DublinCore().convert(record);
+    DublinCore actual = compact.toDublinCore();
+    assertEquals(expected.getCreators(), actual.getCreators());
+    assertEquals(expected.getDates(), actual.getDates());
+    assertEquals(expected.getDescriptions(), actual.getDescriptions());
+    assertEquals(expected.getIdentifiers(), actual.getIdentifiers());
+    assertEquals(expected.getLanguage(), actual.getLanguage());
+    assertEquals(expected.getPublishers(), actual.getPublishers());
+    assertEquals(expected.getTitles(), actual.getTitles());
+    assertEquals(expected.getType(), actual.getType());
+  }
+
+  @Test
+  void testSameAsMarcXml() {
+    assertSameAsMarcXml(MarcXmlRecord.from(MarcXmlTestData.resource("marc21-sandburg.xml")));
+    assertSameAsMarcXml(MarcXmlRecord.from(MarcXmlTestData.resource("marc21-BV020998142.xml")));
+  }
+
+  @Test
+  void testFieldAccess() {
+    Record record = MarcXmlRecord.from(MarcXmlTestData.resource("marc21-sandburg.xml"));
+    CompactRecord compact = CompactRecord.from(record);
+    assertEquals(record.getVariableFields().size(), compact.getFieldCount());
+    assertEquals("001", compact.getTag(0));
+    assertTrue(compact.isControlField(0));
+    assertEquals("   92005291 ", compact.getData(0));
+    assertEquals(0, compact.getSubfieldCount(0));
+    assertEquals("   92005291 ", compact.getControlNumber());
+
+    int field = record.getControlFields().size() + record.getDataFields().indexOf(record.getVariableField("245"));
+    DataField title = (DataField) record.getVariableField("245");
+    assertEquals(245, compact.getTagValue(field));
+    assertFalse(compact.isControlField(field));
+    assertEquals(title.getIndicator1(), compact.getIndicator1(field));
+    assertEquals(title.getIndicator2(), compact.getIndicator2(field));
+    assertEquals(title.getSubfields().size(), compact.getSubfieldCount(field));
+    assertEquals('a', compact.getSubfieldCode(field, 0));
+    assertEquals("Arithmetic /", compact.getSubfieldData(field, 0));
+  }
+
+  @Test
+  void testFromBytes() {
+    CompactRecord record = CompactRecord.from(MarcXmlRecord.from(MarcXmlTestData.resource("marc21-sandburg.xml")));
+    byte[] bytes = record.toBytes();
+    CompactRecord copy = CompactRecord.fromBytes(ByteBuffer.wrap(bytes));
+    assertEquals(record.toRecord().toString(), copy.toRecord().toString());
+
+    // first subfields of the fields follow the format byte and four ints, 12
+    // bytes per field
+    ByteBuffer outOfOrder = ByteBuffer.wrap(bytes.clone());
+    outOfOrder.putInt(17 + 2 * 12 + 8, 0);
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> CompactRecord.fromBytes(outOfOrder));
+    assertTrue(e.getMessage().startsWith("Corrupt compact record: field 1 "), e.getMessage());
+
+    ByteBuffer outOfBounds = ByteBuffer.wrap(bytes.clone());
+    outOfBounds.putInt(17 + (record.getFieldCount() - 1) * 12 + 8, Integer.MAX_VALUE);
+    assertThrows(IllegalArgumentException.class, () -> CompactRecord.fromBytes(outOfBounds));
+  }
+
+  @Test
+  void testUnsortedFieldsAndWideCharacters() {
+    MarcFactory factory = MarcFactory.newInstance();
+    Record record = factory.newRecord("00000nam a2200000 a 4500");
+    record.addVariableField(factory.newControlField("001", "1"));
+    record.addVariableField(factory.newControlField("LOW", "local"));
+    DataField note = factory.newDataField("500", ' ', ' ');
+    note.addSubfield(factory.newSubfield('a', "Ein Buch aus Łódź"));
+    record.addVariableField(note);
+    DataField title = factory.newDataField("245", '1', '0');
+    title.addSubfield(factory.newSubfield('a', "Titel"));
+    title.addSubfield(factory.newSubfield('b', " "));
+    record.addVariableField(title);
+    DataField empty = factory.newDataField("246", ' ', ' ');
+    record.addVariableField(empty);
+
+    CompactRecord compact = CompactRecord.from(record);
+    assertEquals(record.toString(), compact.toRecord().toString());
+    assertEquals("LOW", compact.getTag(1));
+    assertEquals("local", compact.getControlFieldByTag("LOW"));
+    assertNull(compact.getControlFieldByTag("003"));
+    // ordered by tag as MarcXml
+    assertEquals(List.of("Titel", "", "Ein Buch aus Łódź"),
+        compact.getSubfieldsByTagRangeAndCodes(200, 599, ""));
+    assertEquals(new MarcXml(record).getSubfieldsByTagRangeAndCodes(200, 599, ""),
+        compact.getSubfieldsByTagRangeAndCodes(200, 599, ""));
+    assertNull(compact.getSubfieldsByTagAndCodes("650", "a"));
+  }
+}
@@ -0,0 +1,91 @@
+package com.datazuul.metadata.marc.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.marc4j.marc.Record;
+
+class MappedMarcXmlFileReaderTest {
+
+  @TempDir
+  Path directory;
+
+  private static void assertControlNumbersInOrder(List<String> controlNumbers, int count) {
+    assertEquals(count, controlNumbers.size());
+    for (int i = 0; i < count; i++) {
+      assertEquals(String.valueOf(i), controlNumbers.get(i));
+    }
+  }
+
+  @Test
+  void testCollection() throws IOException {
+    Path file = directory.resolve("collection.xml");
+    Files.write(file, MarcXmlTestData.sandburgCollection(500));
+
+    MappedMarcXmlFileReader reader = new MappedMarcXmlFileReader(file, 8 * 1024, 4);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      assertTrue(reader.split(channel).size() > 10);
+    }
+    try (Stream<Record> records = reader.stream()) {
+      assertControlNumbersInOrder(records.map(Record::getControlNumber).collect(Collectors.toList()), 500);
+    }
+  }
+
+  @Test
+  void testPrefixedCollection() throws IOException {
+    String collection = new String(MarcXmlTestData.sandburgCollection(200), StandardCharsets.UTF_8);
+    String prefixed = collection.replaceAll("<(/?)(collection|record|leader|controlfield|datafield|subfield)",
+        "<$1marc:$2").replace("xmlns=", "xmlns:marc=");
+    Path file = directory.resolve("prefixed.xml");
+    Files.writeString(file, prefixed);
+
+    try (Stream<Record> records = new MappedMarcXmlFileReader(file, 4 * 1024, 3).stream()) {
+      assertControlNumbersInOrder(records.map(Record::getControlNumber).collect(Collectors.toList()), 200);
+    }
+  }
+
+  @Test
+  void testHeaderLargerThanSearchWindow() throws IOException {
+    String collection = new String(MarcXmlTestData.sandburgCollection(50), StandardCharsets.UTF_8);
+    int firstRecord = collection.indexOf("<record");
+    String header = collection.substring(0, firstRecord) + "<!-- " + "x".repeat(2 * 1024 * 1024) + " -->\n";
+    Path file = directory.resolve("header.xml");
+    Files.writeString(file, header + collection.substring(firstRecord));
+
+    try (Stream<Record> records = new MappedMarcXmlFileReader(file, 4 * 1024, 2).stream()) {
+      assertControlNumbersInOrder(records.map(Record::getControlNumber).collect(Collectors.toList()), 50);
+    }
+  }
+
+  @Test
+  void testSingleRecord() throws IOException {
+    Path file = directory.resolve("record.xml");
+    Files.writeString(file, MarcXmlTestData.resourceAsString("marc21-BV020998142.xml"));
+
+    try (Stream<Record> records = new MappedMarcXmlFileReader(file).stream()) {
+      assertEquals(List.of("9148313"), records.map(Record::getControlNumber).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void testEarlyClose() throws IOException {
+    Path file = directory.resolve("collection.xml");
+    Files.write(file, MarcXmlTestData.sandburgCollection(500));
+
+    try (Stream<Record> records = new MappedMarcXmlFileReader(file, 4 * 1024, 2).stream()) {
+      assertEquals(10, records.limit(10).count());
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.datazuul.metadata.marc.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.Record;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class MarcXmlFetcherTest {
+
+  private static HttpServer server;
+  private static ExecutorService executor;
+  private static final AtomicInteger concurrentRequests = new AtomicInteger();
+  private static final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+  @BeforeAll
+  static void beforeAll() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/records/", MarcXmlFetcherTest::serveRecord);
+    server.createContext("/slow", MarcXmlFetcherTest::serveSlowly);
+    executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  private static void serveRecord(HttpExchange exchange) throws IOException {
+    int concurrent = concurrentRequests.incrementAndGet();
+    maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+    try {
+      String id = exchange.getRequestURI().getPath().substring("/records/".length());
+      if (id.equals("missing")) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      Thread.sleep(10);
+      byte[] body = MarcXmlTestData.sandburgRecord().replace("   92005291 </controlfield>", id + "</controlfield>")
+          .getBytes("UTF-8");
+      exchange.getResponseHeaders().add("Content-Type", "application/xml");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      concurrentRequests.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  private static void serveSlowly(HttpExchange exchange) throws IOException {
+    try {
+      Thread.sleep(5000);
+      exchange.sendResponseHeaders(404, -1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static URI uri(String id) {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + "/records/" + id);
+  }
+
+  @Test
+  void testFetch() throws IOException, InterruptedException {
+    Record record = new MarcXmlFetcher().fetch(uri("42"));
+    assertEquals("42", record.getControlNumber());
+  }
+
+  @Test
+  void testFetchFailsOnHttpError() {
+    assertThrows(IOException.class, () -> new MarcXmlFetcher().fetch(uri("missing")));
+  }
+
+  @Test
+  void testFetchAll() throws IOException, InterruptedException {
+    List<URI> uris = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      uris.add(uri(String.valueOf(i)));
+    }
+    maxConcurrentRequests.set(0);
+    MarcXmlFetcher fetcher = new MarcXmlFetcher(HttpClient.newHttpClient(), executor, 4);
+    List<Record> records = fetcher.fetchAll(uris);
+    assertEquals(40, records.size());
+    for (int i = 0; i < 40; i++) {
+      assertEquals(String.valueOf(i), records.get(i).getControlNumber());
+    }
+    assertEquals(true, maxConcurrentRequests.get() <= 4);
+  }
+
+  @Test
+  void testFetchAllFailsOnHttpError() {
+    MarcXmlFetcher fetcher = new MarcXmlFetcher();
+    assertThrows(IOException.class, () -> fetcher.fetchAll(List.of(uri("1"), uri("missing"), uri("2"))));
+  }
+
+  @Test
+  void testFetchAllFailsFast() {
+    MarcXmlFetcher fetcher = new MarcXmlFetcher(HttpClient.newHttpClient(), executor, 2);
+    long start = System.nanoTime();
+    assertThrows(IOException.class, () -> fetcher.fetchAll(List.of(
+        URI.create("http://localhost:" + server.getAddress().getPort() + "/slow"), uri("missing"))));
+    // not waiting for the slow request before the failing one
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+  }
+
+  @Test
+  void testFetchAllStopsAfterFailure() {
+    List<URI> uris = new ArrayList<>();
+    uris.add(uri("missing"));
+    for (int i = 0; i < 20; i++) {
+      uris.add(uri(String.valueOf(i)));
+    }
+    AtomicInteger started = new AtomicInteger();
+    MarcXmlFetcher fetcher = new MarcXmlFetcher(HttpClient.newHttpClient(), task -> {
+      started.incrementAndGet();
+      executor.execute(task);
+    }, 1);
+    assertThrows(IOException.class, () -> fetcher.fetchAll(uris));
+    assertEquals(1, started.get());
+  }
+}
@@ -0,0 +1,87 @@
+package com.datazuul.metadata.marc.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MarcXmlRecordSplitterTest {
+
+  private static List<String> split(String xml) throws IOException {
+    List<String> records = new ArrayList<>();
+    try (MarcXmlRecordSplitter splitter = new MarcXmlRecordSplitter(
+        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))) {
+      for (byte[] record = splitter.next(); record != null; record = splitter.next()) {
+        records.add(new String(record, StandardCharsets.UTF_8));
+      }
+      assertNull(splitter.next());
+    }
+    return records;
+  }
+
+  @Test
+  void testCollection() throws IOException {
+    byte[] collection = MarcXmlTestData.sandburgCollection(300);
+    try (MarcXmlRecordSplitter splitter = new MarcXmlRecordSplitter(new ByteArrayInputStream(collection))) {
+      int count = 0;
+      for (byte[] record = splitter.next(); record != null; record = splitter.next()) {
+        String xml = new String(record, StandardCharsets.UTF_8);
+        assertTrue(xml.startsWith("<record>"));
+        assertTrue(xml.endsWith("</record>"));
+        assertTrue(xml.contains(">" + count + "</controlfield>"));
+        count++;
+      }
+      assertEquals(300, count);
+      String document = new String(splitter.document("<record/>".getBytes(StandardCharsets.UTF_8)),
+          StandardCharsets.UTF_8);
+      assertTrue(document.startsWith("<?xml"));
+      assertTrue(document.endsWith("<record/></collection>"));
+    }
+  }
+
+  @Test
+  void testPrefixCommentsAndCdata() throws IOException {
+    List<String> records = split("<?xml version=\"1.0\"?>\n"
+        + "<mx:collection xmlns:mx=\"http://www.loc.gov/MARC21/slim\">\n"
+        + "<!-- <mx:record> in a comment -->\n"
+        + "<mx:record><mx:controlfield tag=\"001\"><![CDATA[</mx:record>]]></mx:controlfield></mx:record>\n"
+        + "<mx:record type=\"Bibliographic\"/>\n"
+        + "</mx:collection>\n");
+    assertEquals(2, records.size());
+    assertTrue(records.get(0).endsWith("]]></mx:controlfield></mx:record>"));
+    assertEquals("<mx:record type=\"Bibliographic\"/>", records.get(1));
+  }
+
+  @Test
+  void testTruncatedRecord() throws IOException {
+    List<String> records = split("<collection>"
+        + "<record><controlfield tag=\"001\">1</controlfield>"
+        + "<record><controlfield tag=\"001\">2</controlfield></record>"
+        + "<record><datafield tag=\"245\">"
+        + "</collection>");
+    assertEquals(3, records.size());
+    assertEquals("<record><controlfield tag=\"001\">1</controlfield>", records.get(0));
+    assertEquals("<record><datafield tag=\"245\">", records.get(2));
+  }
+
+  @Test
+  void testSingleRecord() throws IOException {
+    String xml = "<?xml version=\"1.0\"?>\n<record><leader>00000nam a2200000 a 4500</leader></record>\n";
+    try (MarcXmlRecordSplitter splitter = new MarcXmlRecordSplitter(
+        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))) {
+      byte[] record = splitter.next();
+      assertEquals("<record><leader>00000nam a2200000 a 4500</leader></record>",
+          new String(record, StandardCharsets.UTF_8));
+      assertNull(splitter.next());
+      String document = new String(splitter.document(record), StandardCharsets.UTF_8);
+      assertTrue(document.endsWith("</record>"));
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.datazuul.metadata.marc.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.converter.MarcXml2Iso2709;
+
+class MarcXmlRecordTest {
+
+  @Test
+  void testStreamReadsAllRecordsOfCollection() {
+    try (Stream<Record> records = MarcXmlRecord.stream(MarcXmlTestData.sandburgCollectionStream(100))) {
+      List<String> controlNumbers = records.map(Record::getControlNumber).collect(Collectors.toList());
+      assertEquals(100, controlNumbers.size());
+      assertEquals("0", controlNumbers.get(0));
+      assertEquals("99", controlNumbers.get(99));
+    }
+  }
+
+  @Test
+  void testMarcXmlStream() {
+    try (Stream<MarcXml> records = MarcXmlRecord.marcXmlStream(MarcXmlTestData.resource("marc21-BV020998142.xml"))) {
+      assertEquals(1, records.count());
+    }
+  }
+
+  @Test
+  void testIteratorClosesStreamWhenExhausted() {
+    CloseTrackingInputStream is = new CloseTrackingInputStream(MarcXmlTestData.sandburgCollection(3));
+    MarcXmlRecordIterator iterator = MarcXmlRecord.iterator(is);
+    int count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    assertEquals(3, count);
+    assertTrue(is.closed);
+    assertThrows(NoSuchElementException.class, iterator::next);
+  }
+
+  @Test
+  void testEarlyStopClosesStream() {
+    CloseTrackingInputStream is = new CloseTrackingInputStream(MarcXmlTestData.sandburgCollection(1000));
+    try (Stream<Record> records = MarcXmlRecord.stream(is)) {
+      assertEquals("0", records.findFirst().get().getControlNumber());
+    }
+    assertTrue(is.closed);
+  }
+
+  @Test
+  void testCloseStopsIterator() {
+    MarcXmlRecordIterator iterator = MarcXmlRecord.iterator(MarcXmlTestData.sandburgCollectionStream(1000));
+    iterator.next();
+    iterator.close();
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  void testDetectFormat() throws IOException {
+    assertEquals(MarcFormat.MARC_XML, MarcFormat.detect(MarcXmlTestData.sandburgCollectionStream(1)));
+    assertEquals(MarcFormat.MARC_XML,
+        MarcFormat.detect(new ByteArrayInputStream("\uFEFF <record/>".getBytes(StandardCharsets.UTF_8))));
+    assertEquals(MarcFormat.MARC_XML, MarcFormat.detect(new ByteArrayInputStream("012".getBytes(StandardCharsets.UTF_8))));
+    ByteArrayInputStream iso = new ByteArrayInputStream("01142cam  2200301 a 4500".getBytes(StandardCharsets.UTF_8));
+    assertEquals(MarcFormat.ISO_2709, MarcFormat.detect(iso));
+    // position unchanged
+    assertEquals('0', iso.read());
+    assertThrows(IllegalArgumentException.class,
+        () -> MarcFormat.detect(new BufferedInputStream(iso) {
+          @Override
+          public boolean markSupported() {
+            return false;
+          }
+        }));
+  }
+
+  @Test
+  void testReadIso2709() throws IOException {
+    ByteArrayOutputStream iso = new ByteArrayOutputStream();
+    MarcXml2Iso2709.transcode(MarcXmlTestData.sandburgCollectionStream(100), iso);
+    try (Stream<Record> records = MarcXmlRecord.stream(new ByteArrayInputStream(iso.toByteArray()))) {
+      List<String> controlNumbers = records.map(Record::getControlNumber).collect(Collectors.toList());
+      assertEquals(100, controlNumbers.size());
+      assertEquals("99", controlNumbers.get(99));
+    }
+    // stopped early
+    try (MarcXmlRecordIterator iterator = new MarcXmlRecordIterator(new ByteArrayInputStream(iso.toByteArray()), true)) {
+      assertEquals("0", iterator.next().getControlNumber());
+    }
+    Record record = MarcXmlRecord.from(new ByteArrayInputStream(iso.toByteArray()));
+    assertEquals(List.of("Arithmetic /"), new MarcXml(record).getSubfieldsByTagAndCodes("245", "a"));
+  }
+
+  private static class CloseTrackingInputStream extends ByteArrayInputStream {
+
+    private boolean closed;
+
+    CloseTrackingInputStream(byte[] buf) {
+      super(buf);
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+  }
+}
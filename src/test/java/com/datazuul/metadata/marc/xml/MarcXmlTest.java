@@ -2,14 +2,21 @@ package com.datazuul.metadata.marc.xml;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
+import org.marc4j.marc.MarcFactory;
 import org.marc4j.marc.Record;
 
+import com.datazuul.metadata.marc.xml.fixed.MaterialType;
+
 public class MarcXmlTest {
 
   @Test
@@ -26,4 +33,71 @@ public class MarcXmlTest {
     List<String> publicationPlaces = marcXml.getPublicationPlaces();
     assertEquals(Arrays.asList("San Diego :"), publicationPlaces);
   }
+
+  @Test
+  public void testTagIndex() {
+    final InputStream resourceAsStream = getClass().getClassLoader().getResourceAsStream("marc21-sandburg.xml");
+    MarcXml marcXml = new MarcXml(MarcXmlRecord.from(resourceAsStream));
+
+    assertEquals("DLC", marcXml.getControlFieldByTag("003"));
+    assertNull(marcXml.getControlFieldByTag("006"));
+    assertEquals(5, marcXml.getDataFieldsByTag("650").size());
+    assertEquals(0, marcXml.getDataFieldsByTag("651").size());
+    assertEquals(2, marcXml.getDataFieldsByTagRange(500, 599).size());
+    assertEquals(Arrays.asList("One Mylar sheet included in pocket."),
+        marcXml.getSubfieldsByTagRangeAndCodes(500, 599, "a", 520));
+    assertNull(marcXml.getSubfieldsByTagRangeAndCodes(500, 599, "a", 500, 520));
+  }
+
+  @Test
+  public void testIdentifiers() {
+    final InputStream resourceAsStream = getClass().getClassLoader().getResourceAsStream("marc21-BV020998142.xml");
+    MarcXml marcXml = new MarcXml(MarcXmlRecord.from(resourceAsStream));
+
+    assertEquals(Set.of("(OCoLC)162244133", "(DE-604)BV020998142", "(DE-599)BVBBV020998142"),
+        marcXml.getIdentifiers());
+  }
+
+  @Test
+  public void testFixedFields() {
+    final InputStream resourceAsStream = getClass().getClassLoader().getResourceAsStream("marc21-BV020998142.xml");
+    MarcXml marcXml = new MarcXml(MarcXmlRecord.from(resourceAsStream));
+
+    assertEquals('a', marcXml.getTypeOfRecord());
+    assertEquals('m', marcXml.getBibliographicLevel());
+    assertEquals('m', marcXml.getLeader(7));
+    assertThrows(ArrayIndexOutOfBoundsException.class, () -> marcXml.getLeader(24));
+    assertEquals(MaterialType.BOOKS, marcXml.getLeaderView().getMaterialType());
+    assertEquals("1910", marcXml.getDate1());
+    assertEquals("uuuu", marcXml.getDate2());
+    assertEquals("|||", marcXml.getPlaceOfPublication());
+    assertEquals("ger", marcXml.getLanguage());
+    assertEquals(' ', marcXml.getFormOfItem());
+    assertSame(marcXml.getLanguage(), marcXml.getLanguage());
+    assertEquals(1, marcXml.getField007().size());
+    assertEquals('t', marcXml.getField007().get(0).getCategoryOfMaterial());
+    assertEquals(0, marcXml.getField006().size());
+  }
+
+  @Test
+  public void testMissingFixedFields() {
+    MarcFactory factory = MarcFactory.newInstance();
+    Record record = factory.newRecord("00000nem a2200000 a 4500");
+    record.addVariableField(factory.newControlField("006", "e|||||||||||r|||||"));
+    MarcXml marcXml = new MarcXml(record);
+
+    assertNull(marcXml.getField008());
+    assertNull(marcXml.getLanguage());
+    assertNull(marcXml.getDate1());
+    assertEquals(' ', marcXml.getFormOfItem());
+    assertEquals(MaterialType.MAPS, marcXml.getLeaderView().getMaterialType());
+    assertEquals('r', marcXml.getField006().get(0).getFormOfItem());
+
+    // truncated 008
+    record.addVariableField(factory.newControlField("008", "920219s1993    cau"));
+    marcXml = new MarcXml(record);
+    assertEquals("cau", marcXml.getPlaceOfPublication());
+    assertNull(marcXml.getLanguage());
+    assertEquals(' ', marcXml.getField008().charAt(39));
+  }
 }
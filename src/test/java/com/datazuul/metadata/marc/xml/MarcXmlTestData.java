@@ -0,0 +1,55 @@
+package com.datazuul.metadata.marc.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test data built from the bundled example records.
+ */
+public class MarcXmlTestData {
+
+  private static final String COLLECTION_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<collection xmlns=\"http://www.loc.gov/MARC21/slim\">\n";
+  private static final String COLLECTION_END = "</collection>\n";
+
+  public static InputStream resource(String name) {
+    return MarcXmlTestData.class.getClassLoader().getResourceAsStream(name);
+  }
+
+  public static String resourceAsString(String name) {
+    try (InputStream is = resource(name)) {
+      return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The <code>&lt;record&gt;</code> element of "marc21-sandburg.xml".
+   */
+  public static String sandburgRecord() {
+    String xml = resourceAsString("marc21-sandburg.xml");
+    return xml.substring(xml.indexOf("<record>"), xml.indexOf("</record>") + "</record>".length());
+  }
+
+  /**
+   * Collection of <code>count</code> copies of the sandburg record, control
+   * number (001) of each copy replaced by its position (starting at 0).
+   */
+  public static byte[] sandburgCollection(int count) {
+    String record = sandburgRecord();
+    StringBuilder sb = new StringBuilder(COLLECTION_START);
+    for (int i = 0; i < count; i++) {
+      sb.append(record.replace("   92005291 </controlfield>", i + "</controlfield>")).append('\n');
+    }
+    sb.append(COLLECTION_END);
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  public static InputStream sandburgCollectionStream(int count) {
+    return new ByteArrayInputStream(sandburgCollection(count));
+  }
+}
@@ -0,0 +1,59 @@
+package com.datazuul.metadata.marc.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class StringPoolTest {
+
+  @Test
+  void testIntern() {
+    StringPool pool = new StringPool(16);
+    String eng = pool.intern(new String("eng"));
+    assertSame(eng, pool.intern(new String("eng")));
+    assertSame(eng, pool.intern(new StringBuilder(" eng "), 1, 4));
+    assertSame(eng, pool.intern("920219s1993    caua   j      000 0 eng  ", 35, 38));
+    assertNull(pool.intern(null));
+    assertEquals(3, pool.getHits());
+    assertEquals(1, pool.getMisses());
+    assertEquals(0.75, pool.getHitRate());
+  }
+
+  @Test
+  void testBounded() {
+    StringPool pool = new StringPool(10);
+    assertEquals(16, pool.getCapacity());
+    String first = pool.intern(new String("value 0"));
+    for (int i = 1; i < 10000; i++) {
+      pool.intern("value " + i);
+    }
+    // replaced by a value with the same slot
+    assertNotSame(first, pool.intern(new String("value 0")));
+    assertEquals(0, pool.getHits());
+  }
+
+  @Test
+  void testConcurrentLookups() throws InterruptedException {
+    StringPool pool = new StringPool(64);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      executor.execute(() -> {
+        for (int i = 0; i < 10000; i++) {
+          String value = "v" + (i % 32);
+          assertEquals(value, pool.intern(value));
+          assertEquals(value, pool.intern(new StringBuilder(value), 0, value.length()));
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    assertEquals(80000, pool.getHits() + pool.getMisses());
+  }
+}
@@ -0,0 +1,56 @@
+package com.datazuul.metadata.marc.xml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.MarcFactory;
+
+class SubfieldSelectorTest {
+
+  private static final MarcFactory FACTORY = MarcFactory.newInstance();
+
+  @Test
+  void testMatches() {
+    SubfieldSelector selector = SubfieldSelector.of("abfghk");
+    assertTrue(selector.matches('a'));
+    assertTrue(selector.matches('k'));
+    assertFalse(selector.matches('c'));
+    assertFalse(selector.matches('A'));
+    assertFalse(selector.matches('6'));
+    assertFalse(selector.matches('ä'));
+
+    SubfieldSelector digits = SubfieldSelector.of("69ä");
+    assertTrue(digits.matches('6'));
+    assertTrue(digits.matches('9'));
+    assertTrue(digits.matches('ä'));
+    assertFalse(digits.matches('0'));
+
+    assertTrue(SubfieldSelector.of("").matches('ä'));
+    assertSame(selector, SubfieldSelector.of("abfghk"));
+  }
+
+  @Test
+  void testSameSubfieldsAsDataField() {
+    DataField dataField = FACTORY.newDataField("245", '1', '0', "a", "Arithmetic /", "c", "Carl Sandburg ;", "6",
+        "880-01", "b", "  ", "A", "upper", "h", "[sound recording]");
+    for (String codes : new String[] { "", "a", "abfghk", "abcdefghijklmnopqrstuvwxyz", "6", "A", "[a-c]",
+        "[^a]" }) {
+      assertEquals(MarcXml.concatenate(dataField.getSubfields(codes), " "),
+          SubfieldSelector.of(codes).concatenate(dataField, new StringBuilder("previous")), codes);
+    }
+  }
+
+  @Test
+  void testConcatenate() {
+    StringBuilder buffer = new StringBuilder();
+    SubfieldSelector selector = SubfieldSelector.of("ab");
+    assertEquals("San Diego : Harcourt Brace Jovanovich,",
+        selector.concatenate(FACTORY.newDataField("260", ' ', ' ', "a", " San Diego :", "b",
+            "Harcourt Brace Jovanovich,", "c", "c1993."), buffer));
+    assertEquals("", selector.concatenate(FACTORY.newDataField("260", ' ', ' ', "c", "c1993."), buffer));
+  }
+}
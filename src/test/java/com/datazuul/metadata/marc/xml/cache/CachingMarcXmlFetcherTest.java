@@ -0,0 +1,130 @@
+package com.datazuul.metadata.marc.xml.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class CachingMarcXmlFetcherTest {
+
+  private static HttpServer server;
+  private static ExecutorService executor;
+  private static final AtomicInteger fullResponses = new AtomicInteger();
+  private static final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+  @BeforeAll
+  static void beforeAll() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/records/", CachingMarcXmlFetcherTest::serveRecord);
+    executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    fullResponses.set(0);
+    notModifiedResponses.set(0);
+  }
+
+  private static void serveRecord(HttpExchange exchange) throws IOException {
+    String id = exchange.getRequestURI().getPath().substring("/records/".length());
+    String etag = "\"v1-" + id + "\"";
+    if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+      notModifiedResponses.incrementAndGet();
+      exchange.sendResponseHeaders(304, -1);
+      exchange.close();
+      return;
+    }
+    fullResponses.incrementAndGet();
+    byte[] body = MarcXmlTestData.sandburgRecord().replace("   92005291 </controlfield>", id + "</controlfield>")
+        .getBytes("UTF-8");
+    exchange.getResponseHeaders().add("ETag", etag);
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  private static URI uri(String id) {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + "/records/" + id);
+  }
+
+  @Test
+  void testMemoryHit() throws IOException, InterruptedException {
+    CachingMarcXmlFetcher fetcher = new CachingMarcXmlFetcher(10, Duration.ofHours(1));
+    Record first = fetcher.fetch(uri("1"));
+    Record second = fetcher.fetch(uri("1"));
+    assertSame(first, second);
+    assertEquals(1, fullResponses.get());
+    assertEquals(1, fetcher.getStatistics().getHits());
+    assertEquals(1, fetcher.getStatistics().getMisses());
+  }
+
+  @Test
+  void testRevalidation() throws IOException, InterruptedException {
+    CachingMarcXmlFetcher fetcher = new CachingMarcXmlFetcher(10, Duration.ZERO);
+    Record first = fetcher.fetch(uri("1"));
+    Record second = fetcher.fetch(uri("1"));
+    assertSame(first, second);
+    assertEquals(1, fullResponses.get());
+    assertEquals(1, notModifiedResponses.get());
+    assertEquals(1, fetcher.getStatistics().getRevalidations());
+  }
+
+  @Test
+  void testLruEviction() throws IOException, InterruptedException {
+    CachingMarcXmlFetcher fetcher = new CachingMarcXmlFetcher(2, Duration.ofHours(1));
+    fetcher.fetch(uri("1"));
+    fetcher.fetch(uri("2"));
+    fetcher.fetch(uri("1"));
+    fetcher.fetch(uri("3"));
+    assertEquals(2, fetcher.size());
+    assertEquals(1, fetcher.getStatistics().getEvictions());
+    // "2" was least recently used
+    fetcher.fetch(uri("1"));
+    assertEquals(3, fullResponses.get());
+    fetcher.fetch(uri("2"));
+    assertEquals(4, fullResponses.get());
+  }
+
+  @Test
+  void testDiskCache(@TempDir Path directory) throws IOException, InterruptedException {
+    CachingMarcXmlFetcher fetcher = new CachingMarcXmlFetcher(HttpClient.newHttpClient(), executor, 4, 10,
+        Duration.ZERO, directory);
+    assertEquals("7", fetcher.fetch(uri("7")).getControlNumber());
+
+    CachingMarcXmlFetcher restarted = new CachingMarcXmlFetcher(HttpClient.newHttpClient(), executor, 4, 10,
+        Duration.ZERO, directory);
+    assertEquals("7", restarted.fetch(uri("7")).getControlNumber());
+    assertEquals(1, fullResponses.get());
+    assertEquals(1, notModifiedResponses.get());
+    assertEquals(1, restarted.getStatistics().getDiskHits());
+  }
+}
@@ -0,0 +1,95 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.marc4j.MarcXmlWriter;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DcElement;
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+
+class DublinCoreEventBuilderTest {
+
+  private static void assertSameOutput(byte[] xml) throws IOException {
+    List<DublinCore> expected;
+    try (Stream<Record> records = MarcXmlRecord.stream(new ByteArrayInputStream(xml))) {
+      MarcXml2DublinCore converter = new MarcXml2DublinCore();
+      expected = records.map(converter::convert).collect(Collectors.toList());
+    }
+    List<DublinCore> actual = new ArrayList<>();
+    DublinCoreEventBuilder.convert(new ByteArrayInputStream(xml), actual::add);
+
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      DublinCore e = expected.get(i);
+      DublinCore a = actual.get(i);
+      assertEquals(e.getCreators(), a.getCreators());
+      assertEquals(e.getDates(), a.getDates());
+      assertEquals(e.getDescriptions(), a.getDescriptions());
+      assertEquals(e.getIdentifiers(), a.getIdentifiers());
+      assertEquals(e.getLanguage(), a.getLanguage());
+      assertEquals(e.getPublishers(), a.getPublishers());
+      assertEquals(e.getSubjects(), a.getSubjects());
+      assertEquals(e.getTitles(), a.getTitles());
+      assertEquals(e.getType(), a.getType());
+    }
+  }
+
+  private static byte[] resource(String name) throws IOException {
+    try (InputStream is = MarcXmlTestData.resource(name)) {
+      return is.readAllBytes();
+    }
+  }
+
+  @Test
+  void testSameOutputAsMarcXml2DublinCore() throws IOException {
+    assertSameOutput(resource("marc21-sandburg.xml"));
+    assertSameOutput(resource("marc21-BV020998142.xml"));
+    assertSameOutput(MarcXmlTestData.sandburgCollection(20));
+  }
+
+  @Test
+  void testSameOutputForUnsortedFields() throws IOException {
+    MarcFactory factory = MarcFactory.newInstance();
+    Record record = factory.newRecord("00000ncm a2200000 a 4500");
+    record.addVariableField(factory.newControlField("008", "920219s1993    caua   j      000 0 ger  "));
+    record.addVariableField(factory.newDataField("700", ' ', ' ', "a", "Added", "e", " ", "4", "aut"));
+    record.addVariableField(factory.newDataField("100", ' ', ' ', "a", "  Main  "));
+    record.addVariableField(factory.newDataField("020", ' ', ' ', "a", "123"));
+    record.addVariableField(factory.newDataField("856", ' ', ' ', "u", "http://example.org"));
+    record.addVariableField(factory.newDataField("264", ' ', ' ', "c", "2020"));
+    record.addVariableField(factory.newDataField("655", ' ', ' ', "a", "Genre", "x", "Sub"));
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    MarcXmlWriter writer = new MarcXmlWriter(os, "UTF-8");
+    writer.write(record);
+    writer.close();
+    assertSameOutput(os.toByteArray());
+  }
+
+  @Test
+  void testProjection() throws IOException {
+    List<DublinCore> actual = new ArrayList<>();
+    DublinCoreEventBuilder.convert(MarcXmlTestData.resource("marc21-sandburg.xml"),
+        EnumSet.of(DcElement.TITLE, DcElement.TYPE), actual::add);
+    assertEquals(1, actual.size());
+    assertEquals(List.of("Arithmetic /"), actual.get(0).getTitles());
+    assertEquals("text", actual.get(0).getType());
+    assertNull(actual.get(0).getCreators());
+    assertNull(actual.get(0).getLanguage());
+  }
+}
@@ -1,18 +1,28 @@
 package com.datazuul.metadata.marc.xml.converter;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.marc4j.marc.MarcFactory;
 import org.marc4j.marc.Record;
 
+import com.datazuul.metadata.dublincore.DcElement;
 import com.datazuul.metadata.dublincore.DublinCore;
 import com.datazuul.metadata.marc.xml.MarcXml;
 import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.datazuul.metadata.marc.xml.StringPool;
 
 class MarcXml2DublinCoreTest {
 
@@ -75,4 +85,80 @@ class MarcXml2DublinCoreTest {
 	String type = dc.getType();
 	assertEquals("text", type);
   }
+
+  @Test
+  void testConvertRecordWithSharedConverter() {
+	final InputStream resourceAsStream = MarcXml2DublinCoreTest.class.getClassLoader().getResourceAsStream("marc21-BV020998142.xml");
+	Record record = MarcXmlRecord.from(resourceAsStream);
+	DublinCore bvDc = new MarcXml2DublinCore().convert(record);
+	assertEquals(Arrays.asList("[ca. 1910]", ""), bvDc.getDates());
+	assertEquals(Arrays.asList("http://mdz-nbn-resolving.de/urn:nbn:de:bvb:12-bsb00140164-7"), bvDc.getIdentifiers());
+	assertEquals("ger", bvDc.getLanguage());
+	assertEquals("text", bvDc.getType());
+  }
+
+  @Test
+  void testValuesOrderedByTag() {
+	MarcFactory factory = MarcFactory.newInstance();
+	Record record = factory.newRecord("00000nam a2200000 a 4500");
+	record.addVariableField(factory.newControlField("008", "920219s1993    caua   j      000 0 eng  "));
+	record.addVariableField(factory.newDataField("700", ' ', ' ', "a", "Added"));
+	record.addVariableField(factory.newDataField("100", ' ', ' ', "a", "Main"));
+	record.addVariableField(factory.newDataField("590", ' ', ' ', "a", "Local note"));
+	record.addVariableField(factory.newDataField("546", ' ', ' ', "a", "Language note"));
+	record.addVariableField(factory.newDataField("500", ' ', ' ', "a", "General note"));
+	record.addVariableField(factory.newDataField("520", ' ', ' ', "a", "Summary"));
+	DublinCore unorderedDc = new MarcXml2DublinCore().convert(record);
+	assertEquals(Arrays.asList("Main", "Added"), unorderedDc.getCreators());
+	assertEquals(Arrays.asList("Summary", "General note", "Local note"), unorderedDc.getDescriptions());
+  }
+
+  @Test
+  void testWithout008() {
+	MarcFactory factory = MarcFactory.newInstance();
+	Record record = factory.newRecord("00000nam a2200000 a 4500");
+	record.addVariableField(factory.newDataField("245", ' ', ' ', "a", "Title"));
+	DublinCore without008 = new MarcXml2DublinCore().convert(record);
+	assertNull(without008.getLanguage());
+	assertEquals(Arrays.asList("Title"), without008.getTitles());
+  }
+
+  @Test
+  void testProjection() {
+	DublinCore all = marcXml.toDublinCore();
+	DublinCore projected = marcXml.toDublinCore(EnumSet.of(DcElement.TITLE, DcElement.CREATOR, DcElement.IDENTIFIER));
+	assertEquals(all.getTitles(), projected.getTitles());
+	assertEquals(all.getCreators(), projected.getCreators());
+	assertEquals(all.getIdentifiers(), projected.getIdentifiers());
+	assertNull(projected.getDates());
+	assertNull(projected.getDescriptions());
+	assertNull(projected.getLanguage());
+	assertNull(projected.getPublishers());
+	assertNull(projected.getType());
+
+	DublinCore languageOnly = new MarcXml2DublinCore().convert(marcXml.getRecord(), EnumSet.of(DcElement.LANGUAGE));
+	assertEquals("eng", languageOnly.getLanguage());
+	assertNull(languageOnly.getTitles());
+  }
+
+  @Test
+  void testPooledValues() {
+	StringPool pool = new StringPool();
+	MarcXml2DublinCore pooledConverter = new MarcXml2DublinCore(pool);
+	List<Record> records = MarcXmlRecord.stream(new ByteArrayInputStream(MarcXmlTestData.sandburgCollection(10)))
+	    .collect(Collectors.toList());
+	DublinCore first = pooledConverter.convert(records.get(0));
+	for (Record record : records) {
+	  DublinCore pooled = pooledConverter.convert(record);
+	  DublinCore unpooled = new MarcXml2DublinCore().convert(record);
+	  assertEquals(unpooled.getCreators(), pooled.getCreators());
+	  assertEquals(unpooled.getPublishers(), pooled.getPublishers());
+	  assertEquals(unpooled.getType(), pooled.getType());
+	  assertSame(first.getLanguage(), pooled.getLanguage());
+	  assertSame(first.getType(), pooled.getType());
+	  assertSame(first.getCreators().get(0), pooled.getCreators().get(0));
+	  assertSame(first.getPublishers().get(0), pooled.getPublishers().get(0));
+	}
+	assertTrue(pool.getHits() > 0);
+  }
 }
@@ -0,0 +1,68 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.VariableField;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+
+class MarcXml2Iso2709Test {
+
+  private static void assertSameFields(Record expected, Record actual) {
+    List<VariableField> expectedFields = expected.getVariableFields();
+    List<VariableField> actualFields = actual.getVariableFields();
+    assertEquals(expectedFields.size(), actualFields.size());
+    for (int i = 0; i < expectedFields.size(); i++) {
+      assertEquals(expectedFields.get(i).toString(), actualFields.get(i).toString());
+    }
+  }
+
+  @Test
+  void testConvert() {
+    // non ASCII data (German umlauts)
+    Record record = MarcXmlRecord.from(MarcXmlTestData.resource("marc21-BV020998142.xml"));
+    String leader = record.getLeader().marshal();
+    byte[] iso = new MarcXml2Iso2709().convert(record);
+    // the given record is not modified
+    assertEquals(leader, record.getLeader().marshal());
+
+    String header = new String(iso, 0, 5, StandardCharsets.US_ASCII);
+    assertEquals(iso.length, Integer.parseInt(header));
+    assertEquals(0x1d, iso[iso.length - 1]);
+    Record read = MarcXmlRecord.from(new ByteArrayInputStream(iso));
+    assertEquals('a', read.getLeader().getCharCodingScheme());
+    assertSameFields(record, read);
+    assertEquals(new MarcXml(record).toDublinCore().getTitles(), new MarcXml(read).toDublinCore().getTitles());
+
+    assertArrayEquals(iso, new MarcXml2Iso2709(new MarcXml(record)).convert());
+  }
+
+  @Test
+  void testTranscode() throws IOException {
+    ByteArrayOutputStream iso = new ByteArrayOutputStream();
+    assertEquals(10, MarcXml2Iso2709.transcode(MarcXmlTestData.sandburgCollectionStream(10), iso));
+    byte[] xml = MarcXmlTestData.sandburgCollection(10);
+    assertTrue(iso.size() < xml.length / 2);
+
+    List<Record> expected = MarcXmlRecord.stream(new ByteArrayInputStream(xml)).collect(Collectors.toList());
+    List<Record> actual = MarcXmlRecord.stream(new ByteArrayInputStream(iso.toByteArray()))
+        .collect(Collectors.toList());
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertSameFields(expected.get(i), actual.get(i));
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.datazuul.metadata.marc.xml.metrics.Stage;
+
+class MarcXmlBatchConverterTest {
+
+  private static ExecutorService executor;
+
+  @BeforeAll
+  static void beforeAll() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterAll
+  static void afterAll() {
+    executor.shutdown();
+  }
+
+  @Test
+  void testConvertToDublinCore() {
+    List<DublinCore> result = new ArrayList<>();
+    long count = new MarcXmlBatchConverter<>(new MarcXml2DublinCore())
+        .convert(MarcXmlTestData.sandburgCollectionStream(200), result::add);
+    assertEquals(200, count);
+    assertEquals(200, result.size());
+    assertEquals("eng", result.get(199).getLanguage());
+  }
+
+  @Test
+  void testOrdered() {
+    List<String> result = new ArrayList<>();
+    new MarcXmlBatchConverter<>(new SlowControlNumberConverter(), executor, 8, true)
+        .convert(MarcXmlTestData.sandburgCollectionStream(100), result::add);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(String.valueOf(i), result.get(i));
+    }
+  }
+
+  @Test
+  void testUnordered() {
+    Set<String> result = new HashSet<>();
+    long count = new MarcXmlBatchConverter<>(new SlowControlNumberConverter(), executor, 8, false)
+        .convert(MarcXmlTestData.sandburgCollectionStream(100), result::add);
+    assertEquals(100, count);
+    assertEquals(100, result.size());
+  }
+
+  @Test
+  void testConversionFailureStopsRun() {
+    RecordConverter<String> failing = new SlowControlNumberConverter() {
+      @Override
+      public String convert(Record record) {
+        if ("50".equals(record.getControlNumber())) {
+          throw new IllegalArgumentException("bad record");
+        }
+        return super.convert(record);
+      }
+    };
+    List<String> result = new ArrayList<>();
+    assertThrows(IllegalArgumentException.class, () -> new MarcXmlBatchConverter<>(failing, executor, 8, true)
+        .convert(MarcXmlTestData.sandburgCollectionStream(1000), result::add));
+    assertEquals(50, result.size());
+  }
+
+  @Test
+  void testReadErrorStopsRun() {
+    InputStream is = new FilterInputStream(MarcXmlTestData.sandburgCollectionStream(1000)) {
+      private int read;
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (read > 100_000) {
+          throw new AssertionError("read failed");
+        }
+        int n = super.read(b, off, len);
+        read += Math.max(n, 0);
+        return n;
+      }
+    };
+    // the fault tolerant run reads the source on its reader thread
+    List<String> result = new ArrayList<>();
+    AssertionError error = assertThrows(AssertionError.class,
+        () -> new MarcXmlBatchConverter<>(new SlowControlNumberConverter(), executor, 8, true).convert(is,
+            result::add, deadLetter -> {
+            }, null));
+    assertEquals("read failed", error.getMessage());
+    assertTrue(result.size() < 1000);
+  }
+
+  @Test
+  void testDeadLetters() throws IOException {
+    String collection = new String(MarcXmlTestData.sandburgCollection(100), StandardCharsets.UTF_8);
+    // truncate record 10 after its leader
+    int start = collection.indexOf("<record>", collection.indexOf(">10</controlfield>") - 200);
+    int end = collection.indexOf("</record>", start) + "</record>".length();
+    String broken = collection.substring(0, start) + "<record><leader>01142cam  2200301 a 4500</leader>"
+        + "<datafield tag=\"245\" ind1=\"1\" ind2=\"0\">" + collection.substring(end);
+    RecordConverter<String> failing = new SlowControlNumberConverter() {
+      @Override
+      public String convert(Record record) {
+        if ("50".equals(record.getControlNumber())) {
+          throw new IllegalArgumentException("bad record");
+        }
+        return super.convert(record);
+      }
+    };
+    List<String> result = new ArrayList<>();
+    List<DeadLetter> deadLetters = new ArrayList<>();
+    BatchResult batchResult = new MarcXmlBatchConverter<>(failing, executor, 8, false).convert(
+        new ByteArrayInputStream(broken.getBytes(StandardCharsets.UTF_8)), result::add, deadLetters::add, null);
+    assertEquals(0, batchResult.getSkipped());
+    assertEquals(98, batchResult.getConverted());
+    assertEquals(2, batchResult.getFailed());
+    assertEquals(100, batchResult.getEndOffset());
+    assertEquals(98, result.size());
+    assertEquals("9", result.get(9));
+    assertEquals("11", result.get(10));
+    assertEquals(2, deadLetters.size());
+    assertEquals(10, deadLetters.get(0).getOffset());
+    assertEquals(Stage.PARSE, deadLetters.get(0).getStage());
+    assertEquals(50, deadLetters.get(1).getOffset());
+    assertEquals(Stage.CONVERT, deadLetters.get(1).getStage());
+    assertEquals(IllegalArgumentException.class, deadLetters.get(1).getCause().getClass());
+    String document = new String(deadLetters.get(1).getDocument(), StandardCharsets.UTF_8);
+    assertTrue(document.contains(">50</controlfield>"));
+    assertTrue(document.endsWith("</collection>"));
+  }
+
+  @Test
+  void testResumeFromCheckpoint(@TempDir Path dir) throws IOException {
+    int count = MarcXmlBatchConverter.CHECKPOINT_INTERVAL + 500;
+    byte[] collection = MarcXmlTestData.sandburgCollection(count);
+    FileCheckpoint checkpoint = new FileCheckpoint(dir.resolve("checkpoint"));
+    assertEquals(0, checkpoint.load());
+    RecordConverter<String> converter = new SlowControlNumberConverter() {
+      @Override
+      public String convert(Record record) {
+        return record.getControlNumber();
+      }
+    };
+    List<String> result = new ArrayList<>();
+    // sink fails after the first checkpoint, the checkpoint is saved anyway
+    assertThrows(IllegalStateException.class, () -> new MarcXmlBatchConverter<>(converter, executor, 8, true)
+        .convert(new ByteArrayInputStream(collection), value -> {
+          if (result.size() == MarcXmlBatchConverter.CHECKPOINT_INTERVAL + 10) {
+            throw new IllegalStateException("sink down");
+          }
+          result.add(value);
+        }, deadLetter -> {
+        }, checkpoint));
+    int consumed = MarcXmlBatchConverter.CHECKPOINT_INTERVAL + 10;
+    assertEquals(consumed, checkpoint.load());
+
+    List<String> resumed = new ArrayList<>();
+    DeadLetterDirectory deadLetters = new DeadLetterDirectory(dir.resolve("dead"));
+    BatchResult batchResult = new MarcXmlBatchConverter<>(converter, executor, 8, true)
+        .convert(new ByteArrayInputStream(collection), resumed::add, deadLetters, checkpoint);
+    assertEquals(consumed, batchResult.getSkipped());
+    assertEquals(count - consumed, batchResult.getConverted());
+    assertEquals(0, batchResult.getFailed());
+    assertEquals(String.valueOf(consumed), resumed.get(0));
+    assertEquals(count, checkpoint.load());
+    try (Stream<Path> files = Files.list(dir.resolve("dead"))) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  private static class SlowControlNumberConverter implements RecordConverter<String> {
+
+    @Override
+    public String convert(Record record) {
+      try {
+        Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return record.getControlNumber();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.datazuul.metadata.marc.xml.converter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+
+class XsltMarcXml2DublinCoreTest {
+
+  private static Record record;
+  private static XsltMarcXml2DublinCore converter;
+
+  @BeforeAll
+  static void beforeAll() {
+	final InputStream resourceAsStream = XsltMarcXml2DublinCoreTest.class.getClassLoader().getResourceAsStream("marc21-sandburg.xml");
+	record = MarcXmlRecord.from(resourceAsStream);
+	converter = new XsltMarcXml2DublinCore();
+  }
+
+  /**
+   * Compare with the output of the stylesheet in marc21-sandburg.dc.xml.
+   */
+  @Test
+  void testConvert() {
+	DublinCore dc = converter.convert(record);
+	assertEquals(Arrays.asList("Arithmetic /"), dc.getTitles());
+	assertEquals("text", dc.getType());
+	assertEquals(Arrays.asList("San Diego : Harcourt Brace Jovanovich,"), dc.getPublishers());
+	assertEquals(Arrays.asList("c1993."), dc.getDates());
+	assertEquals("eng", dc.getLanguage());
+	assertEquals(Arrays.asList("Arithmetic", "Children's poetry, American.", "Arithmetic", "American poetry.",
+	    "Visual perception."), dc.getSubjects());
+	assertEquals(3, dc.getDescriptions().size());
+	assertEquals(Arrays.asList("URN:ISBN:0152038655 :"), dc.getIdentifiers());
+  }
+
+  @Test
+  void testBoundConverter() {
+	assertEquals(converter.convert(record).getTitles(), new XsltMarcXml2DublinCore(new MarcXml(record)).convert().getTitles());
+	assertThrows(IllegalStateException.class, () -> converter.convert());
+  }
+
+  @Test
+  void testConcurrentConversions() {
+	List<DublinCore> results = IntStream.range(0, 50).parallel().mapToObj(i -> converter.convert(record))
+	    .collect(Collectors.toList());
+	results.forEach(dc -> assertEquals(Arrays.asList("Arithmetic /"), dc.getTitles()));
+  }
+
+  @Test
+  void testComparison() {
+	ConverterComparison comparison = new ConverterComparison("java", new MarcXml2DublinCore(), "xslt", converter);
+	ConverterComparison.Report report = comparison.compare(List.of(record));
+	assertEquals(1, report.getRecords());
+	List<String> differingElements = report.getDifferences().stream().map(ConverterComparison.Difference::getElement)
+	    .collect(Collectors.toList());
+	// MarcXml2DublinCore does not map subjects (yet)
+	assertTrue(differingElements.contains("subject"));
+	assertTrue(!differingElements.contains("title"));
+  }
+}
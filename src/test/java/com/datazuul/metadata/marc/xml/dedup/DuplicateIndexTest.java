@@ -0,0 +1,116 @@
+package com.datazuul.metadata.marc.xml.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.DataField;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+
+class DuplicateIndexTest {
+
+  private static final MarcFactory FACTORY = MarcFactory.newInstance();
+
+  private static Record record(String organization, String controlNumber, String tag, String... values) {
+    Record record = FACTORY.newRecord();
+    if (controlNumber != null) {
+      record.addVariableField(FACTORY.newControlField("001", controlNumber));
+    }
+    if (organization != null) {
+      record.addVariableField(FACTORY.newControlField("003", organization));
+    }
+    for (String value : values) {
+      DataField dataField = FACTORY.newDataField(tag, ' ', ' ');
+      dataField.addSubfield(FACTORY.newSubfield('a', value));
+      record.addVariableField(dataField);
+    }
+    return record;
+  }
+
+  @Test
+  void testNormalization() {
+    assertEquals("(OCOLC)12345", IdentifierKeys.normalizeSystemNumber(" (OCoLC)ocm00012345"));
+    assertEquals("(OCOLC)12345", IdentifierKeys.normalizeSystemNumber("(OCoLC)on12345"));
+    assertEquals("(DE-604)BV020998142", IdentifierKeys.normalizeSystemNumber("(DE-604) BV020998142"));
+    assertNull(IdentifierKeys.normalizeSystemNumber("  "));
+
+    assertEquals("9780152038656", IdentifierKeys.normalizeIsbn("0152038655 :"));
+    assertEquals("9780152038656", IdentifierKeys.normalizeIsbn("978-0-15-203865-6 (pbk.)"));
+    assertEquals("9783540293118", IdentifierKeys.normalizeIsbn("354029311X"));
+    assertNull(IdentifierKeys.normalizeIsbn("12345"));
+    assertNull(IdentifierKeys.normalizeIsbn("X152038655"));
+
+    assertEquals(IdentifierKeys.isbnKey("0-15-203865-5"), IdentifierKeys.isbnKey("9780152038656"));
+    assertNotEquals(IdentifierKeys.controlNumberKey("DE-604", "1"), IdentifierKeys.controlNumberKey("DLC", "1"));
+    assertEquals(IdentifierKeys.controlNumberKey("dlc", " 1 "), IdentifierKeys.controlNumberKey("DLC", "1"));
+  }
+
+  @Test
+  void testClusters() {
+    DuplicateIndex index = new DuplicateIndex();
+    assertEquals(0, index.add(record("DLC", "1", "020", "0152038655 :")));
+    assertEquals(1, index.add(record("DE-604", "1", "035", "(OCoLC)ocm00000042")));
+    assertEquals(-1, index.seenBefore(record("DE-101", "7", "035", "(OCoLC)43")));
+    assertEquals(1, index.seenBefore(record("DE-101", "7", "035", "(OCoLC)42")));
+    // joins the clusters of records 0 and 1
+    assertEquals(2, index.add(record(null, null, "020", "978-0-15-203865-6")));
+    assertEquals(3, index.add(record(null, null, "035", "(OCoLC)42")));
+    assertEquals(4, index.add(record("DLC", "2", "020", "0152038655")));
+    assertEquals(5, index.add(record("DE-101", "9", "035", "(DE-101)9", "(DE-101)10")));
+    assertEquals(6, index.add(record("DE-101", "10", "035", "(DE-101)10")));
+
+    List<int[]> clusters = index.getClusters();
+    assertEquals(3, clusters.size());
+    assertArrayEquals(new int[] { 0, 2, 4 }, clusters.get(0));
+    assertArrayEquals(new int[] { 1, 3 }, clusters.get(1));
+    // shared system number
+    assertArrayEquals(new int[] { 5, 6 }, clusters.get(2));
+    assertEquals(5, index.getCluster(6));
+    assertEquals(0, index.getCluster(4));
+    assertEquals(7, index.getRecordCount());
+  }
+
+  @Test
+  void testTransitiveCluster() {
+    DuplicateIndex index = new DuplicateIndex(16, true);
+    index.add(record(null, null, "035", "(X)a"));
+    index.add(record(null, null, "035", "(X)b"));
+    index.add(record(null, null, "035", "(X)c"));
+    index.add(record(null, null, "035", "(X)c", "(X)b"));
+    index.add(record(null, null, "035", "(X)a", "(X)c"));
+    List<int[]> clusters = index.getClusters();
+    assertEquals(1, clusters.size());
+    assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, clusters.get(0));
+  }
+
+  @Test
+  void testLongIntHashMap() {
+    for (boolean offHeap : new boolean[] { false, true }) {
+      LongIntHashMap map = new LongIntHashMap(16, offHeap);
+      SplittableRandom random = new SplittableRandom(42);
+      long[] keys = new long[100_000];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = random.nextLong();
+        assertEquals(-1, map.putIfAbsent(keys[i], i, -1));
+      }
+      assertEquals(-1, map.putIfAbsent(0, 7, -1));
+      assertEquals(7, map.putIfAbsent(0, 8, -1));
+      assertEquals(keys.length + 1, map.size());
+      assertTrue(map.capacity() > map.size());
+      for (int i = 0; i < keys.length; i++) {
+        assertEquals(i, map.get(keys[i], -1));
+      }
+      map.put(keys[5], 55);
+      assertEquals(55, map.get(keys[5], -1));
+      assertEquals(7, map.get(0, -1));
+      assertEquals(offHeap, map.isOffHeap());
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.datazuul.metadata.marc.xml.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+
+class MarcXmlEventReaderTest {
+
+  private static class RecordingHandler implements MarcXmlEventHandler {
+
+    private final List<String> events = new ArrayList<>();
+    private String lastTag;
+
+    @Override
+    public void startRecord() {
+      events.add("startRecord");
+    }
+
+    @Override
+    public void leader(char[] chars, int start, int length) {
+      events.add("leader " + new String(chars, start, length));
+    }
+
+    @Override
+    public void controlField(String tag, char[] chars, int start, int length) {
+      lastTag = tag;
+      events.add(tag + " " + new String(chars, start, length));
+    }
+
+    @Override
+    public void startDataField(String tag, char ind1, char ind2) {
+      lastTag = tag;
+      events.add(tag + " " + ind1 + ind2);
+    }
+
+    @Override
+    public void subfield(char code, char[] chars, int start, int length) {
+      events.add("$" + code + " " + new String(chars, start, length));
+    }
+
+    @Override
+    public void endDataField() {
+      events.add("endDataField");
+    }
+
+    @Override
+    public void endRecord() {
+      events.add("endRecord");
+    }
+  }
+
+  @Test
+  void testEvents() throws IOException {
+    RecordingHandler handler = new RecordingHandler();
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(MarcXmlTestData.resource("marc21-sandburg.xml"))) {
+      assertTrue(reader.next(handler));
+      assertFalse(reader.next(handler));
+    }
+    assertEquals(List.of("startRecord", "leader 01142cam  2200301 a 4500", "001    92005291 ", "003 DLC",
+        "005 19930521155141.9", "008 920219s1993    caua   j      000 0 eng  ", "010   ", "$a    92005291 ",
+        "endDataField", "020   ", "$a 0152038655 :", "$c $15.95", "endDataField"), handler.events.subList(0, 13));
+    assertEquals("endRecord", handler.events.get(handler.events.size() - 1));
+    assertEquals("700", handler.lastTag);
+  }
+
+  @Test
+  void testPrefixedRecord() throws IOException {
+    RecordingHandler handler = new RecordingHandler();
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(MarcXmlTestData.resource("marc21-BV020998142.xml"))) {
+      assertEquals(1, reader.parse(handler));
+    }
+    assertEquals("001 9148313", handler.events.get(2));
+  }
+
+  @Test
+  void testCollection() throws IOException {
+    try (MarcXmlEventReader reader = new MarcXmlEventReader(MarcXmlTestData.sandburgCollectionStream(50))) {
+      assertEquals(50, reader.parse(new MarcXmlEventHandler() {
+      }));
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.datazuul.metadata.marc.xml.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.datazuul.metadata.marc.xml.converter.DublinCoreEventBuilder;
+
+class RecordFilterTest {
+
+  /**
+   * Records with control numbers 0-3: 0 sandburg (language material, 040 DLC),
+   * 1 sandburg as projected medium (leader/06 'g'), 2 BV020998142 (German, with
+   * 856), 3 sandburg with 040 DE-101.
+   */
+  private static InputStream collection() {
+    String sandburg = MarcXmlTestData.sandburgRecord();
+    String bv = MarcXmlTestData.resourceAsString("marc21-BV020998142.xml");
+    bv = bv.substring(bv.indexOf("<mx:record"), bv.indexOf("</mx:record>") + "</mx:record>".length())
+        .replace(">9148313<", ">2<");
+    String xml = "<collection xmlns=\"http://www.loc.gov/MARC21/slim\">\n"
+        + sandburg.replace("   92005291 <", "0<") + "\n"
+        + sandburg.replace("   92005291 <", "1<").replace("01142cam", "01142cgm") + "\n"
+        + bv + "\n"
+        + sandburg.replace("   92005291 <", "3<").replace(">DLC<", ">DE-101<") + "\n"
+        + "</collection>\n";
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<String> filtered(RecordFilter filter) {
+    List<String> controlNumbers = new ArrayList<>();
+    List<Record> all = MarcXmlRecord.stream(collection()).collect(Collectors.toList());
+    try (FilteredRecordIterator records = new FilteredRecordIterator(collection(), filter)) {
+      while (records.hasNext()) {
+        Record record = records.next();
+        controlNumbers.add(record.getControlNumber());
+        Record expected = all.get(Integer.parseInt(record.getControlNumber()));
+        assertEquals(expected.toString(), record.toString());
+      }
+      assertEquals(all.size() - controlNumbers.size(), records.getSkippedCount());
+    }
+    // same result on built records
+    assertEquals(controlNumbers, all.stream().filter(filter::test).map(Record::getControlNumber)
+        .collect(Collectors.toList()));
+    return controlNumbers;
+  }
+
+  @Test
+  void testConditions() {
+    assertEquals(List.of("0", "2", "3"), filtered(RecordFilter.leader(6, "a")));
+    assertEquals(List.of("0", "1", "2", "3"), filtered(RecordFilter.leader(6, "ag")));
+    assertEquals(List.of("2"), filtered(RecordFilter.hasField("856")));
+    assertEquals(List.of("0", "1", "3"), filtered(RecordFilter.hasField("010")));
+    assertEquals(List.of("0", "1"), filtered(RecordFilter.subfield("040", 'a', "DLC")));
+    assertEquals(List.of("2"), filtered(RecordFilter.controlField("008", 35, "ger")));
+    assertEquals(List.of(), filtered(RecordFilter.controlField("008", 38, "ger")));
+  }
+
+  @Test
+  void testCombinations() {
+    assertEquals(List.of("0", "3"), filtered(RecordFilter.leader(6, "a").and(RecordFilter.hasField("856").negate())));
+    assertEquals(List.of("1", "2"),
+        filtered(RecordFilter.leader(6, "g").or(RecordFilter.controlField("008", 35, "ger"))));
+    assertEquals(List.of("3"), filtered(RecordFilter.subfield("040", 'a', "DLC").negate()
+        .and(RecordFilter.controlField("008", 35, "eng"))));
+  }
+
+  @Test
+  void testDublinCore() {
+    DublinCoreEventBuilder builder = new DublinCoreEventBuilder();
+    FilteringEventHandler handler = new FilteringEventHandler(RecordFilter.hasField("856"), builder);
+    List<DublinCore> dcs = new ArrayList<>();
+    MarcXmlEventReader reader = new MarcXmlEventReader(collection());
+    while (reader.next(handler)) {
+      if (handler.isAccepted()) {
+        dcs.add(builder.getDublinCore());
+      }
+    }
+    assertEquals(1, handler.getAcceptedCount());
+    assertEquals(3, handler.getRejectedCount());
+    DublinCore expected = new MarcXml(MarcXmlRecord.from(MarcXmlTestData.resource("marc21-BV020998142.xml")))
+        .toDublinCore();
+    assertEquals(expected.getTitles(), dcs.get(0).getTitles());
+    assertEquals(expected.getIdentifiers(), dcs.get(0).getIdentifiers());
+  }
+}
@@ -0,0 +1,156 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.datazuul.metadata.marc.xml.converter.DeadLetter;
+import com.datazuul.metadata.marc.xml.event.MarcXmlEventReader;
+
+class IncrementalHarvestTest {
+
+  private static void assertSameAsRecord(String xml) {
+    RecordFingerprint fingerprint = new RecordFingerprint();
+    new MarcXmlEventReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))).next(fingerprint);
+    Record record = MarcXmlRecord.from(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    assertEquals(RecordFingerprint.key(record), fingerprint.getKey());
+    assertEquals(RecordFingerprint.fingerprint(record), fingerprint.getFingerprint());
+  }
+
+  @Test
+  void testFingerprint() {
+    String sandburg = MarcXmlTestData.resourceAsString("marc21-sandburg.xml");
+    String bv = MarcXmlTestData.resourceAsString("marc21-BV020998142.xml");
+    assertSameAsRecord(sandburg);
+    assertSameAsRecord(bv);
+
+    Record record = MarcXmlRecord.from(MarcXmlTestData.resource("marc21-sandburg.xml"));
+    assertEquals("92005291", RecordFingerprint.key(record));
+    // serialization, 001, 005 and record length do not matter
+    String reformatted = sandburg.replace("\n    ", "").replace("01142cam", "01999cam")
+        .replace("19930521155141.9", "20240101000000.0").replace("   92005291 </controlfield>", "1</controlfield>");
+    assertEquals(RecordFingerprint.fingerprint(record),
+        RecordFingerprint.fingerprint(MarcXmlRecord.from(new ByteArrayInputStream(reformatted.getBytes(StandardCharsets.UTF_8)))));
+    String edited = sandburg.replace("Arithmetic", "Arithmetics");
+    assertNotEquals(RecordFingerprint.fingerprint(record),
+        RecordFingerprint.fingerprint(MarcXmlRecord.from(new ByteArrayInputStream(edited.getBytes(StandardCharsets.UTF_8)))));
+
+    // without 001: smallest identifier (035)
+    String withoutControlNumber = bv.replace("<mx:controlfield tag=\"001\">9148313</mx:controlfield>", "");
+    assertSameAsRecord(withoutControlNumber);
+    assertEquals("(DE-599)BVBBV020998142", RecordFingerprint.key(
+        MarcXmlRecord.from(new ByteArrayInputStream(withoutControlNumber.getBytes(StandardCharsets.UTF_8)))));
+  }
+
+  @Test
+  void testRun(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("fingerprints");
+    String collection = new String(MarcXmlTestData.sandburgCollection(100), StandardCharsets.UTF_8);
+    RecordingListener listener = new RecordingListener();
+    ChangeSummary summary = new IncrementalHarvest(new FingerprintStore(file)).run(stream(collection), listener);
+    assertEquals(100, summary.getAdded());
+    assertEquals(100, listener.added.size());
+
+    listener = new RecordingListener();
+    summary = new IncrementalHarvest(new FingerprintStore(file)).run(stream(collection), listener);
+    assertEquals(0, summary.getAdded());
+    assertEquals(100, summary.getUnchanged());
+    assertTrue(listener.added.isEmpty() && listener.changed.isEmpty() && listener.deleted.isEmpty());
+
+    // record 5 edited, record 99 deleted, record 100 added
+    String[] records = collection.split("(?=<record>)");
+    records[6] = records[6].replace("Arithmetic", "Arithmetics");
+    String next = records[100].replace(">99</controlfield>", ">100</controlfield>");
+    String changedCollection = String.join("", records).replace(records[100], next);
+    listener = new RecordingListener();
+    FingerprintStore store = new FingerprintStore(file);
+    summary = new IncrementalHarvest(store).run(stream(changedCollection), listener);
+    assertEquals(1, summary.getAdded());
+    assertEquals(1, summary.getChanged());
+    assertEquals(98, summary.getUnchanged());
+    assertEquals(1, summary.getDeleted());
+    assertEquals(List.of("100"), listener.added);
+    assertEquals(List.of("5"), listener.changed);
+    assertEquals(List.of("99"), listener.deleted);
+    assertEquals(100, store.size());
+    assertNull(store.get("99"));
+    assertEquals(100, new FingerprintStore(file).size());
+  }
+
+  @Test
+  void testUnparseableRecord(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("fingerprints");
+    String collection = new String(MarcXmlTestData.sandburgCollection(10), StandardCharsets.UTF_8);
+    new IncrementalHarvest(new FingerprintStore(file)).run(stream(collection), new RecordingListener());
+
+    // record 3 edited but broken, record 9 deleted
+    String[] records = collection.split("(?=<record>)");
+    records[4] = records[4].replace("<subfield code=\"a\">Arithmetic", "<subfield code=\"a\">&broken; Arithmetic");
+    String changedCollection = String.join("", records).replace(records[10], "</collection>\n");
+    RecordingListener listener = new RecordingListener();
+    FingerprintStore store = new FingerprintStore(file);
+    ChangeSummary summary = new IncrementalHarvest(store).run(stream(changedCollection), listener);
+    assertEquals(1, summary.getFailed());
+    assertEquals(8, summary.getUnchanged());
+    assertEquals(List.of(3L), listener.failed);
+    // the key of the broken record is unknown: nothing is deleted
+    assertEquals(0, summary.getDeleted());
+    assertEquals(10, store.size());
+
+    // fixed on the next run
+    listener = new RecordingListener();
+    summary = new IncrementalHarvest(new FingerprintStore(file)).run(stream(collection.replace(records[10],
+        "</collection>\n").replace("Arithmetic", "Arithmetics")), listener);
+    assertEquals(0, summary.getFailed());
+    assertEquals(9, summary.getChanged());
+    assertEquals(List.of("9"), listener.deleted);
+  }
+
+  private static ByteArrayInputStream stream(String xml) {
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static class RecordingListener implements ChangeListener {
+
+    final List<String> added = new ArrayList<>();
+    final List<String> changed = new ArrayList<>();
+    final List<String> deleted = new ArrayList<>();
+    final List<Long> failed = new ArrayList<>();
+
+    @Override
+    public void added(String key, Record record) {
+      assertEquals(key, record.getControlNumber());
+      added.add(key);
+    }
+
+    @Override
+    public void changed(String key, Record record) {
+      assertEquals(key, record.getControlNumber());
+      changed.add(key);
+    }
+
+    @Override
+    public void deleted(String key) {
+      deleted.add(key);
+    }
+
+    @Override
+    public void failed(DeadLetter deadLetter) {
+      failed.add(deadLetter.getOffset());
+    }
+  }
+}
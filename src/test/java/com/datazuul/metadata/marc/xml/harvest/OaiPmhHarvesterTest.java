@@ -0,0 +1,214 @@
+package com.datazuul.metadata.marc.xml.harvest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class OaiPmhHarvesterTest {
+
+  private static final int PAGES = 3;
+  private static final int PAGE_SIZE = 10;
+
+  private static HttpServer server;
+  private static ExecutorService executor;
+  // requests per page ("1", "2", ...) and per "set" parameter
+  private static final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+  private static volatile int unavailableRequests;
+  private static volatile int truncatedRequests;
+
+  @BeforeAll
+  static void beforeAll() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/oai", OaiPmhHarvesterTest::serve);
+    executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    requests.clear();
+    unavailableRequests = 0;
+    truncatedRequests = 0;
+  }
+
+  private static void serve(HttpExchange exchange) throws IOException {
+    try {
+      String query = exchange.getRequestURI().getQuery();
+      String page = "1";
+      if (query.contains("resumptionToken=")) {
+        page = query.substring(query.indexOf("resumptionToken=") + "resumptionToken=".length());
+      } else if (query.contains("set=empty")) {
+        page = "empty";
+      } else if (query.contains("set=bad")) {
+        page = "bad";
+      }
+      int count = requests.computeIfAbsent(page, p -> new AtomicInteger()).incrementAndGet();
+      if (page.equals("2") && count <= unavailableRequests) {
+        exchange.getResponseHeaders().add("Retry-After", "0");
+        exchange.sendResponseHeaders(503, -1);
+        return;
+      }
+      String body;
+      if (page.equals("empty")) {
+        body = envelope("<error code=\"noRecordsMatch\">No records</error>");
+      } else if (page.equals("bad")) {
+        body = envelope("<error code=\"badArgument\">Illegal set</error>");
+      } else {
+        body = envelope(listRecords(Integer.parseInt(page)));
+      }
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "text/xml");
+      exchange.sendResponseHeaders(200, bytes.length);
+      if (page.equals("2") && count <= truncatedRequests) {
+        // connection lost in the middle of the body
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes, 0, bytes.length / 2);
+        os.flush();
+        return;
+      }
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(bytes);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static String envelope(String content) {
+    return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\">\n"
+        + "<responseDate>2024-01-01T00:00:00Z</responseDate>\n"
+        + "<request verb=\"ListRecords\">http://localhost/oai</request>\n" + content + "</OAI-PMH>\n";
+  }
+
+  private static String listRecords(int page) {
+    String record = MarcXmlTestData.sandburgRecord().replace("<record>",
+        "<record xmlns=\"http://www.loc.gov/MARC21/slim\">");
+    StringBuilder sb = new StringBuilder("<ListRecords>\n");
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      int id = (page - 1) * PAGE_SIZE + i;
+      sb.append("<record><header><identifier>oai:test:").append(id)
+          .append("</identifier><datestamp>2024-01-01</datestamp></header><metadata>")
+          .append(record.replace("   92005291 </controlfield>", id + "</controlfield>"))
+          .append("</metadata></record>\n");
+    }
+    sb.append("<record><header status=\"deleted\"><identifier>oai:test:deleted").append(page)
+        .append("</identifier><datestamp>2024-01-01</datestamp></header></record>\n");
+    sb.append("<resumptionToken>").append(page < PAGES ? String.valueOf(page + 1) : "")
+        .append("</resumptionToken>\n</ListRecords>\n");
+    return sb.toString();
+  }
+
+  private static OaiPmhHarvester harvester(int maxRetries) {
+    return new OaiPmhHarvester(URI.create("http://localhost:" + server.getAddress().getPort() + "/oai"),
+        OaiPmhHarvester.DEFAULT_METADATA_PREFIX, HttpClient.newHttpClient(), executor, maxRetries,
+        Duration.ofMillis(10));
+  }
+
+  @Test
+  void testHarvest() throws IOException {
+    List<String> controlNumbers = new ArrayList<>();
+    long count = harvester(0).harvest(null, null, null, record -> controlNumbers.add(record.getControlNumber()));
+    assertEquals(PAGES * PAGE_SIZE, count);
+    for (int i = 0; i < count; i++) {
+      assertEquals(String.valueOf(i), controlNumbers.get(i));
+    }
+    for (int page = 1; page <= PAGES; page++) {
+      assertEquals(1, requests.get(String.valueOf(page)).get());
+    }
+  }
+
+  @Test
+  void testPrefetch() throws InterruptedException {
+    try (OaiPmhRecordIterator records = harvester(0).listRecords(null, null, null)) {
+      Record first = records.next();
+      assertEquals("0", first.getControlNumber());
+      // page 2 is requested while page 1 is consumed, page 3 not before page 2
+      // is taken
+      for (int i = 0; i < 500 && !requests.containsKey("2"); i++) {
+        Thread.sleep(10);
+      }
+      assertTrue(requests.containsKey("2"));
+      Thread.sleep(50);
+      assertFalse(requests.containsKey("3"));
+      assertEquals(1, records.getPageCount());
+    }
+  }
+
+  @Test
+  void testRetryAfter() throws IOException {
+    unavailableRequests = 2;
+    long count = harvester(2).harvest(null, null, null, record -> {
+    });
+    assertEquals(PAGES * PAGE_SIZE, count);
+    assertEquals(3, requests.get("2").get());
+  }
+
+  @Test
+  void testRetryTruncatedBody() throws IOException {
+    truncatedRequests = 1;
+    List<String> controlNumbers = new ArrayList<>();
+    long count = harvester(1).harvest(null, null, null, record -> controlNumbers.add(record.getControlNumber()));
+    assertEquals(PAGES * PAGE_SIZE, count);
+    assertEquals(String.valueOf(PAGE_SIZE), controlNumbers.get(PAGE_SIZE));
+    assertEquals(2, requests.get("2").get());
+
+    requests.clear();
+    truncatedRequests = 2;
+    assertThrows(IOException.class, () -> harvester(1).harvest(null, null, null, record -> {
+    }));
+    assertEquals(2, requests.get("2").get());
+  }
+
+  @Test
+  void testRetriesExhausted() {
+    unavailableRequests = 10;
+    List<Record> records = new ArrayList<>();
+    IOException e = assertThrows(IOException.class, () -> harvester(1).harvest(null, null, null, records::add));
+    assertTrue(e.getMessage().contains("503"));
+    assertEquals(PAGE_SIZE, records.size());
+    assertEquals(2, requests.get("2").get());
+  }
+
+  @Test
+  void testOaiErrors() throws IOException {
+    assertEquals(0, harvester(0).harvest("empty", null, null, record -> {
+    }));
+    IOException e = assertThrows(IOException.class, () -> harvester(0).harvest("bad", null, null, record -> {
+    }));
+    assertTrue(e.getMessage().contains("badArgument"));
+  }
+}
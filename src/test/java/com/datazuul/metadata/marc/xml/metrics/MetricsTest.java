@@ -0,0 +1,136 @@
+package com.datazuul.metadata.marc.xml.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.MarcFactory;
+import org.marc4j.marc.Record;
+import org.marc4j.marc.impl.RecordImpl;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.MarcXmlRecordIterator;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.datazuul.metadata.marc.xml.converter.MarcXml2DublinCore;
+
+class MetricsTest {
+
+  @AfterEach
+  void afterEach() {
+    Metrics.setListener(null);
+  }
+
+  @Test
+  void testParseAndConvert() throws IOException {
+    RecordingMetricsListener listener = new RecordingMetricsListener();
+    Metrics.setListener(listener);
+
+    byte[] xml;
+    try (InputStream is = MarcXmlTestData.resource("marc21-sandburg.xml")) {
+      xml = is.readAllBytes();
+    }
+    Record record = MarcXmlRecord.from(new ByteArrayInputStream(xml));
+    MarcXml marcXml = new MarcXml(record);
+    marcXml.toDublinCore();
+
+    assertEquals(1, listener.getRecords());
+    assertEquals(record.getControlFields().size() + record.getDataFields().size(), listener.getFields());
+    assertTrue(listener.getSubfields() > listener.getFields() - record.getControlFields().size());
+    assertEquals(xml.length, listener.getBytesRead());
+    assertEquals(1, listener.getHistogram(Stage.PARSE).getCount());
+    assertEquals(1, listener.getHistogram(Stage.CONVERT).getCount());
+    // tag index and fixed fields
+    assertEquals(2, listener.getHistogram(Stage.INDEX).getCount());
+
+    marcXml.getPublicationPlaces();
+    assertEquals(1, listener.getHistogram(Stage.ACCESS).getCount());
+    assertTrue(listener.getHistogram(Stage.PARSE).getPercentileNanos(0.5) > 0);
+  }
+
+  @Test
+  void testStream() {
+    RecordingMetricsListener listener = new RecordingMetricsListener();
+    Metrics.setListener(listener);
+    byte[] xml = MarcXmlTestData.sandburgCollection(20);
+    try (Stream<Record> records = MarcXmlRecord.stream(new ByteArrayInputStream(xml))) {
+      assertEquals(20, records.count());
+    }
+    assertEquals(20, listener.getRecords());
+    assertEquals(20, listener.getHistogram(Stage.PARSE).getCount());
+    assertEquals(xml.length, listener.getBytesRead());
+  }
+
+  @Test
+  void testIteratorExhausted() {
+    RecordingMetricsListener listener = new RecordingMetricsListener();
+    Metrics.setListener(listener);
+    try (MarcXmlRecordIterator records = new MarcXmlRecordIterator(MarcXmlTestData.sandburgCollectionStream(2))) {
+      records.next();
+      records.next();
+      assertThrows(NoSuchElementException.class, records::next);
+    }
+    // the end of input is no parse failure
+    assertEquals(Map.of(), listener.getFailures());
+    assertEquals(2, listener.getHistogram(Stage.PARSE).getCount());
+  }
+
+  @Test
+  void testConversionFailure() {
+    RecordingMetricsListener listener = new RecordingMetricsListener();
+    Metrics.setListener(listener);
+    Record record = new RecordImpl();
+    assertThrows(NullPointerException.class, () -> new MarcXml2DublinCore().convert(record));
+    assertEquals(Map.of("CONVERT java.lang.NullPointerException", 1L), listener.getFailures());
+    assertEquals(1, listener.getHistogram(Stage.CONVERT).getCount());
+  }
+
+  @Test
+  void testNamedMetricsAdapter() {
+    Map<String, Long> meters = new ConcurrentHashMap<>();
+    Metrics.setListener(new NamedMetricsAdapter("marcxml", new NamedMetricsAdapter.MeterSink() {
+
+      @Override
+      public void recordTime(String name, long nanos) {
+        meters.merge(name, 1L, Long::sum);
+      }
+
+      @Override
+      public void increment(String name, long amount) {
+        meters.merge(name, amount, Long::sum);
+      }
+    }));
+    MarcFactory factory = MarcFactory.newInstance();
+    Record record = factory.newRecord("00000nam a2200000 a 4500");
+    record.addVariableField(factory.newDataField("245", ' ', ' ', "a", "Title"));
+    new MarcXml2DublinCore().convert(record);
+
+    assertEquals(1L, meters.get("marcxml.convert.time"));
+    assertThrows(NullPointerException.class, () -> new MarcXml2DublinCore().convert(new RecordImpl()));
+    assertEquals(1L, meters.get("marcxml.convert.failures.NullPointerException"));
+  }
+
+  @Test
+  void testLatencyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentileNanos(0.99));
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(50500, histogram.getMeanNanos());
+    // 50000 is in bucket [32768, 65536)
+    assertEquals(65535, histogram.getPercentileNanos(0.5));
+    assertEquals(131071, histogram.getPercentileNanos(0.99));
+  }
+}
@@ -0,0 +1,209 @@
+package com.datazuul.metadata.marc.xml.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.dublincore.DcElement;
+import com.datazuul.metadata.dublincore.DublinCore;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+import com.sun.net.httpserver.HttpServer;
+
+class MarcXmlPublisherTest {
+
+  private static final Object COMPLETE = new Object();
+
+  private static HttpServer server;
+  private static ExecutorService executor;
+
+  @BeforeAll
+  static void beforeAll() throws IOException {
+    executor = Executors.newCachedThreadPool();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/dump.xml", exchange -> {
+      byte[] body = MarcXmlTestData.sandburgCollection(5);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  /**
+   * Collects all signals: items, the error or {@link #COMPLETE}.
+   */
+  private static class TestSubscriber<T> implements Flow.Subscriber<T> {
+
+    final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    volatile Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      signals.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      signals.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      signals.add(COMPLETE);
+    }
+
+    Object next() throws InterruptedException {
+      Object signal = signals.poll(10, TimeUnit.SECONDS);
+      assertTrue(signal != null, "no signal");
+      return signal;
+    }
+  }
+
+  private static class CloseTrackingInputStream extends ByteArrayInputStream {
+
+    final CountDownLatch closed = new CountDownLatch(1);
+
+    CloseTrackingInputStream(byte[] buf) {
+      super(buf);
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed.countDown();
+      super.close();
+    }
+
+    int remaining() {
+      return count - pos;
+    }
+  }
+
+  @Test
+  void testRecordByRecord() throws InterruptedException {
+    TestSubscriber<Record> subscriber = new TestSubscriber<>();
+    MarcXmlPublisher.records(MarcXmlTestData.sandburgCollectionStream(100), executor).subscribe(subscriber);
+    for (int i = 0; i < 100; i++) {
+      subscriber.subscription.request(1);
+      assertEquals(String.valueOf(i), ((Record) subscriber.next()).getControlNumber());
+    }
+    subscriber.subscription.request(1);
+    assertEquals(COMPLETE, subscriber.next());
+  }
+
+  @Test
+  void testDemandThrottlesParsing() throws InterruptedException {
+    CloseTrackingInputStream is = new CloseTrackingInputStream(MarcXmlTestData.sandburgCollection(1000));
+    int length = is.remaining();
+    TestSubscriber<Record> subscriber = new TestSubscriber<>();
+    MarcXmlPublisher.records(is, executor).subscribe(subscriber);
+    Thread.sleep(100);
+    // nothing read before the first request
+    assertEquals(length, is.remaining());
+
+    subscriber.subscription.request(2);
+    subscriber.next();
+    subscriber.next();
+    assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+    assertTrue(is.remaining() > length / 2);
+
+    subscriber.subscription.cancel();
+    assertTrue(is.closed.await(10, TimeUnit.SECONDS));
+    assertNull(subscriber.signals.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testThrowingSubscriber() throws InterruptedException {
+    CloseTrackingInputStream is = new CloseTrackingInputStream(MarcXmlTestData.sandburgCollection(10));
+    TestSubscriber<Record> subscriber = new TestSubscriber<>() {
+      @Override
+      public void onNext(Record item) {
+        super.onNext(item);
+        throw new IllegalStateException("subscriber failed");
+      }
+    };
+    MarcXmlPublisher.records(is, executor).subscribe(subscriber);
+    subscriber.subscription.request(5);
+    assertTrue(subscriber.next() instanceof Record);
+    // cancelled: reader closed, no further signals
+    assertTrue(is.closed.await(10, TimeUnit.SECONDS));
+    subscriber.subscription.request(5);
+    assertNull(subscriber.signals.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testDublinCoreOfUri() throws InterruptedException {
+    URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/dump.xml");
+    MarcXmlPublisher<DublinCore> publisher = MarcXmlPublisher.dublinCore(uri, EnumSet.of(DcElement.TITLE), executor);
+    // each subscriber reads the whole document
+    for (int run = 0; run < 2; run++) {
+      TestSubscriber<DublinCore> subscriber = new TestSubscriber<>();
+      publisher.subscribe(subscriber);
+      subscriber.subscription.request(Long.MAX_VALUE);
+      for (int i = 0; i < 5; i++) {
+        DublinCore dc = (DublinCore) subscriber.next();
+        assertEquals(List.of("Arithmetic /"), dc.getTitles());
+        assertNull(dc.getCreators());
+      }
+      assertEquals(COMPLETE, subscriber.next());
+    }
+  }
+
+  @Test
+  void testErrors() throws InterruptedException {
+    MarcXmlPublisher<DublinCore> publisher = MarcXmlPublisher.dublinCore(MarcXmlTestData.sandburgCollectionStream(5),
+        executor);
+    TestSubscriber<DublinCore> first = new TestSubscriber<>();
+    publisher.subscribe(first);
+    first.subscription.request(1);
+    assertTrue(first.next() instanceof DublinCore);
+    first.subscription.request(0);
+    assertTrue(first.next() instanceof IllegalArgumentException);
+
+    // the input stream can only be read once
+    TestSubscriber<DublinCore> second = new TestSubscriber<>();
+    publisher.subscribe(second);
+    second.subscription.request(1);
+    assertTrue(second.next() instanceof IllegalStateException);
+
+    TestSubscriber<Record> truncated = new TestSubscriber<>();
+    byte[] xml = MarcXmlTestData.sandburgCollection(2);
+    MarcXmlPublisher.records(new ByteArrayInputStream(xml, 0, xml.length - 500), executor).subscribe(truncated);
+    truncated.subscription.request(5);
+    assertTrue(truncated.next() instanceof Record);
+    assertTrue(truncated.next() instanceof RuntimeException);
+    assertNull(truncated.signals.poll(100, TimeUnit.MILLISECONDS));
+  }
+}
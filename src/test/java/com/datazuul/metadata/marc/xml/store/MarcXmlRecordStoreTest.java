@@ -0,0 +1,131 @@
+package com.datazuul.metadata.marc.xml.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.marc4j.marc.Record;
+
+import com.datazuul.metadata.marc.xml.MarcXml;
+import com.datazuul.metadata.marc.xml.MarcXmlRecord;
+import com.datazuul.metadata.marc.xml.MarcXmlTestData;
+
+class MarcXmlRecordStoreTest {
+
+  private static List<String> titles(MarcXml marcXml) {
+    return marcXml.getSubfieldsByTagAndCodes("245", "a");
+  }
+
+  @Test
+  void testStore(@TempDir Path dir) throws IOException {
+    Path dataFile = dir.resolve(MarcXmlRecordStore.DATA_FILE);
+    // small segments and index: records are padded to segment boundaries, the
+    // index grows several times
+    try (MarcXmlRecordStore store = new MarcXmlRecordStore(dir, 4, 4096)) {
+      assertEquals(100, store.appendAll(MarcXmlTestData.sandburgCollectionStream(100)));
+      assertTrue(store.append(MarcXmlRecord.from(MarcXmlTestData.resource("marc21-BV020998142.xml"))));
+      assertEquals(101, store.getRecordCount());
+      // 100 control numbers, 001 and three 035 of the second record
+      assertEquals(104, store.getKeyCount());
+
+      assertEquals("42", store.get("42").getControlFieldByTag("001"));
+      assertEquals(List.of("Arithmetic /"), titles(store.get(" 99 ")));
+      assertEquals("9148313", store.get("(DE-599)BVBBV020998142").getControlFieldByTag("001"));
+      assertEquals("9148313", store.getCompactRecord("(OCoLC)162244133").getControlNumber());
+      assertNull(store.get("100"));
+      assertNull(store.get("(DE-599)unknown"));
+    }
+    long dataLength = Files.size(dataFile);
+    assertTrue(dataLength > 4096 * 10);
+
+    // reopened, data not covered by the index is discarded
+    Files.write(dataFile, new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+    try (MarcXmlRecordStore store = new MarcXmlRecordStore(dir)) {
+      assertEquals(dataLength, Files.size(dataFile));
+      assertEquals(101, store.getRecordCount());
+      assertEquals(104, store.getKeyCount());
+      for (int i = 0; i < 100; i++) {
+        assertNotNull(store.get(String.valueOf(i)), "record " + i);
+      }
+
+      // the last appended version wins
+      String updated = MarcXmlTestData.resourceAsString("marc21-sandburg.xml")
+          .replace("   92005291 </controlfield>", "42</controlfield>").replace("Arithmetic /", "Arithmetics /");
+      assertTrue(store.append(MarcXmlRecord.from(new ByteArrayInputStream(updated.getBytes(StandardCharsets.UTF_8)))));
+      assertEquals(List.of("Arithmetics /"), titles(store.get("42")));
+      assertEquals(List.of("Arithmetic /"), titles(store.get("41")));
+      assertEquals(102, store.getRecordCount());
+      assertEquals(104, store.getKeyCount());
+    }
+    try (MarcXmlRecordStore store = new MarcXmlRecordStore(dir)) {
+      assertEquals(List.of("Arithmetics /"), titles(store.get("42")));
+    }
+  }
+
+  @Test
+  void testAppendAndGet(@TempDir Path dir) throws IOException {
+    // lookups right after appends read unmapped records through the channel,
+    // the data is mapped every 16 KB
+    try (MarcXmlRecordStore store = new MarcXmlRecordStore(dir, 4, 16384);
+        Stream<Record> records = MarcXmlRecord.stream(MarcXmlTestData.sandburgCollectionStream(2000))) {
+      Iterator<Record> iterator = records.iterator();
+      for (int i = 0; iterator.hasNext(); i++) {
+        assertTrue(store.append(iterator.next()));
+        assertEquals(String.valueOf(i), store.getCompactRecord(String.valueOf(i)).getControlNumber());
+        assertEquals(String.valueOf(i / 2), store.getCompactRecord(String.valueOf(i / 2)).getControlNumber());
+      }
+      assertEquals(2000, store.getRecordCount());
+      for (int i = 0; i < 2000; i++) {
+        assertEquals(List.of("Arithmetic /"), titles(store.get(String.valueOf(i))), "record " + i);
+      }
+    }
+  }
+
+  @Test
+  void testRebuildIndex(@TempDir Path dir) throws IOException {
+    try (MarcXmlRecordStore store = new MarcXmlRecordStore(dir, 4, 4096)) {
+      store.appendAll(MarcXmlTestData.sandburgCollectionStream(100));
+    }
+    Path dataFile = dir.resolve(MarcXmlRecordStore.DATA_FILE);
+    long dataLength = Files.size(dataFile);
+    // incomplete record of an interrupted append
+    Files.write(dataFile, new byte[] { 0, 0, 0, 100, 1 }, StandardOpenOption.APPEND);
+    Files.delete(dir.resolve(MarcXmlRecordStore.INDEX_FILE));
+
+    try (MarcXmlRecordStore store = new MarcXmlRecordStore(dir, 4, 4096)) {
+      assertEquals(dataLength, Files.size(dataFile));
+      assertEquals(100, store.getRecordCount());
+      assertEquals(100, store.getKeyCount());
+      for (int i = 0; i < 100; i++) {
+        assertEquals(String.valueOf(i), store.getCompactRecord(String.valueOf(i)).getControlNumber());
+      }
+    }
+  }
+
+  @Test
+  void testBuild(@TempDir Path dir) throws IOException {
+    try (MarcXmlRecordStore store = MarcXmlRecordStore.build(dir, MarcXmlTestData.sandburgCollectionStream(10), 10)) {
+      assertEquals(10, store.getRecordCount());
+    }
+    // replaces the existing store
+    try (MarcXmlRecordStore store = MarcXmlRecordStore.build(dir, MarcXmlTestData.sandburgCollectionStream(3), 3)) {
+      assertEquals(3, store.getRecordCount());
+      assertEquals(3, store.getKeyCount());
+      assertNull(store.get("5"));
+      assertEquals("Arithmetic /", store.getCompactRecord("2").getSubfieldsByTagAndCodes("245", "a").get(0));
+    }
+  }
+}